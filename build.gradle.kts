@@ -22,6 +22,13 @@ application {
     mainClass.set("com.monzo.crawler.CrawlerApplication")
 }
 
+// JMH microbenchmarks live in src/jmh/java; run with ./gradlew jmh -PjmhArgs="<JMH options>"
+val jmh by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
 dependencies {
     implementation("org.jsoup:jsoup:1.17.2")
 
@@ -46,6 +53,10 @@ dependencies {
 
     // For testing
     implementation("com.google.guava:guava:32.1.2-jre")
+
+    // Benchmarks
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.withType<JavaCompile> {
@@ -58,6 +69,14 @@ tasks.withType<JavaExec> {
 }
 
 
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args((findProperty("jmhArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
     jvmArgs = listOf("--enable-preview")
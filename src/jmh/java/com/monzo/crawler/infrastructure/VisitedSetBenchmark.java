@@ -0,0 +1,150 @@
+package com.monzo.crawler.infrastructure;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the off-heap fingerprint set with {@code ConcurrentHashMap.newKeySet()} of boxed longs, the obvious
+ * heap-based alternative, for filling a set from empty and for looking up a full one.
+ * <p>
+ * Fingerprints are generated rather than held in an array, so the only large structure on the heap is the set
+ * under test. At 100M entries the heap set needs about 6 GB; both sizes together need a machine with 16 GB.
+ * Add {@code -prof gc} to see the allocation and GC time behind the numbers:
+ * <pre>
+ * ./gradlew jmh -PjmhArgs="VisitedSetBenchmark -prof gc"
+ * ./gradlew jmh -PjmhArgs="VisitedSetBenchmark -p entries=10000000"
+ * </pre>
+ */
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xms10g", "-Xmx10g", "-XX:+UseG1GC"})
+@Threads(1)
+public class VisitedSetBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Sizes {
+        @Param({"10000000", "100000000"})
+        public int entries;
+    }
+
+    /**
+     * A fresh, empty set per fill; filling is measured once per iteration because it is the whole workload.
+     */
+    @State(Scope.Benchmark)
+    public static class EmptySets {
+        OffHeapLongSet offHeap;
+        Set<Long> heap;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            offHeap = new OffHeapLongSet(1 << 14);
+            heap = ConcurrentHashMap.newKeySet();
+        }
+
+        @TearDown(Level.Iteration)
+        public void release() {
+            offHeap.close();
+            heap = null;
+        }
+    }
+
+    /**
+     * Sets filled once per trial, each only in the benchmark that reads it.
+     * Lookups alternate between present and absent fingerprints.
+     */
+    @State(Scope.Benchmark)
+    public static class FullOffHeapSet {
+        OffHeapLongSet set;
+        int entries;
+
+        @Setup(Level.Trial)
+        public void fill(Sizes sizes) {
+            entries = sizes.entries;
+            set = new OffHeapLongSet(1 << 14);
+            for (int i = 0; i < entries; i++) {
+                set.add(fingerprint(i));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void release() {
+            set.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FullHeapSet {
+        Set<Long> set;
+        int entries;
+
+        @Setup(Level.Trial)
+        public void fill(Sizes sizes) {
+            entries = sizes.entries;
+            set = ConcurrentHashMap.newKeySet(entries);
+            for (int i = 0; i < entries; i++) {
+                set.add(fingerprint(i));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookups {
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        long next(int entries) {
+            // Indexes beyond entries were never added, so half the lookups miss
+            return fingerprint(random.nextInt(entries * 2));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long fillOffHeap(EmptySets sets, Sizes sizes) {
+        for (int i = 0; i < sizes.entries; i++) {
+            sets.offHeap.add(fingerprint(i));
+        }
+        return sets.offHeap.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long fillConcurrentHashMap(EmptySets sets, Sizes sizes) {
+        for (int i = 0; i < sizes.entries; i++) {
+            sets.heap.add(fingerprint(i));
+        }
+        return sets.heap.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public boolean lookupOffHeap(FullOffHeapSet full, Lookups lookups) {
+        return full.set.contains(lookups.next(full.entries));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public boolean lookupConcurrentHashMap(FullHeapSet full, Lookups lookups) {
+        return full.set.contains(lookups.next(full.entries));
+    }
+
+    // SplitMix64 finalizer: well-spread, reproducible stand-ins for URI fingerprints
+    static long fingerprint(long index) {
+        long z = index + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
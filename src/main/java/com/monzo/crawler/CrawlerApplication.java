@@ -8,9 +8,15 @@ import com.monzo.crawler.infrastructure.config.ConfigurationLoader;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,65 +46,138 @@ public class CrawlerApplication {
             return;
         }
 
-        // Create Redis connection using configuration
-        String redisUrl = config.getRedisUrl();
-        logger.info("Connecting to Redis at: {}", redisUrl);
+        if ("memory".equals(config.getStateBackend())) {
+            logger.info("Keeping crawl state in memory");
+            // A visited store that outlives the process needs a frontier that does too, or a restarted crawl would
+            // find every queued URI gone and stop at once
+            boolean resumable = "mapped".equals(config.getMemoryVisitedStore());
+            if (resumable && "fifo".equals(config.getFrontierStrategy())) {
+                logger.error("Visited store mapped requires frontier strategy disk to resume a crawl");
+                return;
+            }
+            FrontierQueue frontierQueue = switch (config.getFrontierStrategy()) {
+                case "fifo" -> new InMemoryFrontierQueue();
+                case "disk" -> resumable
+                        ? DiskSpillingFrontierQueue.open(Path.of(config.getVisitedStoreFile() + ".frontier"))
+                        : new DiskSpillingFrontierQueue(Path.of(config.getFrontierSpillDirectory()));
+                default -> null;
+            };
+            if (frontierQueue == null) {
+                logger.error("Frontier strategy {} requires the redis state backend", config.getFrontierStrategy());
+                return;
+            }
+            VisitedRepository visitedRepository = switch (config.getMemoryVisitedStore()) {
+                case "offheap" -> new OffHeapVisitedRepository();
+                case "mapped" -> new MappedVisitedRepository(Path.of(config.getVisitedStoreFile()),
+                        config.getVisitedExpectedUrls(), Duration.ofSeconds(config.getVisitedCheckpointSeconds()));
+                default -> new InMemoryVisitedRepository();
+            };
+            if (config.isConditionalRequests()) {
+                // Page history is only useful if it outlives the process, like the Redis state it belongs with
+                logger.warn("Conditional requests require the redis state backend; fetching pages in full");
+            }
+            try {
+                crawl(config, startUri, frontierQueue, visitedRepository, PageHistoryRepository.none());
+            } catch (Exception e) {
+                logger.error("Failed to start crawler", e);
+            } finally {
+                closeQuietly(frontierQueue, "frontier queue");
+                closeQuietly(visitedRepository, "visited repository");
+            }
+            return;
+        }
+        if (!"redis".equals(config.getStateBackend())) {
+            logger.error("Unknown state backend: {}", config.getStateBackend());
+            return;
+        }
 
-        RedisClient redisClient = null;
-        StatefulRedisConnection<String, String> connection = null;
+        // Create Redis connections using configuration, one client per shard
+        List<String> redisUrls = config.getRedisUrls();
+        logger.info("Connecting to Redis at: {}", String.join(", ", redisUrls));
 
-        try {
-            redisClient = RedisClient.create(redisUrl);
-            connection = redisClient.connect();
-            RedisCommands<String, String> redis = connection.sync();
+        List<RedisClient> redisClients = new ArrayList<>();
+        List<StatefulRedisConnection<?, ?>> connections = new ArrayList<>();
+        List<FrontierQueue> frontierShards = new ArrayList<>();
+        List<RedisVisitedCacheInvalidator> cacheInvalidators = new ArrayList<>();
 
-            // Test Redis connection
-            try {
-                redis.ping();
-                logger.info("Successfully connected to Redis");
-            } catch (Exception e) {
-                logger.error("Failed to connect to Redis at {}", redisUrl, e);
+        try {
+            if (redisUrls.size() > 1 && "disk".equals(config.getFrontierStrategy())) {
+                logger.error("Frontier strategy disk does not support multiple Redis URLs");
                 return;
             }
+            List<VisitedRepository> visitedShards = new ArrayList<>();
+            List<PageHistoryRepository> pageHistoryShards = new ArrayList<>();
+            for (String redisUrl : redisUrls) {
+                RedisClient redisClient = RedisClient.create(redisUrl);
+                redisClients.add(redisClient);
+                RedisCommands<String, String> redis = connect(redisClient, StringCodec.UTF8, connections);
+                RedisCommands<byte[], byte[]> binaryRedis = connect(redisClient, ByteArrayCodec.INSTANCE, connections);
 
-            // Create infrastructure components
-            Duration httpTimeout = Duration.ofSeconds(config.getHttpTimeoutSeconds());
-            int maxConcurrentRequests = config.getMaxConcurrentRequests();
-
-            PageFetcher pageFetcher = new HttpClientPageFetcher(httpTimeout);
-            LinkExtractor linkExtractor = new JsoupLinkExtractor();
-            CrawlObserver crawlObserver = new ConsoleCrawlObserver();
-            FrontierQueue frontierQueue = new RedisFrontierQueue(redis);
-            VisitedRepository visitedRepository = new RedisVisitedRepository(redis);
+                // Test Redis connection
+                try {
+                    redis.ping();
+                    logger.info("Successfully connected to Redis at {}", redisUrl);
+                } catch (Exception e) {
+                    logger.error("Failed to connect to Redis at {}", redisUrl, e);
+                    return;
+                }
 
-            // Create factory with infrastructure dependencies
-            WebCrawlerFactory factory = new WebCrawlerFactory(
-                    pageFetcher,
-                    linkExtractor,
-                    crawlObserver,
-                    frontierQueue,
-                    visitedRepository,
-                    maxConcurrentRequests
-            );
+                UriCodec uriCodec = createUriCodec(config, binaryRedis);
+                frontierShards.add(createFrontierQueue(config, redisClient, redis, binaryRedis, uriCodec, connections));
+                visitedShards.add(createVisitedRepository(config, binaryRedis, uriCodec));
+                pageHistoryShards.add(config.isConditionalRequests()
+                        ? new RedisPageHistoryRepository(redis)
+                        : PageHistoryRepository.none());
+            }
 
-            // Create crawler configured for the specific domain
-            WebCrawler webCrawler = factory.createForUri(startUri);
+            FrontierQueue frontierQueue = frontierShards.getFirst();
+            VisitedRepository visitedRepository = visitedShards.getFirst();
+            PageHistoryRepository pageHistoryRepository = pageHistoryShards.getFirst();
+            if (redisUrls.size() > 1) {
+                ShardRing ring = createShardRing(config, redisUrls);
+                frontierQueue = new ShardedFrontierQueue(ring, frontierShards);
+                visitedRepository = new ShardedVisitedRepository(ring, visitedShards);
+                pageHistoryRepository = new ShardedPageHistoryRepository(ring, pageHistoryShards);
+                logger.info("Sharding crawl state over {} Redis instances by {}",
+                        redisUrls.size(), config.getRedisShardRouting());
+            }
+            if (config.isConditionalRequests()) {
+                logger.info("Fetching pages conditionally, with validators and links kept in Redis");
+            }
+            visitedRepository = withNearCache(config, visitedRepository);
+            if (visitedRepository instanceof NearCachedVisitedRepository cached && config.isVisitedCacheTracking()) {
+                for (RedisClient redisClient : redisClients) {
+                    StatefulRedisConnection<String, String> trackingConnection = redisClient.connect();
+                    connections.add(trackingConnection);
+                    cacheInvalidators.add(
+                            RedisVisitedCacheInvalidator.start(trackingConnection, cached::invalidateAll));
+                }
+                logger.info("Visited near-cache is invalidated by Redis on reset");
+            }
 
-            logger.info("Starting crawl at: {}", startUri);
-            logger.info("Restricting to host: {}", startUri.getHost());
-            logger.info("Max concurrent requests: {}", maxConcurrentRequests);
-            logger.info("HTTP timeout: {} seconds", config.getHttpTimeoutSeconds());
+            for (VisitedRepository visitedShard : visitedShards) {
+                if (visitedShard instanceof RedisTimestampedVisitedRepository timestamped) {
+                    logger.info("Requeued {} pages older than {} minutes",
+                            timestamped.requeueExpired(frontierQueue), config.getVisitedMaxAgeMinutes());
+                }
+            }
 
-            // Start crawling
-            webCrawler.crawl(startUri);
+            crawl(config, startUri, frontierQueue, visitedRepository, pageHistoryRepository);
 
-            logger.info("Crawl finished.");
+            if (visitedRepository instanceof NearCachedVisitedRepository cached) {
+                logger.info("Visited near-cache: {}, invalidations: {}", cached.stats(),
+                        cacheInvalidators.stream().mapToLong(RedisVisitedCacheInvalidator::invalidations).sum());
+            }
 
         } catch (Exception e) {
             logger.error("Failed to start crawler", e);
         } finally {
             // Clean up resources
-            if (connection != null) {
+            cacheInvalidators.forEach(invalidator -> closeQuietly(invalidator, "visited cache invalidator"));
+            for (FrontierQueue frontierShard : frontierShards) {
+                closeQuietly(frontierShard, "frontier queue");
+            }
+            for (StatefulRedisConnection<?, ?> connection : connections.reversed()) {
                 try {
                     connection.close();
                     logger.debug("Redis connection closed");
@@ -106,7 +185,7 @@ public class CrawlerApplication {
                     logger.warn("Error closing Redis connection", e);
                 }
             }
-            if (redisClient != null) {
+            for (RedisClient redisClient : redisClients) {
                 try {
                     redisClient.shutdown();
                     logger.debug("Redis client shutdown");
@@ -116,4 +195,159 @@ public class CrawlerApplication {
             }
         }
     }
+
+    private static void crawl(
+            ConfigurationLoader config,
+            URI startUri,
+            FrontierQueue frontierQueue,
+            VisitedRepository visitedRepository,
+            PageHistoryRepository pageHistoryRepository
+    ) {
+        // Create infrastructure components
+        Duration httpTimeout = Duration.ofSeconds(config.getHttpTimeoutSeconds());
+        int maxConcurrentRequests = config.getMaxConcurrentRequests();
+
+        HttpClientPageFetcher pageFetcher = new HttpClientPageFetcher(httpTimeout);
+        LinkExtractor linkExtractor = new JsoupLinkExtractor();
+        CrawlObserver crawlObserver = new ConsoleCrawlObserver();
+
+        // Create factory with infrastructure dependencies
+        WebCrawlerFactory factory = new WebCrawlerFactory(
+                pageFetcher,
+                linkExtractor,
+                crawlObserver,
+                frontierQueue,
+                visitedRepository,
+                pageHistoryRepository,
+                maxConcurrentRequests
+        );
+
+        // Create crawler configured for the specific domain
+        String engine = config.getCrawlEngine();
+        WebCrawler webCrawler = switch (engine) {
+            case "threads" -> factory.createForUri(startUri);
+            case "async" -> factory.createAsyncForUri(startUri);
+            default -> throw new IllegalArgumentException("Unknown crawl engine: " + engine);
+        };
+
+        logger.info("Starting crawl at: {}", startUri);
+        logger.info("Restricting to host: {}", startUri.getHost());
+        logger.info("Crawl engine: {}", engine);
+        logger.info("Max concurrent requests: {}", maxConcurrentRequests);
+        logger.info("HTTP timeout: {} seconds", config.getHttpTimeoutSeconds());
+        logger.info("Frontier strategy: {}", config.getFrontierStrategy());
+
+        // Start crawling
+        webCrawler.crawl(startUri);
+
+        logger.info("Crawl finished.");
+        logger.info("Downloaded {} KiB of page bodies, {} KiB decompressed",
+                pageFetcher.wireBytes() / 1024, pageFetcher.decodedBytes() / 1024);
+    }
+
+    /**
+     * Every frontier except "disk" gets a dedicated connection for its blocking pop, so a waiting dequeue
+     * never stalls the commands queued on the shared connections.
+     */
+    private static FrontierQueue createFrontierQueue(
+            ConfigurationLoader config,
+            RedisClient redisClient,
+            RedisCommands<String, String> redis,
+            RedisCommands<byte[], byte[]> binaryRedis,
+            UriCodec uriCodec,
+            List<StatefulRedisConnection<?, ?>> connections
+    ) {
+        String strategy = config.getFrontierStrategy();
+        if (uriCodec != UriCodec.PLAIN && !"fifo".equals(strategy)) {
+            throw new IllegalArgumentException("Frontier strategy " + strategy + " only supports the plain URI codec");
+        }
+        return switch (strategy) {
+            case "host" -> new RedisHostFrontierQueue(
+                    redis,
+                    connect(redisClient, StringCodec.UTF8, connections),
+                    Duration.ofMillis(config.getPolitenessDelayMillis()));
+            case "priority" -> new RedisPriorityFrontierQueue(redis, connect(redisClient, StringCodec.UTF8, connections));
+            case "fifo" -> new RedisFrontierQueue(
+                    binaryRedis, connect(redisClient, ByteArrayCodec.INSTANCE, connections), uriCodec);
+            case "disk" -> new DiskSpillingFrontierQueue(Path.of(config.getFrontierSpillDirectory()));
+            case "stream" -> new RedisStreamFrontierQueue(
+                    redis,
+                    connect(redisClient, StringCodec.UTF8, connections),
+                    config.getFrontierConsumerName(),
+                    Duration.ofMillis(config.getFrontierReclaimIdleMillis()));
+            default -> throw new IllegalArgumentException("Unknown frontier strategy: " + strategy);
+        };
+    }
+
+    private static VisitedRepository createVisitedRepository(
+            ConfigurationLoader config,
+            RedisCommands<byte[], byte[]> binaryRedis,
+            UriCodec uriCodec
+    ) {
+        return switch (config.getVisitedStrategy()) {
+            case "set" -> new RedisVisitedRepository(binaryRedis, uriCodec);
+            case "fingerprint" -> RedisVisitedRepository.fingerprinted(binaryRedis);
+            case "buckets" -> RedisVisitedRepository.bucketed(binaryRedis, config.getVisitedExpectedUrls());
+            case "bloom" -> new RedisBloomVisitedRepository(
+                    binaryRedis,
+                    config.getVisitedExpectedUrls(),
+                    config.getVisitedBloomFalsePositiveRate());
+            case "timestamped" -> new RedisTimestampedVisitedRepository(
+                    binaryRedis, uriCodec, Duration.ofMinutes(config.getVisitedMaxAgeMinutes()));
+            default -> throw new IllegalArgumentException("Unknown visited strategy: " + config.getVisitedStrategy());
+        };
+    }
+
+    private static ShardRing createShardRing(ConfigurationLoader config, List<String> redisUrls) {
+        return switch (config.getRedisShardRouting()) {
+            case "host" -> ShardRing.byHost(redisUrls);
+            case "uri" -> ShardRing.byUri(redisUrls);
+            default -> throw new IllegalArgumentException("Unknown shard routing: " + config.getRedisShardRouting());
+        };
+    }
+
+    /**
+     * With expiring visited URIs, cached answers live for a tenth of the max age, so a page is recrawled at most
+     * that much later than it expires.
+     */
+    private static VisitedRepository withNearCache(ConfigurationLoader config, VisitedRepository visitedRepository) {
+        long cacheSize = config.getVisitedCacheSize();
+        if (cacheSize <= 0) {
+            return visitedRepository;
+        }
+        if ("timestamped".equals(config.getVisitedStrategy())) {
+            Duration expiry = Duration.ofMinutes(config.getVisitedMaxAgeMinutes()).dividedBy(10);
+            return new NearCachedVisitedRepository(visitedRepository, cacheSize, expiry);
+        }
+        return new NearCachedVisitedRepository(visitedRepository, cacheSize);
+    }
+
+    private static UriCodec createUriCodec(ConfigurationLoader config, RedisCommands<byte[], byte[]> binaryRedis) {
+        return switch (config.getUriCodec()) {
+            case "plain" -> UriCodec.PLAIN;
+            case "compact" -> new CompactUriCodec(binaryRedis);
+            default -> throw new IllegalArgumentException("Unknown URI codec: " + config.getUriCodec());
+        };
+    }
+
+    private static <K, V> RedisCommands<K, V> connect(
+            RedisClient redisClient,
+            RedisCodec<K, V> codec,
+            List<StatefulRedisConnection<?, ?>> connections
+    ) {
+        StatefulRedisConnection<K, V> connection = redisClient.connect(codec);
+        connections.add(connection);
+        return connection.sync();
+    }
+
+    private static void closeQuietly(Object resource, String description) {
+        if (resource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+                logger.debug("Closed {}", description);
+            } catch (Exception e) {
+                logger.warn("Error closing {}", description, e);
+            }
+        }
+    }
 }
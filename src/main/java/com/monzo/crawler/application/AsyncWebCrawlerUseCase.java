@@ -0,0 +1,94 @@
+package com.monzo.crawler.application;
+
+import com.monzo.crawler.domain.service.CrawlStateService;
+import com.monzo.crawler.domain.service.PageProcessingService;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Crawl engine that runs each page as a chain of asynchronous stages (fetch, then extract and enqueue links)
+ * instead of a thread per page. Nothing waits on a download, so thousands of requests can be in flight for the
+ * cost of their futures; a thread is only taken for the short stage after the page arrives.
+ * <p>
+ * At most {@code maxInFlight} pages are between being claimed and acknowledged. When the window is full the
+ * dispatcher waits for a page to finish before claiming the next, so no claimed URI sits waiting for a slot.
+ */
+public class AsyncWebCrawlerUseCase implements WebCrawler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncWebCrawlerUseCase.class);
+
+    private final PageProcessingService pageProcessingService;
+    private final CrawlStateService crawlStateService;
+
+    private final AtomicInteger inFlightPages = new AtomicInteger();
+    private final Semaphore window;
+    private final FrontierClaimer frontierClaimer;
+
+    public AsyncWebCrawlerUseCase(
+            PageProcessingService pageProcessingService,
+            CrawlStateService crawlStateService,
+            int maxInFlight
+    ) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in-flight pages must be positive: " + maxInFlight);
+        }
+        this.pageProcessingService = Objects.requireNonNull(pageProcessingService);
+        this.crawlStateService = Objects.requireNonNull(crawlStateService);
+        this.window = new Semaphore(maxInFlight);
+        this.frontierClaimer = new FrontierClaimer(this.crawlStateService, maxInFlight);
+    }
+
+    @Override
+    public void crawl(URI startUri) {
+        crawlStateService.tryAddToFrontier(startUri);
+
+        // Runs the stages after each download; short-lived, as they parse HTML and make brief crawl state calls
+        try (ExecutorService stageExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                // Take the slot before claiming, so no claimed URI waits for one
+                try {
+                    window.acquire();
+                } catch (InterruptedException e) {
+                    logger.warn("Crawl was interrupted while waiting for a free slot in the window.");
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                URI currentUri = frontierClaimer.next(window.availablePermits() + 1);
+
+                if (currentUri != null) {
+                    dispatch(currentUri, stageExecutor);
+                } else {
+                    window.release();
+                    if (isCrawlComplete()) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void dispatch(URI uri, ExecutorService stageExecutor) {
+        inFlightPages.incrementAndGet();
+        pageProcessingService.processPageAsync(uri, stageExecutor).whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.warn("Could not acknowledge URI {}", uri, error);
+            }
+            inFlightPages.decrementAndGet();
+            window.release();
+        });
+    }
+
+    /**
+     * A page enqueues all of its links before it stops counting as in flight, so once nothing is in flight
+     * an empty frontier can no longer be refilled and the crawl is finished.
+     */
+    private boolean isCrawlComplete() {
+        return inFlightPages.get() == 0 && crawlStateService.isFrontierEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+package com.monzo.crawler.application;
+
+import com.monzo.crawler.domain.service.CrawlStateService;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Hands a crawl engine's dispatcher the URIs it owns, claiming them from the frontier in batches.
+ * Not thread-safe; only the dispatcher thread uses it.
+ */
+final class FrontierClaimer {
+
+    // How long the dispatcher blocks on an empty frontier before re-checking for completion
+    private static final Duration DEQUEUE_TIMEOUT = Duration.ofMillis(200);
+
+    private final CrawlStateService crawlStateService;
+    private final int claimBatchSize;
+
+    // URIs already claimed from the frontier but not yet dispatched
+    private final Deque<URI> claimedUris = new ArrayDeque<>();
+
+    FrontierClaimer(CrawlStateService crawlStateService, int claimBatchSize) {
+        this.crawlStateService = Objects.requireNonNull(crawlStateService);
+        this.claimBatchSize = Math.max(1, claimBatchSize);
+    }
+
+    /**
+     * Returns the next URI this dispatcher owns, refilling the local buffer with a batch claim when it runs dry.
+     * When the frontier has nothing to claim, blocks until a URI is enqueued so new links are dispatched as soon
+     * as they arrive. Returns null if nothing new arrived before the timeout.
+     *
+     * @param freeCapacity How many URIs the engine could start right now, including the one returned. A batch
+     *                     never exceeds it, so claimed URIs don't sit waiting for a slot until the frontier takes
+     *                     them for abandoned.
+     */
+    URI next(int freeCapacity) {
+        if (claimedUris.isEmpty()) {
+            claimedUris.addAll(crawlStateService.claimNextUris(Math.clamp(freeCapacity, 1, claimBatchSize)));
+        }
+        if (!claimedUris.isEmpty()) {
+            return claimedUris.poll();
+        }
+
+        URI uri = crawlStateService.getNextUri(DEQUEUE_TIMEOUT);
+        if (uri == null) {
+            return null;
+        }
+        if (!crawlStateService.markAsVisited(uri)) {
+            crawlStateService.acknowledge(uri);
+            return null;
+        }
+        return uri;
+    }
+}
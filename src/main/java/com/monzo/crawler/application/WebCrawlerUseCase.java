@@ -5,6 +5,7 @@ import com.monzo.crawler.domain.service.PageProcessingService;
 import java.net.URI;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,8 +16,9 @@ public class WebCrawlerUseCase implements WebCrawler {
     private final PageProcessingService pageProcessingService;
     private final CrawlStateService crawlStateService;
 
-    private final Phaser phaser = new Phaser(1);
+    private final AtomicInteger inFlightTasks = new AtomicInteger();
     private final Semaphore rateLimiter;
+    private final FrontierClaimer frontierClaimer;
 
     public WebCrawlerUseCase(
             PageProcessingService pageProcessingService,
@@ -26,6 +28,7 @@ public class WebCrawlerUseCase implements WebCrawler {
         this.pageProcessingService = Objects.requireNonNull(pageProcessingService);
         this.crawlStateService = Objects.requireNonNull(crawlStateService);
         this.rateLimiter = new Semaphore(maxConcurrentRequests);
+        this.frontierClaimer = new FrontierClaimer(this.crawlStateService, maxConcurrentRequests);
     }
 
     @Override
@@ -34,38 +37,43 @@ public class WebCrawlerUseCase implements WebCrawler {
 
         try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
             while (true) {
-                URI currentUri = crawlStateService.getNextUri();
+                // Take the slot before claiming, so no claimed URI waits for one
+                try {
+                    rateLimiter.acquire();
+                } catch (InterruptedException e) {
+                    logger.warn("Crawl was interrupted while waiting for a free request slot.");
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                URI currentUri = frontierClaimer.next(rateLimiter.availablePermits() + 1);
 
                 if (currentUri != null) {
-                    if (crawlStateService.markAsVisited(currentUri)) {
-                        phaser.register();
-                        executor.submit(() -> processUriWithRateLimit(currentUri));
-                    }
+                    inFlightTasks.incrementAndGet();
+                    executor.submit(() -> processUri(currentUri));
                 } else {
-                    // Wait for running tasks to complete
-                    phaser.arriveAndAwaitAdvance();
-
-                    // Check if crawl is complete
-                    if (crawlStateService.isFrontierEmpty() && phaser.getRegisteredParties() == 1) {
+                    rateLimiter.release();
+                    if (isCrawlComplete()) {
                         break;
                     }
                 }
             }
-        } finally {
-            phaser.arriveAndDeregister();
         }
     }
 
-    private void processUriWithRateLimit(URI uri) {
+    /**
+     * A task enqueues all of its links before it stops counting as in flight, so once nothing is in flight
+     * an empty frontier can no longer be refilled and the crawl is finished.
+     */
+    private boolean isCrawlComplete() {
+        return inFlightTasks.get() == 0 && crawlStateService.isFrontierEmpty();
+    }
+
+    private void processUri(URI uri) {
         try {
-            rateLimiter.acquire();
             pageProcessingService.processPage(uri);
-        } catch (InterruptedException e) {
-            logger.warn("Task for URI {} was interrupted.", uri);
-            Thread.currentThread().interrupt();
         } finally {
             rateLimiter.release();
-            phaser.arriveAndDeregister();
+            inFlightTasks.decrementAndGet();
         }
     }
 }
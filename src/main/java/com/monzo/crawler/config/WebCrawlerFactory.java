@@ -1,5 +1,6 @@
 package com.monzo.crawler.config;
 
+import com.monzo.crawler.application.AsyncWebCrawlerUseCase;
 import com.monzo.crawler.application.WebCrawlerUseCase;
 import com.monzo.crawler.domain.service.CrawlStateService;
 import com.monzo.crawler.domain.service.PageProcessingService;
@@ -15,6 +16,7 @@ public class WebCrawlerFactory {
     private final CrawlObserver crawlObserver;
     private final FrontierQueue frontierQueue;
     private final VisitedRepository visitedRepository;
+    private final PageHistoryRepository pageHistoryRepository;
     private final int maxConcurrentRequests;
 
     public WebCrawlerFactory(
@@ -24,12 +26,26 @@ public class WebCrawlerFactory {
             FrontierQueue frontierQueue,
             VisitedRepository visitedRepository,
             int maxConcurrentRequests
+    ) {
+        this(pageFetcher, linkExtractor, crawlObserver, frontierQueue, visitedRepository,
+                PageHistoryRepository.none(), maxConcurrentRequests);
+    }
+
+    public WebCrawlerFactory(
+            PageFetcher pageFetcher,
+            LinkExtractor linkExtractor,
+            CrawlObserver crawlObserver,
+            FrontierQueue frontierQueue,
+            VisitedRepository visitedRepository,
+            PageHistoryRepository pageHistoryRepository,
+            int maxConcurrentRequests
     ) {
         this.pageFetcher = Objects.requireNonNull(pageFetcher);
         this.linkExtractor = Objects.requireNonNull(linkExtractor);
         this.crawlObserver = Objects.requireNonNull(crawlObserver);
         this.frontierQueue = Objects.requireNonNull(frontierQueue);
         this.visitedRepository = Objects.requireNonNull(visitedRepository);
+        this.pageHistoryRepository = Objects.requireNonNull(pageHistoryRepository);
         this.maxConcurrentRequests = maxConcurrentRequests;
     }
 
@@ -37,28 +53,49 @@ public class WebCrawlerFactory {
      * Creates a WebCrawler configured for the given start URI's domain
      */
     public WebCrawlerUseCase createForUri(URI startUri) {
+        CrawlStateService crawlStateService = createCrawlStateService(startUri);
+
+        return new WebCrawlerUseCase(
+                createPageProcessingService(crawlStateService),
+                crawlStateService,
+                maxConcurrentRequests
+        );
+    }
+
+    /**
+     * Creates a WebCrawler for the given start URI's domain that fetches asynchronously, with at most
+     * the max concurrent requests in flight
+     */
+    public AsyncWebCrawlerUseCase createAsyncForUri(URI startUri) {
+        CrawlStateService crawlStateService = createCrawlStateService(startUri);
+
+        return new AsyncWebCrawlerUseCase(
+                createPageProcessingService(crawlStateService),
+                crawlStateService,
+                maxConcurrentRequests
+        );
+    }
+
+    private CrawlStateService createCrawlStateService(URI startUri) {
         String domain = extractDomain(startUri);
 
         // Create domain services with the runtime domain
         UriProcessingService uriProcessingService = new UriProcessingService(domain);
 
-        CrawlStateService crawlStateService = new CrawlStateService(
+        return new CrawlStateService(
                 frontierQueue,
                 visitedRepository,
                 uriProcessingService
         );
+    }
 
-        PageProcessingService pageProcessingService = new PageProcessingService(
+    private PageProcessingService createPageProcessingService(CrawlStateService crawlStateService) {
+        return new PageProcessingService(
                 pageFetcher,
                 linkExtractor,
                 crawlObserver,
-                crawlStateService
-        );
-
-        return new WebCrawlerUseCase(
-                pageProcessingService,
                 crawlStateService,
-                maxConcurrentRequests
+                pageHistoryRepository
         );
     }
 
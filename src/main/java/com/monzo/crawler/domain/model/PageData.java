@@ -4,15 +4,22 @@ package com.monzo.crawler.domain.model;
  * A record to transport page data between the fetcher adapter and the core logic.
  * This decouples the core from HTTP-specific details like status codes.
  *
- * @param htmlContent The HTML content of the page. Null if fetch was not successful.
+ * @param htmlContent The HTML content of the page. Null unless the fetch succeeded or was truncated.
  * @param status      The outcome of the fetch operation.
+ * @param validators  What to send on the next fetch to ask whether the page changed.
  */
-public record PageData(String htmlContent, Status status) {
+public record PageData(String htmlContent, Status status, PageValidators validators) {
     public enum Status {
         SUCCESS,
         NOT_FOUND,
         CLIENT_ERROR, // Other 4xx errors
         SERVER_ERROR, // 5xx errors
         FETCH_ERROR,  // Network errors, timeouts, etc.
+        TRUNCATED,    // Body over the size limit; the content is only its first part
+        NOT_MODIFIED, // Unchanged since the fetch the validators came from; no content
+    }
+
+    public PageData(String htmlContent, Status status) {
+        this(htmlContent, status, PageValidators.NONE);
     }
 }
@@ -0,0 +1,19 @@
+package com.monzo.crawler.domain.model;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What a previous crawl learned about a page: how to ask whether it changed, and the links it held.
+ *
+ * @param validators Validators from the last full fetch of the page.
+ * @param links      All links found on the page at that time.
+ */
+public record PageHistory(PageValidators validators, Set<URI> links) {
+
+    public PageHistory {
+        Objects.requireNonNull(validators);
+        links = Set.copyOf(links);
+    }
+}
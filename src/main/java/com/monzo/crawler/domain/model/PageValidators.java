@@ -0,0 +1,17 @@
+package com.monzo.crawler.domain.model;
+
+/**
+ * Validators a server returned with a page, sent back on the next fetch so that an unchanged page can be answered
+ * without its body.
+ *
+ * @param etag         The ETag header, or null if there was none.
+ * @param lastModified The Last-Modified header, or null if there was none.
+ */
+public record PageValidators(String etag, String lastModified) {
+
+    public static final PageValidators NONE = new PageValidators(null, null);
+
+    public boolean isEmpty() {
+        return etag == null && lastModified == null;
+    }
+}
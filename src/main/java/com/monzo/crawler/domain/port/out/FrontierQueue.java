@@ -1,13 +1,86 @@
 package com.monzo.crawler.domain.port.out;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Port for managing the queue of URIs to be crawled.
  */
 public interface FrontierQueue {
+    /**
+     * Adds a URI to the back of the queue. Implementations may ignore URIs that are already
+     * waiting in the queue or have already been visited.
+     */
     void enqueue(URI uri);
+
+    /**
+     * Adds all given URIs to the back of the queue, preserving iteration order, with the same
+     * duplicate handling as {@link #enqueue(URI)}.
+     * Adapters should implement this as a bulk operation rather than one round trip per URI.
+     */
+    void enqueueAll(Collection<URI> uris);
+
     URI dequeue();
+
+    /**
+     * Removes the head of the queue, waiting up to the given timeout for a URI to become available.
+     *
+     * @param timeout How long to wait when the queue is empty. Zero or negative does not wait.
+     * @return The dequeued URI, or null if none arrived before the timeout.
+     */
+    URI dequeue(Duration timeout);
+
+    /**
+     * Removes up to {@code maxCount} URIs from the head of the queue and marks each one as visited,
+     * returning only the URIs that were not visited before. Does not wait when the queue is empty.
+     * URIs dropped because they were already visited are acknowledged.
+     * <p>
+     * The default implementation dequeues one URI at a time and marks the batch with
+     * {@link VisitedRepository#markVisitedAll(Collection)}; adapters that share storage with the visited
+     * repository should override it to claim the whole batch in a single operation.
+     *
+     * @param maxCount          The maximum number of URIs to remove from the queue.
+     * @param visitedRepository The repository in which claimed URIs are marked as visited.
+     * @return The newly claimed URIs in queue order, possibly empty.
+     */
+    default List<URI> claim(int maxCount, VisitedRepository visitedRepository) {
+        List<URI> dequeued = new ArrayList<>();
+        for (int i = 0; i < maxCount; i++) {
+            URI uri = dequeue();
+            if (uri == null) {
+                break;
+            }
+            dequeued.add(uri);
+        }
+        if (dequeued.isEmpty()) {
+            return dequeued;
+        }
+
+        Set<URI> marked = new HashSet<>(visitedRepository.markVisitedAll(dequeued));
+        List<URI> claimed = new ArrayList<>();
+        for (URI uri : dequeued) {
+            // remove, so a URI dequeued twice is only claimed once
+            if (marked.remove(uri)) {
+                claimed.add(uri);
+            } else {
+                acknowledge(uri);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Signals that a dequeued or claimed URI has been fully processed or dropped. Queues with at-least-once
+     * delivery hand unacknowledged URIs to another consumer after a while; the default does nothing.
+     */
+    default void acknowledge(URI uri) {
+    }
+
     boolean isEmpty();
 }
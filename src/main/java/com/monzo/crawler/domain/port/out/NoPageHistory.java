@@ -0,0 +1,25 @@
+package com.monzo.crawler.domain.port.out;
+
+import com.monzo.crawler.domain.model.PageHistory;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * The repository returned by {@link PageHistoryRepository#none()}.
+ */
+final class NoPageHistory implements PageHistoryRepository {
+
+    static final NoPageHistory INSTANCE = new NoPageHistory();
+
+    private NoPageHistory() {
+    }
+
+    @Override
+    public Optional<PageHistory> find(URI uri) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void save(URI uri, PageHistory history) {
+    }
+}
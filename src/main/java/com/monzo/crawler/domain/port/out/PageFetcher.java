@@ -1,7 +1,9 @@
 package com.monzo.crawler.domain.port.out;
 
 import com.monzo.crawler.domain.model.PageData;
+import com.monzo.crawler.domain.model.PageValidators;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 public interface PageFetcher {
     /**
@@ -11,5 +13,42 @@ public interface PageFetcher {
      * @return PageData containing the status and HTML content if successful.
      */
     PageData fetch(URI uri);
-}
 
+    /**
+     * Fetches the content of a given URI without blocking the caller.
+     * <p>
+     * The default runs {@link #fetch} on a new virtual thread; fetchers with a non-blocking client should override it
+     * so that no thread is held while the request is in flight.
+     *
+     * @param uri The URI of the page to fetch.
+     * @return A future of the same PageData {@link #fetch} would return.
+     */
+    default CompletableFuture<PageData> fetchAsync(URI uri) {
+        CompletableFuture<PageData> result = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                result.complete(fetch(uri));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Fetches a page only if it changed since the fetch that returned the given validators. An unchanged page
+     * comes back as {@link PageData.Status#NOT_MODIFIED}.
+     * <p>
+     * The default ignores the validators and fetches the page in full.
+     */
+    default PageData fetch(URI uri, PageValidators validators) {
+        return fetch(uri);
+    }
+
+    /**
+     * Asynchronous form of {@link #fetch(URI, PageValidators)}.
+     */
+    default CompletableFuture<PageData> fetchAsync(URI uri, PageValidators validators) {
+        return fetchAsync(uri);
+    }
+}
@@ -0,0 +1,23 @@
+package com.monzo.crawler.domain.port.out;
+
+import com.monzo.crawler.domain.model.PageHistory;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Port for what earlier crawls learned about each page, so that a recrawl can skip downloading and parsing
+ * pages that have not changed.
+ */
+public interface PageHistoryRepository {
+    Optional<PageHistory> find(URI uri);
+
+    void save(URI uri, PageHistory history);
+
+    /**
+     * A repository that remembers nothing, for crawls that always fetch pages in full. Always the same instance,
+     * so callers can tell it apart and skip looking pages up.
+     */
+    static PageHistoryRepository none() {
+        return NoPageHistory.INSTANCE;
+    }
+}
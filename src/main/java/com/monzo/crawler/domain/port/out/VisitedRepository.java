@@ -1,6 +1,9 @@
 package com.monzo.crawler.domain.port.out;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * Port for managing the set of URIs that have already been visited.
@@ -8,4 +11,36 @@ import java.net.URI;
 public interface VisitedRepository {
     boolean isVisited(URI uri);
     boolean markVisited(URI uri);
+
+    /**
+     * Returns the given URIs that have already been visited, in iteration order.
+     * <p>
+     * The default implementation checks one URI at a time; adapters backed by a remote store should override it
+     * to answer the whole collection in a single round trip.
+     */
+    default Set<URI> isVisitedAll(Collection<URI> uris) {
+        Set<URI> visited = new LinkedHashSet<>();
+        for (URI uri : uris) {
+            if (isVisited(uri)) {
+                visited.add(uri);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Marks all given URIs as visited and returns those that were not visited before, in iteration order.
+     * A URI appearing more than once is returned at most once.
+     * <p>
+     * As with {@link #isVisitedAll(Collection)}, adapters should override the per-URI default with a bulk operation.
+     */
+    default Set<URI> markVisitedAll(Collection<URI> uris) {
+        Set<URI> marked = new LinkedHashSet<>();
+        for (URI uri : uris) {
+            if (markVisited(uri)) {
+                marked.add(uri);
+            }
+        }
+        return marked;
+    }
 }
@@ -3,6 +3,9 @@ package com.monzo.crawler.domain.service;
 import com.monzo.crawler.domain.port.out.FrontierQueue;
 import com.monzo.crawler.domain.port.out.VisitedRepository;
 import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -39,12 +42,21 @@ public class CrawlStateService {
      * Processes a set of discovered links, filtering and adding valid ones to frontier
      */
     public Set<URI> processDiscoveredLinks(Set<URI> discoveredLinks) {
-        return discoveredLinks.stream()
+        Set<URI> candidates = discoveredLinks.stream()
                 .map(uriProcessingService::normalizeUri)
                 .filter(uriProcessingService::isValidForCrawling)
-                .filter(uri -> !visitedRepository.isVisited(uri))
-                .peek(frontierQueue::enqueue)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        // Check and enqueue the whole page in one bulk call each instead of one round trip per link
+        Set<URI> newLinks = new LinkedHashSet<>(candidates);
+        newLinks.removeAll(visitedRepository.isVisitedAll(candidates));
+        if (!newLinks.isEmpty()) {
+            frontierQueue.enqueueAll(newLinks);
+        }
+        return newLinks;
     }
 
     /**
@@ -54,6 +66,14 @@ public class CrawlStateService {
         return visitedRepository.markVisited(uri);
     }
 
+    /**
+     * Claims up to maxCount URIs from the frontier, marking them as visited.
+     * URIs that were already visited are dropped from the result.
+     */
+    public List<URI> claimNextUris(int maxCount) {
+        return frontierQueue.claim(maxCount, visitedRepository);
+    }
+
     /**
      * Gets the next URI to crawl from the frontier
      */
@@ -61,6 +81,20 @@ public class CrawlStateService {
         return frontierQueue.dequeue();
     }
 
+    /**
+     * Gets the next URI to crawl from the frontier, waiting up to the timeout for one to arrive
+     */
+    public URI getNextUri(Duration timeout) {
+        return frontierQueue.dequeue(timeout);
+    }
+
+    /**
+     * Tells the frontier that a URI it handed out has been processed and need not be redelivered
+     */
+    public void acknowledge(URI uri) {
+        frontierQueue.acknowledge(uri);
+    }
+
     /**
      * Checks if the crawl frontier is empty
      */
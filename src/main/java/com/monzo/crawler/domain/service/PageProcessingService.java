@@ -1,12 +1,18 @@
 package com.monzo.crawler.domain.service;
 
 import com.monzo.crawler.domain.model.PageData;
+import com.monzo.crawler.domain.model.PageHistory;
 import com.monzo.crawler.domain.port.out.CrawlObserver;
 import com.monzo.crawler.domain.port.out.LinkExtractor;
 import com.monzo.crawler.domain.port.out.PageFetcher;
+import com.monzo.crawler.domain.port.out.PageHistoryRepository;
 import java.net.URI;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,45 +24,121 @@ public class PageProcessingService {
     private final LinkExtractor linkExtractor;
     private final CrawlObserver crawlObserver;
     private final CrawlStateService crawlStateService;
+    private final PageHistoryRepository pageHistoryRepository;
 
     public PageProcessingService(
             PageFetcher pageFetcher,
             LinkExtractor linkExtractor,
             CrawlObserver crawlObserver,
             CrawlStateService crawlStateService
+    ) {
+        this(pageFetcher, linkExtractor, crawlObserver, crawlStateService, PageHistoryRepository.none());
+    }
+
+    /**
+     * @param pageHistoryRepository Validators and links of pages crawled before; pages found there are fetched
+     *                              conditionally, and an unchanged page's links are taken from it instead of
+     *                              parsing the page again.
+     */
+    public PageProcessingService(
+            PageFetcher pageFetcher,
+            LinkExtractor linkExtractor,
+            CrawlObserver crawlObserver,
+            CrawlStateService crawlStateService,
+            PageHistoryRepository pageHistoryRepository
     ) {
         this.pageFetcher = Objects.requireNonNull(pageFetcher);
         this.linkExtractor = Objects.requireNonNull(linkExtractor);
         this.crawlObserver = Objects.requireNonNull(crawlObserver);
         this.crawlStateService = Objects.requireNonNull(crawlStateService);
+        this.pageHistoryRepository = Objects.requireNonNull(pageHistoryRepository);
     }
 
     /**
-     * Processes a single page: fetches content, extracts links, and handles results
+     * Processes a single page: fetches content, extracts links, and handles results.
+     * The URI is acknowledged to the frontier once its links are enqueued, whatever the outcome.
      */
     public void processPage(URI uri) {
         logger.debug("Processing page: {}", uri);
 
         try {
-            PageData pageData = pageFetcher.fetch(uri);
+            Optional<PageHistory> history = pageHistoryRepository.find(uri);
+            PageData pageData = history.isPresent()
+                    ? pageFetcher.fetch(uri, history.get().validators())
+                    : pageFetcher.fetch(uri);
+            handleFetchedPage(uri, pageData, history);
+        } catch (Exception e) {
+            handleUnexpectedError(uri, e);
+        } finally {
+            crawlStateService.acknowledge(uri);
+        }
+    }
+
+    /**
+     * Asynchronous form of {@link #processPage}: no thread waits while the page downloads. Extracting and
+     * enqueueing its links runs on the given executor, as those steps parse HTML and call the crawl state, and so
+     * does looking up the page's history when there is a real history store.
+     *
+     * @return A future completed once the URI has been acknowledged; failures are reported to the observer, so it
+     * only completes exceptionally if acknowledging fails.
+     */
+    public CompletableFuture<Void> processPageAsync(URI uri, Executor executor) {
+        logger.debug("Processing page asynchronously: {}", uri);
 
-            if (pageData.status() == PageData.Status.SUCCESS) {
-                handleSuccessfulPage(uri, pageData);
-            } else {
-                handleFailedPage(uri, pageData);
+        // Without a history store there is nothing to look up, so don't spend a task on it
+        CompletableFuture<Optional<PageHistory>> history = pageHistoryRepository == PageHistoryRepository.none()
+                ? CompletableFuture.completedFuture(Optional.empty())
+                : CompletableFuture.supplyAsync(() -> pageHistoryRepository.find(uri), executor);
+        CompletableFuture<PageData> fetched = history.thenCompose(found -> found.isPresent()
+                ? pageFetcher.fetchAsync(uri, found.get().validators())
+                : pageFetcher.fetchAsync(uri));
+
+        return fetched.handleAsync((pageData, error) -> {
+            try {
+                if (error == null) {
+                    handleFetchedPage(uri, pageData, history.join());
+                } else {
+                    handleUnexpectedError(uri, error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error);
+                }
+            } catch (Exception e) {
+                handleUnexpectedError(uri, e);
+            } finally {
+                crawlStateService.acknowledge(uri);
             }
-        } catch (Exception e) {
-            logger.error("Unexpected error processing page: {}", uri, e);
-            crawlObserver.onCrawlFailed(uri, "UNEXPECTED_ERROR", e);
+            return null;
+        }, executor);
+    }
+
+    private void handleFetchedPage(URI uri, PageData pageData, Optional<PageHistory> history) {
+        // The start of a truncated page still holds valid links, usually the navigation
+        if (pageData.status() == PageData.Status.SUCCESS || pageData.status() == PageData.Status.TRUNCATED) {
+            handleSuccessfulPage(uri, pageData);
+        } else if (pageData.status() == PageData.Status.NOT_MODIFIED && history.isPresent()) {
+            handleUnchangedPage(uri, pageData, history.get());
+        } else {
+            handleFailedPage(uri, pageData);
         }
     }
 
+    private void handleUnexpectedError(URI uri, Throwable error) {
+        logger.error("Unexpected error processing page: {}", uri, error);
+        crawlObserver.onCrawlFailed(uri, "UNEXPECTED_ERROR", error);
+    }
+
     private void handleSuccessfulPage(URI uri, PageData pageData) {
         Set<URI> discoveredLinks = linkExtractor.extractLinks(pageData.htmlContent(), uri);
 
         // Process discovered links through crawl state service
         Set<URI> enqueuedLinks = crawlStateService.processDiscoveredLinks(discoveredLinks);
 
+        // Without validators the page can never come back unchanged, so its links are not worth keeping. Nor are a
+        // truncated page's, which would stand in for the whole page's links whenever it comes back unchanged
+        if (!pageData.validators().isEmpty() && pageData.status() != PageData.Status.TRUNCATED) {
+            pageHistoryRepository.save(uri, new PageHistory(pageData.validators(), discoveredLinks));
+        }
+
         // Notify observer with all discovered links (not just enqueued ones)
         crawlObserver.onPageCrawled(uri, discoveredLinks);
 
@@ -64,6 +146,20 @@ public class PageProcessingService {
                 uri, discoveredLinks.size(), enqueuedLinks.size());
     }
 
+    private void handleUnchangedPage(URI uri, PageData pageData, PageHistory history) {
+        Set<URI> links = history.links();
+        Set<URI> enqueuedLinks = crawlStateService.processDiscoveredLinks(links);
+
+        if (!pageData.validators().equals(history.validators())) {
+            pageHistoryRepository.save(uri, new PageHistory(pageData.validators(), links));
+        }
+
+        crawlObserver.onPageCrawled(uri, links);
+
+        logger.debug("Page {} unchanged. Reused {} links, enqueued {} new ones",
+                uri, links.size(), enqueuedLinks.size());
+    }
+
     private void handleFailedPage(URI uri, PageData pageData) {
         crawlObserver.onCrawlFailed(uri, pageData.status().toString(), null);
         logger.debug("Failed to process page: {} - Status: {}", uri, pageData.status());
@@ -0,0 +1,217 @@
+package com.monzo.crawler.infrastructure;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Space-saving URI encoding for large crawls.
+ * <p>
+ * The origin ({@code scheme://authority}) is replaced by a small id from a dictionary kept in Redis, so every
+ * crawler process decodes the same ids, and the rest of the URI is packed into 6-bit symbols. A single-host
+ * crawl therefore stores one byte for the origin and three bytes for every four characters of path and query.
+ * <p>
+ * Layout: varint of (origin id + 1), or 0 when the URI has no origin, followed by the packed remainder.
+ * Characters outside the 63-symbol alphabet are written as an escape symbol and their UTF-8 bytes.
+ */
+public class CompactUriCodec implements UriCodec {
+
+    private static final String ORIGIN_IDS = "uri-origin-ids";
+    private static final String ORIGINS = "uri-origins";
+
+    // Characters common in paths and queries; the missing 64th symbol is the escape
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789/-._~?=&%#+:,;ABCDEF!$'()*@";
+    private static final int ESCAPE = 63;
+    private static final int[] SYMBOLS = new int[128];
+
+    static {
+        Arrays.fill(SYMBOLS, ESCAPE);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            SYMBOLS[ALPHABET.charAt(i)] = i;
+        }
+    }
+
+    // Returns the id of origin ARGV[1], assigning the next free one if it has none yet
+    private static final RedisScript ORIGIN_ID_SCRIPT = new RedisScript("""
+            local id = redis.call('HGET', KEYS[1], ARGV[1])
+            if id then
+                return tonumber(id)
+            end
+            id = redis.call('HLEN', KEYS[1])
+            redis.call('HSET', KEYS[1], ARGV[1], id)
+            redis.call('HSET', KEYS[2], id, ARGV[1])
+            return id
+            """);
+
+    private static final byte[][] KEYS = {bytes(ORIGIN_IDS), bytes(ORIGINS)};
+
+    private final RedisCommands<byte[], byte[]> redis;
+    private final Map<String, Long> originIds = new ConcurrentHashMap<>();
+    private final Map<Long, String> origins = new ConcurrentHashMap<>();
+
+    public CompactUriCodec(RedisCommands<byte[], byte[]> redis) {
+        this.redis = Objects.requireNonNull(redis);
+    }
+
+    @Override
+    public byte[] encode(URI uri) {
+        String text = uri.toString();
+        String origin = originOf(uri);
+        if (origin == null || !text.startsWith(origin)) {
+            return pack(0, text);
+        }
+        long id = originIds.computeIfAbsent(origin, this::assignOriginId);
+        return pack(id + 1, text.substring(origin.length()));
+    }
+
+    @Override
+    public URI decode(byte[] bytes) {
+        int[] position = {0};
+        long prefix = readVarint(bytes, position);
+        String rest = unpack(bytes, position[0]);
+        if (prefix == 0) {
+            return URI.create(rest);
+        }
+        return URI.create(origins.computeIfAbsent(prefix - 1, this::lookupOrigin) + rest);
+    }
+
+    private static String originOf(URI uri) {
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return null;
+        }
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private long assignOriginId(String origin) {
+        Long id = ORIGIN_ID_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, bytes(origin));
+        origins.putIfAbsent(id, origin);
+        return id;
+    }
+
+    private String lookupOrigin(long id) {
+        byte[] origin = redis.hget(bytes(ORIGINS), bytes(String.valueOf(id)));
+        if (origin == null) {
+            throw new IllegalStateException("Unknown URI origin id " + id);
+        }
+        return new String(origin, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] pack(long prefix, String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length());
+        while (prefix >= 0x80) {
+            out.write((int) (prefix & 0x7F) | 0x80);
+            prefix >>>= 7;
+        }
+        out.write((int) prefix);
+
+        BitWriter bits = new BitWriter(out);
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            int symbol = codePoint < SYMBOLS.length ? SYMBOLS[codePoint] : ESCAPE;
+            if (symbol != ESCAPE) {
+                bits.write(symbol, 6);
+            } else {
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    bits.write(ESCAPE, 6);
+                    bits.write(b & 0xFF, 8);
+                }
+            }
+            i += Character.charCount(codePoint);
+        }
+        bits.flush();
+        return out.toByteArray();
+    }
+
+    private static String unpack(byte[] bytes, int offset) {
+        BitReader bits = new BitReader(bytes, offset);
+        ByteArrayOutputStream utf8 = new ByteArrayOutputStream(bytes.length * 2);
+        while (bits.remaining() >= 6) {
+            int symbol = bits.read(6);
+            if (symbol != ESCAPE) {
+                utf8.write(ALPHABET.charAt(symbol));
+            } else if (bits.remaining() >= 8) {
+                utf8.write(bits.read(8));
+            } else {
+                // Trailing one-bits pad the last byte and read as an incomplete escape
+                break;
+            }
+        }
+        return utf8.toString(StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class BitWriter {
+
+        private final ByteArrayOutputStream out;
+        private int buffer;
+        private int count;
+
+        BitWriter(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        void write(int value, int width) {
+            buffer = (buffer << width) | value;
+            count += width;
+            while (count >= 8) {
+                count -= 8;
+                out.write(buffer >>> count);
+                buffer &= (1 << count) - 1;
+            }
+        }
+
+        void flush() {
+            if (count > 0) {
+                int padding = 8 - count;
+                write((1 << padding) - 1, padding);
+            }
+        }
+    }
+
+    private static final class BitReader {
+
+        private final byte[] bytes;
+        private long position;
+        private final long limit;
+
+        BitReader(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.position = (long) offset * 8;
+            this.limit = (long) bytes.length * 8;
+        }
+
+        long remaining() {
+            return limit - position;
+        }
+
+        int read(int width) {
+            int value = 0;
+            for (int i = 0; i < width; i++, position++) {
+                int bit = (bytes[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+                value = (value << 1) | bit;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.monzo.crawler.infrastructure;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming decoder for a response's Content-Encoding. It is fed body buffers as they arrive and passes decoded bytes
+ * on in small chunks, so a compressed body is never held whole, and a consumer can stop a body that inflates to far
+ * more than it wants after one chunk.
+ * <p>
+ * Supports gzip and deflate, the encodings the fetcher asks for. Deflate should be zlib-wrapped, but some servers
+ * send raw deflate data, so both are accepted.
+ */
+abstract class ContentDecoder implements AutoCloseable {
+
+    // Decoded bytes handed to the sink at a time
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    // Stateless, so shared
+    static final ContentDecoder IDENTITY = new Identity();
+
+    /**
+     * A decoder for the given Content-Encoding. One the fetcher cannot decode fails on the first byte of the body.
+     */
+    static ContentDecoder forEncoding(String contentEncoding) {
+        return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "", "identity" -> IDENTITY;
+            case "gzip", "x-gzip" -> new Gzip();
+            case "deflate" -> new Deflate();
+            default -> new Unsupported(contentEncoding);
+        };
+    }
+
+    /**
+     * Decodes the next part of the body, passing decoded bytes to the sink, which consumes what it keeps.
+     *
+     * @return False if the sink returned false and decoding stopped.
+     */
+    abstract boolean decode(ByteBuffer encoded, Predicate<ByteBuffer> sink) throws IOException;
+
+    /**
+     * Checks that the body ended where its encoding says it should.
+     */
+    abstract void finish() throws IOException;
+
+    @Override
+    public void close() {
+    }
+
+    private static final class Identity extends ContentDecoder {
+
+        @Override
+        boolean decode(ByteBuffer encoded, Predicate<ByteBuffer> sink) {
+            return sink.test(encoded);
+        }
+
+        @Override
+        void finish() {
+        }
+    }
+
+    private static final class Unsupported extends ContentDecoder {
+
+        private final String contentEncoding;
+
+        private Unsupported(String contentEncoding) {
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        boolean decode(ByteBuffer encoded, Predicate<ByteBuffer> sink) throws IOException {
+            throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+        }
+
+        @Override
+        void finish() throws IOException {
+            throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+        }
+    }
+
+    private abstract static class Inflating extends ContentDecoder {
+
+        private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+        Inflater inflater;
+
+        boolean inflate(ByteBuffer encoded, Predicate<ByteBuffer> sink) throws IOException, DataFormatException {
+            inflater.setInput(encoded);
+            while (!inflater.finished()) {
+                chunk.clear();
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0) {
+                    if (inflater.needsInput() || inflater.finished()) {
+                        return true;
+                    }
+                    throw new IOException("Compressed body needs a preset dictionary");
+                }
+                chunk.flip();
+                if (!sink.test(chunk)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static final class Deflate extends Inflating {
+
+        @Override
+        boolean decode(ByteBuffer encoded, Predicate<ByteBuffer> sink) throws IOException {
+            boolean first = inflater == null;
+            int start = encoded.position();
+            if (first) {
+                inflater = new Inflater();
+            }
+            try {
+                return inflater.finished() || inflate(encoded, sink);
+            } catch (DataFormatException e) {
+                // A zlib header fails at once; if nothing came out yet, read the body again as raw deflate
+                if (!first || inflater.getBytesWritten() > 0) {
+                    throw new IOException("Invalid deflate body", e);
+                }
+                inflater.end();
+                inflater = new Inflater(true);
+                encoded.position(start);
+                try {
+                    return inflate(encoded, sink);
+                } catch (DataFormatException raw) {
+                    throw new IOException("Invalid deflate body", raw);
+                }
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (inflater == null || !inflater.finished()) {
+                throw new EOFException("Deflate body ended early");
+            }
+        }
+    }
+
+    /**
+     * Gzip member (RFC 1952): a header, raw deflate data, then the CRC-32 and length of the decoded data, which are
+     * checked once the body ends. Data after the first member is ignored.
+     */
+    private static final class Gzip extends Inflating {
+
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+        private static final int MAX_HEADER_BYTES = 4096;
+
+        private byte[] header = new byte[16];
+        private int headerSize;
+        private final byte[] trailer = new byte[8];
+        private int trailerSize;
+        private final CRC32 crc = new CRC32();
+        private long decodedSize;
+
+        @Override
+        boolean decode(ByteBuffer encoded, Predicate<ByteBuffer> sink) throws IOException {
+            if (inflater == null && !readHeader(encoded)) {
+                return true;
+            }
+            if (!inflater.finished()) {
+                try {
+                    boolean more = inflate(encoded, decoded -> {
+                        crc.update(decoded.duplicate());
+                        decodedSize += decoded.remaining();
+                        return sink.test(decoded);
+                    });
+                    if (!more) {
+                        return false;
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Invalid gzip body", e);
+                }
+            }
+            if (inflater.finished()) {
+                int length = Math.min(encoded.remaining(), trailer.length - trailerSize);
+                encoded.get(trailer, trailerSize, length);
+                trailerSize += length;
+                encoded.position(encoded.limit());
+            }
+            return true;
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (inflater == null || !inflater.finished() || trailerSize < trailer.length) {
+                throw new EOFException("Gzip body ended early");
+            }
+            ByteBuffer values = ByteBuffer.wrap(trailer).order(ByteOrder.LITTLE_ENDIAN);
+            if ((values.getInt() & 0xFFFFFFFFL) != crc.getValue()
+                    || (values.getInt() & 0xFFFFFFFFL) != (decodedSize & 0xFFFFFFFFL)) {
+                throw new IOException("Gzip body failed its checksum");
+            }
+        }
+
+        // Collects header bytes until the header is complete, then starts inflating
+        private boolean readHeader(ByteBuffer encoded) throws IOException {
+            while (encoded.hasRemaining()) {
+                if (headerSize == header.length) {
+                    if (headerSize == MAX_HEADER_BYTES) {
+                        throw new IOException("Gzip header is too long");
+                    }
+                    header = Arrays.copyOf(header, Math.min(MAX_HEADER_BYTES, headerSize * 2));
+                }
+                header[headerSize++] = encoded.get();
+                if (headerLength() == headerSize) {
+                    header = null;
+                    inflater = new Inflater(true);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Length of the header, or -1 while more of it is needed
+        private int headerLength() throws IOException {
+            if (headerSize >= 2 && ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B)) {
+                throw new IOException("Not in gzip format");
+            }
+            if (headerSize < 10) {
+                return -1;
+            }
+            if (header[2] != 8) {
+                throw new IOException("Unsupported gzip compression method: " + header[2]);
+            }
+            int flags = header[3] & 0xFF;
+            int length = 10;
+            if ((flags & FEXTRA) != 0) {
+                if (headerSize < length + 2) {
+                    return -1;
+                }
+                length += 2 + ((header[length] & 0xFF) | (header[length + 1] & 0xFF) << 8);
+            }
+            if ((flags & FNAME) != 0) {
+                length = skipZeroTerminated(length);
+            }
+            if (length >= 0 && (flags & FCOMMENT) != 0) {
+                length = skipZeroTerminated(length);
+            }
+            if (length >= 0 && (flags & FHCRC) != 0) {
+                length += 2;
+            }
+            return length >= 0 && length <= headerSize ? length : -1;
+        }
+
+        private int skipZeroTerminated(int from) {
+            for (int i = from; i < headerSize; i++) {
+                if (header[i] == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+    }
+}
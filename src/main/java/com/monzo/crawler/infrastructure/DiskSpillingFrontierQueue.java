@@ -0,0 +1,571 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * FIFO frontier whose size is bounded by disk rather than RAM.
+ * <p>
+ * Enqueued URIs are appended straight to memory-mapped segment files, and only a head buffer of the next URIs to
+ * hand out is held in memory, refilled from the oldest segment, so both sides do sequential I/O. At most the oldest
+ * and newest segments are mapped at any time. A segment file is deleted once everything in it has been consumed.
+ * <p>
+ * A queue made with the constructor lives in a fresh directory that {@link #close()} removes. One made with
+ * {@link #open(Path)} is durable: the directory is kept and reopened where it left off, so together with a
+ * {@link MappedVisitedRepository} a crawl resumes after a restart. Like that store's, writes land in the page cache
+ * as they happen and survive the process dying. A small state file records how far URIs have been handed out and
+ * how far all of those have been acknowledged. URIs in between were being crawled when the process stopped, and are
+ * already marked visited, so after a reopen {@link #claim} hands them out again anyway. A few of them may have
+ * finished after all and be crawled twice.
+ * <p>
+ * Duplicates are not filtered here; a URI that is queued twice is dropped when it is claimed the second time.
+ */
+public class DiskSpillingFrontierQueue implements FrontierQueue, AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 10_000;
+    private static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String STATE_FILE = "state";
+
+    private final Path directory;
+    private final boolean durable;
+    private final int bufferSize;
+    private final int segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Queue order is head, then segments oldest first
+    private final ArrayDeque<Entry> head = new ArrayDeque<>();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    // Durable only: segments read to the end but not yet acknowledged, and the URIs handed out but not acknowledged
+    private final ArrayDeque<Segment> readSegments = new ArrayDeque<>();
+    private final ArrayDeque<Entry> unacknowledged = new ArrayDeque<>();
+    private final Map<URI, ArrayDeque<Entry>> unacknowledgedByUri = new HashMap<>();
+    private final State state;
+    // URIs up to this position were handed out before the last restart
+    private final long recoveredUpTo;
+    private long nextSegmentId;
+
+    /**
+     * @param parentDirectory Directory in which a private segment directory is created.
+     */
+    public DiskSpillingFrontierQueue(Path parentDirectory) {
+        this(parentDirectory, DEFAULT_BUFFER_SIZE, DEFAULT_SEGMENT_BYTES);
+    }
+
+    @VisibleForTesting
+    DiskSpillingFrontierQueue(Path parentDirectory, int bufferSize, int segmentBytes) {
+        this(createTempDirectory(parentDirectory), false, bufferSize, segmentBytes);
+    }
+
+    private DiskSpillingFrontierQueue(Path directory, boolean durable, int bufferSize, int segmentBytes) {
+        if (bufferSize <= 0 || segmentBytes <= 0) {
+            throw new IllegalArgumentException("Buffer size and segment size must be positive");
+        }
+        this.directory = directory;
+        this.durable = durable;
+        this.bufferSize = bufferSize;
+        this.segmentBytes = segmentBytes;
+        if (!durable) {
+            this.state = null;
+            this.recoveredUpTo = -1;
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create frontier directory " + directory, e);
+        }
+        this.state = State.open(directory.resolve(STATE_FILE));
+        this.recoveredUpTo = state.delivered();
+        reopenSegments(segmentOf(state.consumed()), offsetOf(state.consumed()));
+    }
+
+    /**
+     * Opens the durable queue stored in {@code directory}, creating it if it doesn't exist.
+     */
+    public static DiskSpillingFrontierQueue open(Path directory) {
+        return open(directory, DEFAULT_BUFFER_SIZE, DEFAULT_SEGMENT_BYTES);
+    }
+
+    @VisibleForTesting
+    static DiskSpillingFrontierQueue open(Path directory, int bufferSize, int segmentBytes) {
+        return new DiskSpillingFrontierQueue(directory, true, bufferSize, segmentBytes);
+    }
+
+    @Override
+    public void enqueue(URI uri) {
+        lock.lock();
+        try {
+            add(uri);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (URI uri : uris) {
+                add(uri);
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public URI dequeue() {
+        lock.lock();
+        try {
+            return available() ? take() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public URI dequeue(Duration timeout) {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (!available()) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands out URIs that were handed out but not acknowledged before a restart first, even though they are
+     * already marked visited; see the class description.
+     */
+    @Override
+    public List<URI> claim(int maxCount, VisitedRepository visitedRepository) {
+        List<URI> recovered = new ArrayList<>();
+        lock.lock();
+        try {
+            while (recovered.size() < maxCount && available() && head.peek().recovered) {
+                recovered.add(take());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (recovered.isEmpty()) {
+            return FrontierQueue.super.claim(maxCount, visitedRepository);
+        }
+        // In case the visited store lost them, which it can on a machine crash
+        visitedRepository.markVisitedAll(recovered);
+        List<URI> claimed = new ArrayList<>(recovered);
+        claimed.addAll(FrontierQueue.super.claim(maxCount - recovered.size(), visitedRepository));
+        return claimed;
+    }
+
+    @Override
+    public void acknowledge(URI uri) {
+        if (!durable) {
+            return;
+        }
+        lock.lock();
+        try {
+            ArrayDeque<Entry> entries = unacknowledgedByUri.get(uri);
+            if (entries == null) {
+                return;
+            }
+            entries.poll().acknowledged = true;
+            if (entries.isEmpty()) {
+                unacknowledgedByUri.remove(uri);
+            }
+            long consumed = -1;
+            while (!unacknowledged.isEmpty() && unacknowledged.peek().acknowledged) {
+                consumed = unacknowledged.poll().end;
+            }
+            if (consumed >= 0) {
+                state.consumed(consumed);
+                while (!readSegments.isEmpty() && readSegments.peek().id < segmentOf(consumed)) {
+                    readSegments.poll().delete();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return !available();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Discards everything still queued and deletes the segment directory, or for a durable queue writes everything
+     * to disk and keeps it.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            head.clear();
+            if (durable) {
+                segments.forEach(Segment::force);
+                state.force();
+                segments.clear();
+                readSegments.clear();
+                return;
+            }
+            while (!segments.isEmpty()) {
+                segments.poll().delete();
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete frontier directory " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(URI uri) {
+        byte[] bytes = uri.toString().getBytes(StandardCharsets.UTF_8);
+        Segment segment = segments.peekLast();
+        if (segment == null || !segment.hasRoomFor(bytes.length)) {
+            if (segment != null && segments.size() > 1) {
+                // Written once its mapping is dropped; the page cache already holds it should the process die
+                if (durable) {
+                    segment.force();
+                }
+                segment.unmap();
+            }
+            long id = nextSegmentId++;
+            segment = Segment.create(id, segmentPath(id), Math.max(segmentBytes, Segment.recordLength(bytes.length)));
+            segments.add(segment);
+        }
+        segment.write(bytes);
+    }
+
+    private boolean available() {
+        if (head.isEmpty()) {
+            refillHead();
+        }
+        return !head.isEmpty();
+    }
+
+    private URI take() {
+        Entry entry = head.poll();
+        if (durable) {
+            if (entry.end > state.delivered()) {
+                state.delivered(entry.end);
+            }
+            unacknowledged.add(entry);
+            unacknowledgedByUri.computeIfAbsent(entry.uri, ignored -> new ArrayDeque<>()).add(entry);
+        }
+        return entry.uri;
+    }
+
+    private void refillHead() {
+        while (head.size() < bufferSize && !segments.isEmpty()) {
+            Segment segment = segments.peek();
+            while (head.size() < bufferSize && segment.hasUnread()) {
+                URI uri = URI.create(segment.read());
+                long end = positionOf(segment.id, segment.readPosition);
+                head.add(new Entry(uri, end, end <= recoveredUpTo));
+            }
+            // Keep appending to a segment the head has caught up with rather than starting a new one
+            if (segment.hasUnread() || segment == segments.peekLast() && segment.writable) {
+                return;
+            }
+            segments.poll();
+            if (durable) {
+                segment.unmap();
+                readSegments.add(segment);
+            } else {
+                segment.delete();
+            }
+        }
+    }
+
+    // Drops segments consumed before the restart and picks up reading where the consumed position points
+    private void reopenSegments(long consumedSegment, int consumedOffset) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list frontier directory " + directory, e);
+        }
+        nextSegmentId = consumedSegment + 1;
+        for (Path file : files) {
+            long id = Long.parseLong(file.getFileName().toString().substring(SEGMENT_PREFIX.length()));
+            Segment segment = Segment.reopen(id, file);
+            if (id < consumedSegment) {
+                segment.delete();
+                continue;
+            }
+            if (id == consumedSegment) {
+                segment.readPosition = consumedOffset;
+            }
+            segments.add(segment);
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+        if (!segments.isEmpty()) {
+            segments.peekLast().resumeWriting();
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(SEGMENT_PREFIX + "%012d".formatted(id));
+    }
+
+    private static Path createTempDirectory(Path parentDirectory) {
+        try {
+            Files.createDirectories(parentDirectory);
+            return Files.createTempDirectory(parentDirectory, "frontier-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create frontier directory in " + parentDirectory, e);
+        }
+    }
+
+    // A position is a segment id and a byte offset in one long, so it can be compared and stored in one write
+    private static long positionOf(long segmentId, int offset) {
+        return segmentId << 32 | offset;
+    }
+
+    private static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private static final class Entry {
+
+        private final URI uri;
+        private final long end;
+        private final boolean recovered;
+        private boolean acknowledged;
+
+        private Entry(URI uri, long end, boolean recovered) {
+            this.uri = uri;
+            this.end = end;
+            this.recovered = recovered;
+        }
+    }
+
+    /**
+     * Append-only file of length-prefixed UTF-8 URIs, ended by a zero length or the end of the file. The length is
+     * written after the URI, so a record only becomes visible, to readers and after a crash, once it is complete.
+     */
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final int capacity;
+        private MappedByteBuffer buffer;
+        private boolean writable;
+        private int writePosition;
+        private int readPosition;
+
+        private Segment(long id, Path path, int capacity) {
+            this.id = id;
+            this.path = path;
+            this.capacity = capacity;
+        }
+
+        static Segment create(long id, Path path, int capacity) {
+            Segment segment = new Segment(id, path, capacity);
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create frontier segment " + path, e);
+            }
+            segment.writable = true;
+            return segment;
+        }
+
+        // Unmapped and read-only until it reaches the head or is made the segment to append to
+        static Segment reopen(long id, Path path) {
+            try {
+                return new Segment(id, path, Math.toIntExact(Files.size(path)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open frontier segment " + path, e);
+            }
+        }
+
+        static int recordLength(int bytes) {
+            return Integer.BYTES + bytes;
+        }
+
+        boolean hasRoomFor(int bytes) {
+            return writable && writePosition + recordLength(bytes) <= capacity;
+        }
+
+        void write(byte[] bytes) {
+            int next = writePosition + recordLength(bytes.length);
+            buffer.put(writePosition + Integer.BYTES, bytes);
+            // Bytes of a record cut short by a crash may lie past this one, so end the data explicitly
+            if (next + Integer.BYTES <= capacity) {
+                buffer.putInt(next, 0);
+            }
+            buffer.putInt(writePosition, bytes.length);
+            writePosition = next;
+        }
+
+        boolean hasUnread() {
+            if (readPosition + Integer.BYTES > capacity) {
+                return false;
+            }
+            if (buffer == null) {
+                map(FileChannel.MapMode.READ_ONLY);
+            }
+            return buffer.getInt(readPosition) > 0;
+        }
+
+        String read() {
+            int length = buffer.getInt(readPosition);
+            byte[] bytes = new byte[length];
+            buffer.get(readPosition + Integer.BYTES, bytes);
+            readPosition += recordLength(length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Maps the newest segment of a reopened queue for writing, after the last complete record.
+         */
+        void resumeWriting() {
+            map(FileChannel.MapMode.READ_WRITE);
+            writePosition = 0;
+            while (writePosition + Integer.BYTES <= capacity && buffer.getInt(writePosition) > 0) {
+                writePosition += recordLength(buffer.getInt(writePosition));
+            }
+            writable = true;
+        }
+
+        /**
+         * Drops the mapping of a segment in the middle of the queue; it is remapped read-only when it reaches the head.
+         */
+        void unmap() {
+            buffer = null;
+            writable = false;
+        }
+
+        void force() {
+            if (buffer != null && writable) {
+                buffer.force();
+            }
+        }
+
+        void delete() {
+            buffer = null;
+            try {
+                // The mapping itself is released once the buffer is garbage collected
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete frontier segment " + path, e);
+            }
+        }
+
+        private void map(FileChannel.MapMode mode) {
+            try (FileChannel channel = mode == FileChannel.MapMode.READ_ONLY
+                    ? FileChannel.open(path, StandardOpenOption.READ)
+                    : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(mode, 0, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map frontier segment " + path, e);
+            }
+        }
+    }
+
+    /**
+     * The consumed and delivered positions, each one long in a small mapped file.
+     */
+    private static final class State {
+
+        private static final int CONSUMED_OFFSET = 0;
+        private static final int DELIVERED_OFFSET = 8;
+        private static final int BYTES = 16;
+
+        private final MappedByteBuffer buffer;
+
+        private State(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        static State open(Path path) {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Mapping past the end zero-fills a new file, so both positions start at the first segment
+                return new State(channel.map(FileChannel.MapMode.READ_WRITE, 0, BYTES));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open frontier state " + path, e);
+            }
+        }
+
+        long consumed() {
+            return buffer.getLong(CONSUMED_OFFSET);
+        }
+
+        void consumed(long position) {
+            buffer.putLong(CONSUMED_OFFSET, position);
+        }
+
+        long delivered() {
+            return buffer.getLong(DELIVERED_OFFSET);
+        }
+
+        void delivered(long position) {
+            buffer.putLong(DELIVERED_OFFSET, position);
+        }
+
+        void force() {
+            buffer.force();
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.monzo.crawler.infrastructure;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.monzo.crawler.domain.model.PageData;
+import com.monzo.crawler.domain.model.PageValidators;
 import com.monzo.crawler.domain.port.out.PageFetcher;
 import com.monzo.crawler.infrastructure.config.ConfigurationLoader;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +22,10 @@ public class HttpClientPageFetcher implements PageFetcher {
     private final HttpClient httpClient;
     private final String userAgent;
     private final Duration requestTimeout;
+    private final int maxBodyBytes;
+    private final HttpResponse.BodyHandler<SizeCappedBodySubscriber.Body> bodyHandler;
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
 
     public HttpClientPageFetcher(Duration timeout) {
         this(timeout, new ConfigurationLoader());
@@ -27,6 +35,8 @@ public class HttpClientPageFetcher implements PageFetcher {
     HttpClientPageFetcher(Duration timeout, ConfigurationLoader config) {
         this.requestTimeout = timeout;
         this.userAgent = config.getUserAgent();
+        this.maxBodyBytes = config.getMaxBodyBytes();
+        this.bodyHandler = this::subscribeToBody;
         this.httpClient = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_2)
                 .followRedirects(HttpClient.Redirect.NORMAL)
@@ -36,43 +46,133 @@ public class HttpClientPageFetcher implements PageFetcher {
 
     @Override
     public PageData fetch(URI uri) {
+        return fetch(uri, PageValidators.NONE);
+    }
+
+    /**
+     * Sends the validators as If-None-Match and If-Modified-Since, so the server can answer 304 Not Modified
+     * without a body.
+     */
+    @Override
+    public PageData fetch(URI uri, PageValidators validators) {
         if (!isHttpOrHttps(uri)) {
             return new PageData(null, PageData.Status.CLIENT_ERROR);
         }
 
-        HttpRequest request = createRequest(uri);
+        HttpRequest request = createRequest(uri, validators);
 
         try {
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return handleResponse(response);
+            HttpResponse<SizeCappedBodySubscriber.Body> response = httpClient.send(request, bodyHandler);
+            return handleResponse(response, validators);
         } catch (Exception e) {
             logger.error("Error fetching URI {}: {}", uri, e.getMessage());
             return new PageData(null, PageData.Status.FETCH_ERROR);
         }
     }
 
+    /**
+     * Sends the request with {@link HttpClient#sendAsync}, so no thread waits on the response; the result is
+     * completed on the client's own executor.
+     */
+    @Override
+    public CompletableFuture<PageData> fetchAsync(URI uri) {
+        return fetchAsync(uri, PageValidators.NONE);
+    }
+
+    @Override
+    public CompletableFuture<PageData> fetchAsync(URI uri, PageValidators validators) {
+        if (!isHttpOrHttps(uri)) {
+            return CompletableFuture.completedFuture(new PageData(null, PageData.Status.CLIENT_ERROR));
+        }
+
+        return httpClient.sendAsync(createRequest(uri, validators), bodyHandler)
+                .thenApply(response -> handleResponse(response, validators))
+                .exceptionally(e -> {
+                    logger.error("Error fetching URI {}: {}", uri, e.getMessage());
+                    return new PageData(null, PageData.Status.FETCH_ERROR);
+                });
+    }
+
+    /**
+     * Body bytes downloaded so far, as sent over the network.
+     */
+    public long wireBytes() {
+        return wireBytes.sum();
+    }
+
+    /**
+     * Body bytes downloaded so far after decompression; compared with {@link #wireBytes()} this shows
+     * what compression saved.
+     */
+    public long decodedBytes() {
+        return decodedBytes.sum();
+    }
+
     private boolean isHttpOrHttps(URI uri) {
         String scheme = uri.getScheme();
         return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
     }
 
-    private HttpRequest createRequest(URI uri) {
-        return HttpRequest.newBuilder()
+    private HttpRequest createRequest(URI uri, PageValidators validators) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(uri)
                 .timeout(requestTimeout)
                 .header("User-Agent", userAgent)
-                .GET()
-                .build();
+                // The client does not decompress; SizeCappedBodySubscriber does, as the body streams in
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (validators.etag() != null) {
+            request.header("If-None-Match", validators.etag());
+        }
+        if (validators.lastModified() != null) {
+            request.header("If-Modified-Since", validators.lastModified());
+        }
+        return request.build();
+    }
+
+    /**
+     * Decides from the status and headers whether the body is worth downloading, so that error pages and non-HTML
+     * resources such as PDFs or videos are not fetched only to be thrown away.
+     */
+    private HttpResponse.BodySubscriber<SizeCappedBodySubscriber.Body> subscribeToBody(
+            HttpResponse.ResponseInfo responseInfo) {
+        return isSuccess(responseInfo.statusCode()) && isHtml(responseInfo.headers())
+                ? SizeCappedBodySubscriber.reading(maxBodyBytes, responseInfo)
+                : SizeCappedBodySubscriber.skipping(responseInfo);
+    }
+
+    private static boolean isSuccess(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    private static boolean isHtml(HttpHeaders headers) {
+        return headers.firstValue("Content-Type").orElse("").toLowerCase().contains("text/html");
     }
 
-    private PageData handleResponse(HttpResponse<String> response) {
+    private PageData handleResponse(HttpResponse<SizeCappedBodySubscriber.Body> response, PageValidators sent) {
+        SizeCappedBodySubscriber.Body body = response.body();
+        body.discardRest().run();
+        wireBytes.add(body.wireBytes());
+        decodedBytes.add(body.decodedBytes());
         int statusCode = response.statusCode();
-        String contentType = response.headers().firstValue("Content-Type").orElse("").toLowerCase();
 
-        if (statusCode >= 200 && statusCode < 300) {
-            return contentType.contains("text/html")
-                    ? new PageData(response.body(), PageData.Status.SUCCESS)
-                    : new PageData(null, PageData.Status.CLIENT_ERROR);
+        if (isSuccess(statusCode)) {
+            if (!isHtml(response.headers())) {
+                return new PageData(null, PageData.Status.CLIENT_ERROR);
+            }
+            if (body.truncated()) {
+                logger.warn("Body of {} is larger than {} bytes; keeping only its start", response.uri(), maxBodyBytes);
+                return new PageData(body.text(), PageData.Status.TRUNCATED, validatorsOf(response.headers()));
+            }
+            return new PageData(body.text(), PageData.Status.SUCCESS, validatorsOf(response.headers()));
+        }
+
+        if (statusCode == 304) {
+            // A 304 may carry updated validators; any it leaves out still hold
+            PageValidators received = validatorsOf(response.headers());
+            return new PageData(null, PageData.Status.NOT_MODIFIED, new PageValidators(
+                    received.etag() != null ? received.etag() : sent.etag(),
+                    received.lastModified() != null ? received.lastModified() : sent.lastModified()));
         }
 
         if (statusCode == 404) {
@@ -83,4 +183,10 @@ public class HttpClientPageFetcher implements PageFetcher {
                 ? new PageData(null, PageData.Status.CLIENT_ERROR)
                 : new PageData(null, PageData.Status.SERVER_ERROR);
     }
+
+    private static PageValidators validatorsOf(HttpHeaders headers) {
+        return new PageValidators(
+                headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null));
+    }
 }
@@ -0,0 +1,168 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process frontier for single-node crawls that do not need Redis.
+ * <p>
+ * URIs are held in a lock-free bounded multi-producer/multi-consumer ring, where each slot carries a sequence
+ * number that tells producers and consumers whether it is free or filled for their lap. When the ring is full,
+ * further URIs spill into an unbounded overflow queue, so nothing is ever rejected. Until the overflow has drained,
+ * every new URI joins it rather than a slot the consumers free up, so no URI overtakes one already waiting in the
+ * overflow. Consumers empty the ring, which only holds older URIs, before the overflow. Order is therefore FIFO for
+ * each producer, and only URIs enqueued concurrently may come out in either order.
+ * <p>
+ * A semaphore counts the URIs that are available so that {@link #dequeue(Duration)} can park instead of spin.
+ * Duplicates are not filtered here; a URI that is queued twice is dropped when it is claimed the second time.
+ */
+public class InMemoryFrontierQueue implements FrontierQueue {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final int mask;
+    private final AtomicReferenceArray<URI> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final Queue<URI> overflow = new ConcurrentLinkedQueue<>();
+    private final Semaphore available = new Semaphore(0);
+
+    public InMemoryFrontierQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Size of the ring; must be a power of two.
+     */
+    @VisibleForTesting
+    InMemoryFrontierQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public void enqueue(URI uri) {
+        add(uri);
+        available.release();
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        for (URI uri : uris) {
+            add(uri);
+        }
+        available.release(uris.size());
+    }
+
+    @Override
+    public URI dequeue() {
+        return available.tryAcquire() ? take() : null;
+    }
+
+    @Override
+    public URI dequeue(Duration timeout) {
+        if (timeout.isZero() || timeout.isNegative()) {
+            return dequeue();
+        }
+        try {
+            return available.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS) ? take() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return available.availablePermits() == 0;
+    }
+
+    private void add(URI uri) {
+        if (!overflow.isEmpty() || !offer(uri)) {
+            overflow.add(uri);
+        }
+    }
+
+    /**
+     * Removes a URI the caller holds a permit for. A producer may have claimed an earlier ring slot and not yet
+     * filled it, so the permitted URI can take a moment to become visible.
+     */
+    private URI take() {
+        while (true) {
+            URI uri = poll();
+            if (uri == null) {
+                uri = overflow.poll();
+            }
+            if (uri != null) {
+                return uri;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private boolean offer(URI uri) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                long witnessed = tail.compareAndExchange(position, position + 1);
+                if (witnessed == position) {
+                    slots.set(index, uri);
+                    // Publishing the sequence hands the slot to the consumer of this lap
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = witnessed;
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private URI poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                long witnessed = head.compareAndExchange(position, position + 1);
+                if (witnessed == position) {
+                    URI uri = slots.get(index);
+                    slots.set(index, null);
+                    // Free the slot for the producer of the next lap
+                    sequences.set(index, position + mask + 1);
+                    return uri;
+                }
+                position = witnessed;
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+}
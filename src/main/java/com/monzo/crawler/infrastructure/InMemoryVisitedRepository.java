@@ -0,0 +1,117 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.net.URI;
+
+/**
+ * In-process visited set for single-node crawls that do not need Redis.
+ * <p>
+ * Stores 64-bit URI fingerprints rather than strings: eight bytes per URI in open-addressed {@code long[]}
+ * tables. The fingerprint space is split into independently locked segments so that concurrent crawl tasks
+ * rarely contend, and each segment grows on its own.
+ */
+public class InMemoryVisitedRepository implements VisitedRepository {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+
+    private final LongSet[] segments = new LongSet[1 << SEGMENT_BITS];
+
+    public InMemoryVisitedRepository() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new LongSet(INITIAL_SEGMENT_CAPACITY);
+        }
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        long fingerprint = UriFingerprint.of(uri);
+        return segmentFor(fingerprint).contains(fingerprint);
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        long fingerprint = UriFingerprint.of(uri);
+        return segmentFor(fingerprint).add(fingerprint);
+    }
+
+    public long size() {
+        long size = 0;
+        for (LongSet segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private LongSet segmentFor(long fingerprint) {
+        // Top bits pick the segment, low bits pick the slot, so the two stay independent
+        return segments[(int) (fingerprint >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    /**
+     * Linear-probing set of longs. Zero marks an empty slot, so a zero fingerprint is tracked separately.
+     */
+    private static final class LongSet {
+
+        private long[] table;
+        private int size;
+        private boolean containsZero;
+
+        LongSet(int capacity) {
+            this.table = new long[capacity];
+        }
+
+        synchronized boolean contains(long value) {
+            if (value == 0) {
+                return containsZero;
+            }
+            int mask = table.length - 1;
+            for (int i = (int) value & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized boolean add(long value) {
+            if (value == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            if (!insert(table, value)) {
+                return false;
+            }
+            size++;
+            // Resize at 50% load to keep probe sequences short
+            if (size * 2 > table.length) {
+                long[] grown = new long[table.length * 2];
+                for (long existing : table) {
+                    if (existing != 0) {
+                        insert(grown, existing);
+                    }
+                }
+                table = grown;
+            }
+            return true;
+        }
+
+        synchronized int size() {
+            return size + (containsZero ? 1 : 0);
+        }
+
+        private static boolean insert(long[] table, long value) {
+            int mask = table.length - 1;
+            int i = (int) value & mask;
+            while (table[i] != 0) {
+                if (table[i] == value) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = value;
+            return true;
+        }
+    }
+}
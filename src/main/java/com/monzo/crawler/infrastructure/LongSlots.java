@@ -0,0 +1,59 @@
+package com.monzo.crawler.infrastructure;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Linear probing over a power-of-two table of raw longs in a {@link MemorySegment}, where zero marks an empty slot.
+ * Slots only ever go from empty to a value, so lookups need no lock against inserts and inserts claim slots with
+ * a compare-and-set; callers only need to keep the table from being replaced or freed underneath them.
+ */
+final class LongSlots {
+
+    private static final VarHandle SLOT = ValueLayout.JAVA_LONG.arrayElementVarHandle();
+
+    private LongSlots() {
+    }
+
+    static long get(MemorySegment table, long index) {
+        return (long) SLOT.get(table, index);
+    }
+
+    /**
+     * @param value Any value except zero.
+     */
+    static boolean contains(MemorySegment table, long mask, long value) {
+        for (long i = value & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long slot = (long) SLOT.getAcquire(table, i);
+            if (slot == value) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value Any value except zero.
+     * @return true if the value was not in the table before.
+     */
+    static boolean insert(MemorySegment table, long mask, long value) {
+        for (long i = value & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long slot = (long) SLOT.getAcquire(table, i);
+            if (slot == 0) {
+                if (SLOT.compareAndSet(table, i, 0L, value)) {
+                    return true;
+                }
+                // Lost the slot to a concurrent insert, which may have been the same value
+                slot = (long) SLOT.getAcquire(table, i);
+            }
+            if (slot == value) {
+                return false;
+            }
+        }
+        throw new IllegalStateException("Fingerprint table is full");
+    }
+}
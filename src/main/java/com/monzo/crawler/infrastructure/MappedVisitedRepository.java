@@ -0,0 +1,308 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Visited set that survives restarts: URI fingerprints in an open-addressed table inside a memory-mapped file.
+ * <p>
+ * The file is a 64-byte header followed by the table itself, so reopening it is a matter of mapping it again and
+ * the first lookup can run straight away. The header holds the capacity, the entry count and a CRC32C of the header
+ * fields. It also records whether the file was closed cleanly. After a crash the entry count can be stale, so it is
+ * recounted from the table, which is one sequential pass and still no re-crawl.
+ * <p>
+ * Writes land in the page cache as they happen and survive the process dying. A background checkpoint forces
+ * them and the header to disk at a fixed interval, which bounds what a machine crash can lose to that interval.
+ * Slots only ever go from empty to a fingerprint, so a lost write at worst means a URI is crawled once more.
+ * <p>
+ * Lookups and inserts share one lock and claim slots with a compare-and-set. A table past 75% load is rehashed
+ * into a new file twice the size, under the exclusive lock, which then atomically replaces the old one.
+ */
+public final class MappedVisitedRepository implements VisitedRepository, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedVisitedRepository.class);
+
+    // "CRWLVIS1"
+    private static final long MAGIC = 0x4352574C56495331L;
+    private static final int VERSION = 1;
+    private static final int CLEAN = 0;
+    private static final int DIRTY = 1;
+
+    private static final long MAGIC_OFFSET = 0;
+    private static final long VERSION_OFFSET = 8;
+    private static final long STATE_OFFSET = 12;
+    private static final long CAPACITY_OFFSET = 16;
+    private static final long SIZE_OFFSET = 24;
+    private static final long FLAGS_OFFSET = 32;
+    private static final long CHECKSUM_OFFSET = 40;
+    static final long HEADER_BYTES = 64;
+
+    // Zero marks an empty slot, so a zero fingerprint is recorded as a header flag instead
+    private static final long FLAG_CONTAINS_ZERO = 1;
+    private static final long MIN_CAPACITY = 1024;
+
+    private final Path path;
+    private final StampedLock lock = new StampedLock();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicBoolean containsZero = new AtomicBoolean();
+    private final ScheduledExecutorService checkpointer;
+
+    // Replaced only under the write lock and read only under a read lock
+    private Arena arena;
+    private MemorySegment file;
+    private MemorySegment table;
+    private long mask;
+
+    /**
+     * Opens the visited set stored at {@code path}, creating it if it doesn't exist.
+     *
+     * @param expectedUrls       Sizes a new file so that this many URIs fit without a resize; ignored when reopening.
+     * @param checkpointInterval How often to force writes to disk.
+     */
+    public MappedVisitedRepository(Path path, long expectedUrls, Duration checkpointInterval) {
+        this.path = Objects.requireNonNull(path, "path must not be null");
+        Objects.requireNonNull(checkpointInterval, "checkpointInterval must not be null");
+        if (Files.exists(path)) {
+            open();
+        } else {
+            create(path, capacityFor(expectedUrls));
+            map(path);
+        }
+        // Stays dirty until close, so a crash in between is noticed on the next open
+        writeHeader(DIRTY);
+
+        long intervalMillis = checkpointInterval.toMillis();
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "visited-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpointQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        long fingerprint = UriFingerprint.of(uri);
+        if (fingerprint == 0) {
+            return containsZero.get();
+        }
+        long stamp = lock.readLock();
+        try {
+            return LongSlots.contains(table, mask, fingerprint);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        long fingerprint = UriFingerprint.of(uri);
+        if (fingerprint == 0) {
+            return containsZero.compareAndSet(false, true);
+        }
+        long stamp = lock.readLock();
+        boolean added;
+        try {
+            added = LongSlots.insert(table, mask, fingerprint);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (added && overloaded(size.incrementAndGet())) {
+            grow();
+        }
+        return added;
+    }
+
+    public long size() {
+        return size.get() + (containsZero.get() ? 1 : 0);
+    }
+
+    /**
+     * Forces all writes so far to disk along with an up-to-date header.
+     */
+    public void checkpoint() {
+        long stamp = lock.readLock();
+        try {
+            table.force();
+            writeHeader(DIRTY);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stops checkpointing, writes everything to disk, marks the file clean and unmaps it.
+     */
+    @Override
+    public void close() {
+        checkpointer.shutdownNow();
+        long stamp = lock.writeLock();
+        try {
+            table.force();
+            writeHeader(CLEAN);
+            arena.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    static long capacityFor(long expectedUrls) {
+        long needed = Math.max(MIN_CAPACITY, expectedUrls * 4 / 3 + 1);
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private boolean overloaded(long entries) {
+        return entries * 4 > (mask + 1) * 3;
+    }
+
+    private void open() {
+        if (fileSize(path) < HEADER_BYTES) {
+            throw new IllegalStateException("Not a visited store: " + path);
+        }
+        map(path);
+        if (file.get(ValueLayout.JAVA_LONG, MAGIC_OFFSET) != MAGIC
+                || file.get(ValueLayout.JAVA_INT, VERSION_OFFSET) != VERSION) {
+            arena.close();
+            throw new IllegalStateException("Not a visited store: " + path);
+        }
+        long capacity = file.get(ValueLayout.JAVA_LONG, CAPACITY_OFFSET);
+        if (file.get(ValueLayout.JAVA_LONG, CHECKSUM_OFFSET) != headerChecksum(file)
+                || file.byteSize() != HEADER_BYTES + capacity * Long.BYTES) {
+            arena.close();
+            throw new IllegalStateException("Corrupt visited store header: " + path);
+        }
+
+        containsZero.set((file.get(ValueLayout.JAVA_LONG, FLAGS_OFFSET) & FLAG_CONTAINS_ZERO) != 0);
+        if (file.get(ValueLayout.JAVA_INT, STATE_OFFSET) == CLEAN) {
+            size.set(file.get(ValueLayout.JAVA_LONG, SIZE_OFFSET));
+        } else {
+            logger.warn("Visited store {} was not closed cleanly, recounting entries", path);
+            size.set(countEntries(table, capacity));
+        }
+        logger.info("Reopened visited store {} with {} URIs", path, size());
+    }
+
+    private void grow() {
+        long stamp = lock.writeLock();
+        try {
+            // Several inserts can cross the threshold together; only the first one to get here resizes
+            if (!overloaded(size.get())) {
+                return;
+            }
+            long oldCapacity = mask + 1;
+            Path resized = path.resolveSibling(path.getFileName() + ".resize");
+            create(resized, oldCapacity * 2);
+
+            Arena oldArena = arena;
+            MemorySegment oldTable = table;
+            map(resized);
+            for (long i = 0; i < oldCapacity; i++) {
+                long slot = LongSlots.get(oldTable, i);
+                if (slot != 0) {
+                    LongSlots.insert(table, mask, slot);
+                }
+            }
+            table.force();
+            writeHeader(DIRTY);
+            Files.move(resized, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            oldArena.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not grow visited store " + path, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Synchronized so that a checkpoint and an explicit call can't interleave fields and checksum
+    private synchronized void writeHeader(int state) {
+        file.set(ValueLayout.JAVA_LONG, MAGIC_OFFSET, MAGIC);
+        file.set(ValueLayout.JAVA_INT, VERSION_OFFSET, VERSION);
+        file.set(ValueLayout.JAVA_INT, STATE_OFFSET, state);
+        file.set(ValueLayout.JAVA_LONG, CAPACITY_OFFSET, mask + 1);
+        file.set(ValueLayout.JAVA_LONG, SIZE_OFFSET, size.get());
+        file.set(ValueLayout.JAVA_LONG, FLAGS_OFFSET, containsZero.get() ? FLAG_CONTAINS_ZERO : 0);
+        file.set(ValueLayout.JAVA_LONG, CHECKSUM_OFFSET, headerChecksum(file));
+        file.asSlice(0, HEADER_BYTES).force();
+    }
+
+    private void map(Path source) {
+        Arena mapping = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed, until the arena is
+            file = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size(), mapping);
+        } catch (IOException e) {
+            mapping.close();
+            throw new UncheckedIOException("Could not map visited store " + source, e);
+        }
+        arena = mapping;
+        long capacity = (file.byteSize() - HEADER_BYTES) / Long.BYTES;
+        table = file.asSlice(HEADER_BYTES, capacity * Long.BYTES);
+        mask = capacity - 1;
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            logger.warn("Visited store checkpoint failed", e);
+        }
+    }
+
+    private static void create(Path target, long capacity) {
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Extending the file zero-fills it, so every slot starts out empty
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + capacity * Long.BYTES - 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create visited store " + target, e);
+        }
+    }
+
+    private static long fileSize(Path source) {
+        try {
+            return Files.size(source);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read visited store " + source, e);
+        }
+    }
+
+    private static long countEntries(MemorySegment table, long capacity) {
+        long count = 0;
+        for (long i = 0; i < capacity; i++) {
+            if (LongSlots.get(table, i) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long headerChecksum(MemorySegment header) {
+        CRC32C crc = new CRC32C();
+        // Copied out because CRC32C can't read buffers of a shared arena directly
+        crc.update(header.asSlice(0, CHECKSUM_OFFSET).toArray(ValueLayout.JAVA_BYTE));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,119 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Decorator that remembers recently seen visited URIs locally, so the header and footer links every page repeats
+ * are answered without a round trip.
+ * <p>
+ * A URI never stops being visited, so only positive answers are cached and a cached answer can never be stale.
+ * Where visited URIs do expire, cached answers are given a matching lifetime instead.
+ * Unvisited URIs always go to the delegate. The cache is a bounded, segmented LRU keyed by {@link UriFingerprint},
+ * so it holds no URI objects.
+ */
+public class NearCachedVisitedRepository implements VisitedRepository {
+
+    private final VisitedRepository delegate;
+    private final Cache<Long, Boolean> knownVisited;
+
+    public NearCachedVisitedRepository(VisitedRepository delegate, long maximumSize) {
+        this(delegate, CacheBuilder.newBuilder().maximumSize(maximumSize));
+    }
+
+    /**
+     * For delegates where visited URIs expire: a cached answer is kept for at most {@code expireAfterWrite}, which
+     * bounds how long after expiring a URI can still look visited here.
+     */
+    public NearCachedVisitedRepository(VisitedRepository delegate, long maximumSize, Duration expireAfterWrite) {
+        this(delegate, CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite));
+    }
+
+    private NearCachedVisitedRepository(VisitedRepository delegate, CacheBuilder<Object, Object> cacheBuilder) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.knownVisited = cacheBuilder.recordStats().build();
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        long fingerprint = UriFingerprint.of(uri);
+        if (knownVisited.getIfPresent(fingerprint) != null) {
+            return true;
+        }
+        boolean visited = delegate.isVisited(uri);
+        if (visited) {
+            knownVisited.put(fingerprint, Boolean.TRUE);
+        }
+        return visited;
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        // Either this call marked it or someone else already had; both mean it is visited now
+        boolean marked = delegate.markVisited(uri);
+        knownVisited.put(UriFingerprint.of(uri), Boolean.TRUE);
+        return marked;
+    }
+
+    @Override
+    public Set<URI> isVisitedAll(Collection<URI> uris) {
+        Set<URI> visited = new LinkedHashSet<>();
+        List<URI> unknown = new ArrayList<>();
+        for (URI uri : uris) {
+            if (knownVisited.getIfPresent(UriFingerprint.of(uri)) != null) {
+                visited.add(uri);
+            } else {
+                unknown.add(uri);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return visited;
+        }
+
+        Set<URI> visitedElsewhere = delegate.isVisitedAll(unknown);
+        visitedElsewhere.forEach(uri -> knownVisited.put(UriFingerprint.of(uri), Boolean.TRUE));
+        // Rebuild in input order, now that both halves are known
+        Set<URI> ordered = new LinkedHashSet<>();
+        for (URI uri : uris) {
+            if (visited.contains(uri) || visitedElsewhere.contains(uri)) {
+                ordered.add(uri);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public Set<URI> markVisitedAll(Collection<URI> uris) {
+        Set<URI> marked = delegate.markVisitedAll(uris);
+        uris.forEach(uri -> knownVisited.put(UriFingerprint.of(uri), Boolean.TRUE));
+        return marked;
+    }
+
+    /**
+     * Forgets every cached URI, for when the visited state behind the cache has been reset.
+     */
+    public void invalidateAll() {
+        knownVisited.invalidateAll();
+    }
+
+    /**
+     * Hits and misses of {@link #isVisited(URI)} lookups against the local cache.
+     */
+    public CacheStats stats() {
+        return knownVisited.stats();
+    }
+
+    VisitedRepository delegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,172 @@
+package com.monzo.crawler.infrastructure;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent set of longs in native memory, so that a set of hundreds of millions of fingerprints neither occupies
+ * the heap nor gives the garbage collector anything to trace.
+ * <p>
+ * Values are spread over stripes by their top bits. Each stripe is an open-addressed, linear-probing table of raw
+ * longs in its own {@link MemorySegment}. Lookups and inserts share the stripe's lock, and inserts claim empty slots
+ * with a compare-and-set, so they run in parallel. A stripe that passes 75% load is resized under the exclusive lock.
+ * The old table is freed as soon as its contents are copied, rather than when a collector gets round to it.
+ */
+final class OffHeapLongSet implements AutoCloseable {
+
+    private static final int STRIPE_BITS = 6;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    // Zero marks an empty slot, so a zero value is tracked on its own
+    private final AtomicBoolean containsZero = new AtomicBoolean();
+
+    /**
+     * @param initialStripeCapacity Slots each stripe starts with; must be a power of two.
+     */
+    OffHeapLongSet(long initialStripeCapacity) {
+        if (initialStripeCapacity < 2 || Long.bitCount(initialStripeCapacity) != 1) {
+            throw new IllegalArgumentException("Stripe capacity must be a power of two: " + initialStripeCapacity);
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(initialStripeCapacity);
+        }
+    }
+
+    boolean contains(long value) {
+        return value == 0 ? containsZero.get() : stripeFor(value).contains(value);
+    }
+
+    /**
+     * @return true if the value was not in the set before.
+     */
+    boolean add(long value) {
+        return value == 0 ? containsZero.compareAndSet(false, true) : stripeFor(value).add(value);
+    }
+
+    long size() {
+        long size = containsZero.get() ? 1 : 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size.get();
+        }
+        return size;
+    }
+
+    /**
+     * Native memory currently held by the tables.
+     */
+    long allocatedBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.allocatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Frees all native memory; the set must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            stripe.close();
+        }
+    }
+
+    private Stripe stripeFor(long value) {
+        // Top bits pick the stripe, low bits pick the slot, so the two stay independent
+        return stripes[(int) (value >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private final AtomicLong size = new AtomicLong();
+
+        // Replaced only under the write lock and read only under a read lock
+        private Arena arena;
+        private MemorySegment table;
+        private long mask;
+
+        Stripe(long capacity) {
+            allocate(capacity);
+        }
+
+        boolean contains(long value) {
+            long stamp = lock.readLock();
+            try {
+                return LongSlots.contains(table, mask, value);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean add(long value) {
+            long stamp = lock.readLock();
+            boolean added;
+            try {
+                added = LongSlots.insert(table, mask, value);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (added && overloaded(size.incrementAndGet())) {
+                grow();
+            }
+            return added;
+        }
+
+        long allocatedBytes() {
+            long stamp = lock.readLock();
+            try {
+                return table.byteSize();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void close() {
+            long stamp = lock.writeLock();
+            try {
+                arena.close();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private boolean overloaded(long entries) {
+            return entries * 4 > (mask + 1) * 3;
+        }
+
+        private void grow() {
+            long stamp = lock.writeLock();
+            try {
+                // Several inserts can cross the threshold together; only the first one to get here resizes
+                if (!overloaded(size.get())) {
+                    return;
+                }
+                Arena oldArena = arena;
+                MemorySegment oldTable = table;
+                long oldCapacity = mask + 1;
+                allocate(oldCapacity * 2);
+                for (long i = 0; i < oldCapacity; i++) {
+                    long slot = LongSlots.get(oldTable, i);
+                    if (slot != 0) {
+                        LongSlots.insert(table, mask, slot);
+                    }
+                }
+                oldArena.close();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void allocate(long capacity) {
+            // Arena allocations are zeroed, so every slot starts out empty
+            arena = Arena.ofShared();
+            table = arena.allocate(capacity * Long.BYTES, Long.BYTES);
+            mask = capacity - 1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.net.URI;
+
+/**
+ * In-process visited set that keeps URI fingerprints in native memory.
+ * <p>
+ * Like {@link InMemoryVisitedRepository} it stores one 64-bit {@link UriFingerprint} per URI and never holds on to
+ * the URI itself, but the tables live outside the heap. At tens of millions of URIs this keeps the heap small and
+ * collections short. Memory is freed on {@link #close()}.
+ */
+public class OffHeapVisitedRepository implements VisitedRepository, AutoCloseable {
+
+    private static final long INITIAL_STRIPE_CAPACITY = 1 << 14;
+
+    private final OffHeapLongSet fingerprints;
+
+    public OffHeapVisitedRepository() {
+        this(INITIAL_STRIPE_CAPACITY);
+    }
+
+    @VisibleForTesting
+    OffHeapVisitedRepository(long initialStripeCapacity) {
+        this.fingerprints = new OffHeapLongSet(initialStripeCapacity);
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        return fingerprints.contains(UriFingerprint.of(uri));
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        return fingerprints.add(UriFingerprint.of(uri));
+    }
+
+    public long size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * Native memory currently used for the fingerprint tables.
+     */
+    public long allocatedBytes() {
+        return fingerprints.allocatedBytes();
+    }
+
+    @Override
+    public void close() {
+        fingerprints.close();
+    }
+}
@@ -0,0 +1,17 @@
+package com.monzo.crawler.infrastructure;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+final class PlainUriCodec implements UriCodec {
+
+    @Override
+    public byte[] encode(URI uri) {
+        return uri.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public URI decode(byte[] bytes) {
+        return URI.create(new String(bytes, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,242 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Visited URIs kept as a Bloom filter in Redis bitmaps, so memory stays fixed at roughly
+ * {@code -ln(p) / ln(2)^2} bits per expected URI (about 1.2 bytes at a 1% false-positive rate) however long
+ * the URIs are.
+ * <p>
+ * The trade-off is that a small fraction of unvisited URIs are reported as visited and never crawled. There
+ * are no false negatives, so nothing is crawled twice. A Redis string holds at most 2^32 bits, so filters larger
+ * than that are split into blocks under separate keys, with every bit of a URI landing in the same block.
+ */
+public class RedisBloomVisitedRepository implements VisitedRepository {
+
+    static final String KEY_PREFIX = "visited-bloom:";
+
+    @VisibleForTesting
+    static final long MAX_BLOCK_BITS = 1L << 32;
+
+    private static final HashFunction POSITIONS = Hashing.murmur3_128();
+
+    // Sets every bit in ARGV and reports whether any of them was still clear, i.e. whether the URI is new
+    private static final RedisScript MARK_SCRIPT = new RedisScript("""
+            local added = 0
+            for _, offset in ipairs(ARGV) do
+                if redis.call('SETBIT', KEYS[1], offset, 1) == 0 then
+                    added = 1
+                end
+            end
+            return added
+            """);
+
+    private static final RedisScript CONTAINS_SCRIPT = new RedisScript("""
+            for _, offset in ipairs(ARGV) do
+                if redis.call('GETBIT', KEYS[1], offset) == 0 then
+                    return 0
+                end
+            end
+            return 1
+            """);
+
+    // Batch forms of the two scripts: ARGV[1] is the number of offsets per URI, followed by each URI's offsets.
+    // Both return one flag per URI: whether it was new, or whether it is contained.
+    private static final RedisScript MARK_ALL_SCRIPT = new RedisScript("""
+            local k = tonumber(ARGV[1])
+            local added = {}
+            for first = 2, #ARGV, k do
+                local new = 0
+                for i = first, first + k - 1 do
+                    if redis.call('SETBIT', KEYS[1], ARGV[i], 1) == 0 then
+                        new = 1
+                    end
+                end
+                added[#added + 1] = new
+            end
+            return added
+            """);
+
+    private static final RedisScript CONTAINS_ALL_SCRIPT = new RedisScript("""
+            local k = tonumber(ARGV[1])
+            local contained = {}
+            for first = 2, #ARGV, k do
+                local all = 1
+                for i = first, first + k - 1 do
+                    if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then
+                        all = 0
+                        break
+                    end
+                end
+                contained[#contained + 1] = all
+            end
+            return contained
+            """);
+
+    // Upper bound on URIs per script call so huge pages don't produce a single oversized command
+    private static final int BATCH_SIZE = 1000;
+
+    private final RedisCommands<byte[], byte[]> redis;
+    private final int hashFunctions;
+    private final long bitsPerBlock;
+    private final byte[][] blockKeys;
+
+    /**
+     * @param redis              Commands on a connection using {@link io.lettuce.core.codec.ByteArrayCodec}.
+     * @param expectedInsertions Number of URIs the crawl is expected to visit; beyond it the false-positive
+     *                           rate climbs above the target.
+     * @param falsePositiveRate  Target fraction of unvisited URIs reported as visited, between 0 and 1 exclusive.
+     */
+    public RedisBloomVisitedRepository(
+            RedisCommands<byte[], byte[]> redis,
+            long expectedInsertions,
+            double falsePositiveRate
+    ) {
+        this(redis, optimalBits(expectedInsertions, falsePositiveRate), MAX_BLOCK_BITS,
+                optimalHashFunctions(expectedInsertions, optimalBits(expectedInsertions, falsePositiveRate)));
+    }
+
+    @VisibleForTesting
+    RedisBloomVisitedRepository(RedisCommands<byte[], byte[]> redis, long totalBits, long maxBlockBits, int hashFunctions) {
+        if (totalBits <= 0 || maxBlockBits <= 0 || hashFunctions <= 0) {
+            throw new IllegalArgumentException("Bloom filter needs at least one bit and one hash function");
+        }
+        this.redis = redis;
+        this.hashFunctions = hashFunctions;
+        int blocks = Math.toIntExact((totalBits + maxBlockBits - 1) / maxBlockBits);
+        this.bitsPerBlock = (totalBits + blocks - 1) / blocks;
+        this.blockKeys = new byte[blocks][];
+        for (int i = 0; i < blocks; i++) {
+            blockKeys[i] = (KEY_PREFIX + i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        Long contained = CONTAINS_SCRIPT.execute(redis, ScriptOutputType.INTEGER, blockKey(uri), offsets(uri));
+        return contained == 1;
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        Long added = MARK_SCRIPT.execute(redis, ScriptOutputType.INTEGER, blockKey(uri), offsets(uri));
+        return added == 1;
+    }
+
+    @Override
+    public Set<URI> isVisitedAll(Collection<URI> uris) {
+        return selectPerBlock(uris, CONTAINS_ALL_SCRIPT);
+    }
+
+    @Override
+    public Set<URI> markVisitedAll(Collection<URI> uris) {
+        return selectPerBlock(uris, MARK_ALL_SCRIPT);
+    }
+
+    int hashFunctions() {
+        return hashFunctions;
+    }
+
+    long totalBits() {
+        return bitsPerBlock * blockKeys.length;
+    }
+
+    int blocks() {
+        return blockKeys.length;
+    }
+
+    /**
+     * Bits needed so that {@code expectedInsertions} entries give the target false-positive rate.
+     */
+    static long optimalBits(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        return (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    }
+
+    static int optimalHashFunctions(long expectedInsertions, long bits) {
+        return Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+    }
+
+    private byte[][] blockKey(URI uri) {
+        return new byte[][]{blockKeys[block(uri)]};
+    }
+
+    private int block(URI uri) {
+        // A different hash from the bit positions, so the choice of block doesn't skew positions within it
+        return (int) Long.remainderUnsigned(UriFingerprint.of(uri), blockKeys.length);
+    }
+
+    // Runs the script once per block and batch, and returns the URIs it flagged in their original order
+    private Set<URI> selectPerBlock(Collection<URI> uris, RedisScript script) {
+        Map<Integer, List<URI>> byBlock = new HashMap<>();
+        for (URI uri : uris) {
+            byBlock.computeIfAbsent(block(uri), block -> new ArrayList<>()).add(uri);
+        }
+
+        Set<URI> flagged = new HashSet<>();
+        byte[] offsetsPerUri = Integer.toString(hashFunctions).getBytes(StandardCharsets.UTF_8);
+        byBlock.forEach((block, blockUris) -> {
+            for (int from = 0; from < blockUris.size(); from += BATCH_SIZE) {
+                List<URI> batch = blockUris.subList(from, Math.min(from + BATCH_SIZE, blockUris.size()));
+                byte[][] args = new byte[1 + batch.size() * hashFunctions][];
+                args[0] = offsetsPerUri;
+                for (int i = 0; i < batch.size(); i++) {
+                    System.arraycopy(offsets(batch.get(i)), 0, args, 1 + i * hashFunctions, hashFunctions);
+                }
+                List<Long> flags = script.execute(redis, ScriptOutputType.MULTI, new byte[][]{blockKeys[block]}, args);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (flags.get(i) == 1) {
+                        flagged.add(batch.get(i));
+                    }
+                }
+            }
+        });
+
+        Set<URI> selected = new LinkedHashSet<>();
+        for (URI uri : uris) {
+            if (flagged.contains(uri)) {
+                selected.add(uri);
+            }
+        }
+        return selected;
+    }
+
+    // Kirsch-Mitzenmacher double hashing: k positions derived from the two halves of one 128-bit hash
+    private byte[][] offsets(URI uri) {
+        HashCode hash = POSITIONS.hashString(uri.toString(), StandardCharsets.UTF_8);
+        ByteBuffer halves = ByteBuffer.wrap(hash.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        long h1 = halves.getLong();
+        long h2 = halves.getLong();
+
+        byte[][] offsets = new byte[hashFunctions][];
+        long combined = h1;
+        for (int i = 0; i < hashFunctions; i++) {
+            offsets[i] = Long.toString(Long.remainderUnsigned(combined, bitsPerBlock)).getBytes(StandardCharsets.UTF_8);
+            combined += h2;
+        }
+        return offsets;
+    }
+}
@@ -1,27 +1,161 @@
 package com.monzo.crawler.infrastructure;
 
 import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.sync.RedisCommands;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * FIFO frontier backed by a Redis list.
+ * <p>
+ * Alongside the list, a set of pending URIs holds everything currently waiting in the queue. Enqueues go
+ * through a script that skips URIs already pending or already visited, so each URI enters the list once
+ * no matter how many pages link to it. Entries leave the pending set when they are popped, which keeps it
+ * no larger than the queue itself.
+ */
 public class RedisFrontierQueue implements FrontierQueue {
 
-    private final RedisCommands<String, String> redis;
-    private static final String QUEUE_NAME = "frontier-queue";
+    private final RedisCommands<byte[], byte[]> redis;
+    private final RedisCommands<byte[], byte[]> blockingRedis;
+    private final UriCodec codec;
+    private static final byte[] QUEUE_NAME = "frontier-queue".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PENDING_SET = "frontier-pending".getBytes(StandardCharsets.UTF_8);
 
-    public RedisFrontierQueue(RedisCommands<String, String> redis) {
+    // Upper bound on URIs per script call so huge pages don't produce a single oversized command
+    private static final int ENQUEUE_BATCH_SIZE = 1000;
+
+    // Pushes each URI in ARGV that is neither pending nor visited, marking it pending in the same step.
+    // Lua's unpack overflows its C stack past a few thousand values, so lists go to commands in slices of 1000.
+    private static final RedisScript ENQUEUE_SCRIPT = new RedisScript("""
+            local fresh = {}
+            for _, uri in ipairs(ARGV) do
+                if redis.call('SISMEMBER', KEYS[3], uri) == 0 and redis.call('SADD', KEYS[2], uri) == 1 then
+                    fresh[#fresh + 1] = uri
+                end
+            end
+            for i = 1, #fresh, 1000 do
+                redis.call('RPUSH', KEYS[1], unpack(fresh, i, math.min(i + 999, #fresh)))
+            end
+            return #fresh
+            """);
+
+    private static final RedisScript DEQUEUE_SCRIPT = new RedisScript("""
+            local uri = redis.call('LPOP', KEYS[1])
+            if uri then
+                redis.call('SREM', KEYS[2], uri)
+            end
+            return uri
+            """);
+
+    // Pops up to ARGV[1] URIs and keeps only those this call added to the visited set, unpacking in slices as above
+    private static final RedisScript CLAIM_SCRIPT = new RedisScript("""
+            local popped = redis.call('LPOP', KEYS[1], ARGV[1])
+            if not popped then
+                return {}
+            end
+            for i = 1, #popped, 1000 do
+                redis.call('SREM', KEYS[2], unpack(popped, i, math.min(i + 999, #popped)))
+            end
+            local claimed = {}
+            for _, uri in ipairs(popped) do
+                if redis.call('SADD', KEYS[3], uri) == 1 then
+                    claimed[#claimed + 1] = uri
+                end
+            end
+            return claimed
+            """);
+
+    private static final byte[][] KEYS = {
+            QUEUE_NAME, PENDING_SET, RedisVisitedRepository.VISITED_SET.getBytes(StandardCharsets.UTF_8)};
+
+    public RedisFrontierQueue(RedisCommands<byte[], byte[]> redis) {
+        this(redis, redis);
+    }
+
+    public RedisFrontierQueue(RedisCommands<byte[], byte[]> redis, RedisCommands<byte[], byte[]> blockingRedis) {
+        this(redis, blockingRedis, UriCodec.PLAIN);
+    }
+
+    /**
+     * @param redis         Commands used for all non-blocking operations, on a connection using
+     *                      {@link io.lettuce.core.codec.ByteArrayCodec}.
+     * @param blockingRedis Commands on a dedicated connection used only for BLPOP. A blocking pop holds its
+     *                      connection until it returns, so sharing it would stall every other command queued on it.
+     * @param codec         How URIs are stored; must match the codec of the {@link RedisVisitedRepository} in use.
+     */
+    public RedisFrontierQueue(
+            RedisCommands<byte[], byte[]> redis,
+            RedisCommands<byte[], byte[]> blockingRedis,
+            UriCodec codec
+    ) {
         this.redis = redis;
+        this.blockingRedis = blockingRedis;
+        this.codec = codec;
     }
 
     @Override
     public void enqueue(URI uri) {
-        redis.rpush(QUEUE_NAME, uri.toString());
+        ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, codec.encode(uri));
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        byte[][] values = uris.stream()
+                .map(codec::encode)
+                .toArray(byte[][]::new);
+
+        for (int from = 0; from < values.length; from += ENQUEUE_BATCH_SIZE) {
+            int to = Math.min(from + ENQUEUE_BATCH_SIZE, values.length);
+            ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, Arrays.copyOfRange(values, from, to));
+        }
     }
 
     @Override
     public URI dequeue() {
-        String uriString = redis.lpop(QUEUE_NAME);
-        return uriString != null ? URI.create(uriString) : null;
+        byte[] encoded = DEQUEUE_SCRIPT.execute(redis, ScriptOutputType.VALUE, KEYS);
+        return encoded != null ? codec.decode(encoded) : null;
+    }
+
+    @Override
+    public URI dequeue(Duration timeout) {
+        // BLPOP treats a zero timeout as "wait forever", so never hand it one
+        if (timeout.isZero() || timeout.isNegative()) {
+            return dequeue();
+        }
+        KeyValue<byte[], byte[]> entry = blockingRedis.blpop(RedisTimeouts.blockingSeconds(timeout), QUEUE_NAME);
+        if (entry == null || !entry.hasValue()) {
+            return null;
+        }
+        // Blocking commands can't run inside a script. An enqueue racing in before this SREM is dropped
+        // as still pending, which is harmless because the URI has just been popped for crawling.
+        redis.srem(PENDING_SET, entry.getValue());
+        return codec.decode(entry.getValue());
+    }
+
+    /**
+     * Claims a batch in one atomic round trip when the visited URIs live in the same Redis with the same
+     * encoding; otherwise falls back to the per-URI default.
+     */
+    @Override
+    public List<URI> claim(int maxCount, VisitedRepository visitedRepository) {
+        RedisVisitedRepository redisVisited = RedisVisitedRepository.unwrap(visitedRepository);
+        if (redisVisited == null
+                || !redisVisited.storesUrisAs(codec)
+                || maxCount <= 0) {
+            return FrontierQueue.super.claim(maxCount, visitedRepository);
+        }
+        List<byte[]> claimed = CLAIM_SCRIPT.execute(redis, ScriptOutputType.MULTI, KEYS,
+                String.valueOf(maxCount).getBytes(StandardCharsets.UTF_8));
+        return claimed.stream()
+                .map(codec::decode)
+                .toList();
     }
 
     @Override
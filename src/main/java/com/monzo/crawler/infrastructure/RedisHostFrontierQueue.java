@@ -0,0 +1,184 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Politeness-aware frontier in the style of Mercator: one FIFO sub-queue per host plus a sorted set of
+ * hosts scored by the earliest time they may be fetched again.
+ * <p>
+ * A dequeue only ever pops from a host whose ready time has passed, then pushes that host's ready time
+ * back by the politeness delay. A burst of links to one host therefore cannot starve the others, and no
+ * host is hit more often than once per delay. The host set only holds hosts with queued URIs; ready times
+ * are remembered separately so a host that drains and refills still honours its delay. Ready times come from the
+ * Redis clock, so several crawlers sharing the frontier agree on them whatever their own clocks say.
+ * <p>
+ * Like {@link RedisFrontierQueue}, enqueues skip URIs that are already pending or visited.
+ * Host queue keys are built inside the scripts, so this adapter targets a standalone Redis, not a cluster.
+ */
+public class RedisHostFrontierQueue implements FrontierQueue {
+
+    private static final String HOST_QUEUE_PREFIX = "frontier-host:";
+    private static final String READY_HOSTS = "frontier-hosts";
+    private static final String HOST_NEXT_FETCH = "frontier-host-next";
+    private static final String PENDING_SET = "frontier-host-pending";
+    // Holds at most one token; pushed on every enqueue so blocked dequeues wake up
+    private static final String SIGNAL_LIST = "frontier-host-signal";
+
+    private static final int ENQUEUE_BATCH_SIZE = 1000;
+
+    // ARGV holds (host, uri) pairs. New hosts become ready at their remembered next-fetch time, or immediately.
+    private static final RedisScript ENQUEUE_SCRIPT = new RedisScript("""
+            local added = 0
+            for i = 1, #ARGV, 2 do
+                local host, uri = ARGV[i], ARGV[i + 1]
+                if redis.call('SISMEMBER', KEYS[4], uri) == 0 and redis.call('SADD', KEYS[3], uri) == 1 then
+                    redis.call('RPUSH', KEYS[6] .. host, uri)
+                    if not redis.call('ZSCORE', KEYS[1], host) then
+                        local nextFetch = redis.call('HGET', KEYS[2], host) or 0
+                        redis.call('ZADD', KEYS[1], nextFetch, host)
+                    end
+                    added = added + 1
+                end
+            end
+            if added > 0 then
+                redis.call('LPUSH', KEYS[5], 1)
+                redis.call('LTRIM', KEYS[5], 0, 0)
+            end
+            return added
+            """);
+
+    // ARGV[1] = politeness delay in millis; ready times are epoch millis on the Redis clock
+    private static final RedisScript DEQUEUE_SCRIPT = new RedisScript("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local ready = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, 1)
+            if #ready == 0 then
+                return false
+            end
+            local host = ready[1]
+            local queue = KEYS[6] .. host
+            local uri = redis.call('LPOP', queue)
+            local nextFetch = now + tonumber(ARGV[1])
+            redis.call('HSET', KEYS[2], host, nextFetch)
+            if redis.call('LLEN', queue) > 0 then
+                redis.call('ZADD', KEYS[1], nextFetch, host)
+            else
+                redis.call('ZREM', KEYS[1], host)
+            end
+            if uri then
+                redis.call('SREM', KEYS[3], uri)
+            end
+            return uri
+            """);
+
+    private static final String[] KEYS = {
+            READY_HOSTS, HOST_NEXT_FETCH, PENDING_SET, RedisVisitedRepository.VISITED_SET, SIGNAL_LIST, HOST_QUEUE_PREFIX
+    };
+
+    private final RedisCommands<String, String> redis;
+    private final RedisCommands<String, String> blockingRedis;
+    private final Duration politenessDelay;
+
+    public RedisHostFrontierQueue(RedisCommands<String, String> redis, Duration politenessDelay) {
+        this(redis, redis, politenessDelay);
+    }
+
+    /**
+     * @param redis           Commands used for all non-blocking operations.
+     * @param blockingRedis   Commands on a dedicated connection used only for blocking waits in {@link #dequeue(Duration)}.
+     * @param politenessDelay Minimum time between two dequeues of URIs on the same host.
+     */
+    public RedisHostFrontierQueue(
+            RedisCommands<String, String> redis,
+            RedisCommands<String, String> blockingRedis,
+            Duration politenessDelay
+    ) {
+        this.redis = redis;
+        this.blockingRedis = blockingRedis;
+        this.politenessDelay = politenessDelay;
+    }
+
+    @Override
+    public void enqueue(URI uri) {
+        enqueueAll(List.of(uri));
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        List<String> args = new ArrayList<>(Math.min(uris.size(), ENQUEUE_BATCH_SIZE) * 2);
+        for (URI uri : uris) {
+            args.add(hostOf(uri));
+            args.add(uri.toString());
+            if (args.size() == ENQUEUE_BATCH_SIZE * 2) {
+                runEnqueue(args);
+                args.clear();
+            }
+        }
+        if (!args.isEmpty()) {
+            runEnqueue(args);
+        }
+    }
+
+    private void runEnqueue(List<String> args) {
+        ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, args.toArray(String[]::new));
+    }
+
+    @Override
+    public URI dequeue() {
+        String uriString = DEQUEUE_SCRIPT.execute(redis, ScriptOutputType.VALUE, KEYS,
+                String.valueOf(politenessDelay.toMillis()));
+        return uriString != null ? URI.create(uriString) : null;
+    }
+
+    /**
+     * Waits until some host is both non-empty and ready. Sleeps on the signal list so an enqueue wakes
+     * the caller immediately, but never longer than it takes for the next known host to become ready.
+     */
+    @Override
+    public URI dequeue(Duration timeout) {
+        long deadline = System.nanoTime() + Math.max(0, timeout.toNanos());
+        while (true) {
+            URI uri = dequeue();
+            if (uri != null) {
+                return uri;
+            }
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return null;
+            }
+            long waitMillis = Math.min(remainingMillis, millisUntilNextHostReady());
+            if (waitMillis > 0) {
+                blockingRedis.blpop(waitMillis / 1000.0, SIGNAL_LIST);
+            }
+        }
+    }
+
+    private long millisUntilNextHostReady() {
+        List<ScoredValue<String>> next = redis.zrangeWithScores(READY_HOSTS, 0, 0);
+        return next.isEmpty() ? Long.MAX_VALUE : (long) next.get(0).getScore() - redisTimeMillis();
+    }
+
+    private long redisTimeMillis() {
+        List<String> time = redis.time();
+        return Long.parseLong(time.get(0)) * 1000 + Long.parseLong(time.get(1)) / 1000;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.zcard(READY_HOSTS) == 0;
+    }
+
+    private static String hostOf(URI uri) {
+        return uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+    }
+}
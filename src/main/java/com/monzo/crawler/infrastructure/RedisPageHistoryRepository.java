@@ -0,0 +1,72 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.model.PageHistory;
+import com.monzo.crawler.domain.model.PageValidators;
+import com.monzo.crawler.domain.port.out.PageHistoryRepository;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Page history in a single Redis hash, one field per page URI.
+ * <p>
+ * Each value is one string of lines: the ETag, the Last-Modified date (either line empty when absent), then one
+ * link per line. Neither header values nor URIs can contain a line break. Links on the page's own origin, which on
+ * a single-site crawl is nearly all of them, are stored as just their path, roughly halving the size of a value.
+ */
+public class RedisPageHistoryRepository implements PageHistoryRepository {
+
+    static final String PAGE_HISTORY = "page-history";
+
+    private final RedisCommands<String, String> redis;
+
+    public RedisPageHistoryRepository(RedisCommands<String, String> redis) {
+        this.redis = Objects.requireNonNull(redis);
+    }
+
+    @Override
+    public Optional<PageHistory> find(URI uri) {
+        return Optional.ofNullable(redis.hget(PAGE_HISTORY, uri.toString())).map(value -> decode(uri, value));
+    }
+
+    @Override
+    public void save(URI uri, PageHistory history) {
+        redis.hset(PAGE_HISTORY, uri.toString(), encode(uri, history));
+    }
+
+    static String encode(URI page, PageHistory history) {
+        String origin = originOf(page);
+        StringBuilder value = new StringBuilder()
+                .append(Objects.requireNonNullElse(history.validators().etag(), "")).append('\n')
+                .append(Objects.requireNonNullElse(history.validators().lastModified(), ""));
+        for (URI link : history.links()) {
+            String text = link.toString();
+            boolean sameOrigin = text.length() > origin.length() && text.startsWith(origin)
+                    && text.charAt(origin.length()) == '/';
+            value.append('\n').append(sameOrigin ? text.substring(origin.length()) : text);
+        }
+        return value.toString();
+    }
+
+    static PageHistory decode(URI page, String value) {
+        String origin = originOf(page);
+        String[] lines = value.split("\n", -1);
+        Set<URI> links = new HashSet<>();
+        for (String line : Arrays.asList(lines).subList(2, lines.length)) {
+            links.add(URI.create(line.startsWith("/") ? origin + line : line));
+        }
+        return new PageHistory(new PageValidators(emptyToNull(lines[0]), emptyToNull(lines[1])), links);
+    }
+
+    private static String originOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private static String emptyToNull(String text) {
+        return text.isEmpty() ? null : text;
+    }
+}
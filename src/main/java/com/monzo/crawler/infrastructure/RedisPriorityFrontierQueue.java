@@ -0,0 +1,205 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Best-first frontier backed by a Redis sorted set, where a lower score is crawled sooner.
+ * <p>
+ * A URI's score is a static cost derived from the URI itself (path depth, length, query string and
+ * low-value path patterns) minus its estimated importance. Importance is a simplified OPIC: every batch of
+ * links enqueued from a page hands out one unit of "cash", split evenly across those links, and a URI's
+ * cash accumulates for as long as it waits. A URI linked from many pages therefore keeps moving towards
+ * the head of the queue.
+ * <p>
+ * Visited URIs are never added, and enqueueing a URI that is already pending re-scores it instead of
+ * adding a duplicate.
+ */
+public class RedisPriorityFrontierQueue implements FrontierQueue {
+
+    private static final String QUEUE_NAME = "frontier-priority";
+    private static final String CASH_HASH = "frontier-cash";
+
+    private static final int ENQUEUE_BATCH_SIZE = 1000;
+
+    private static final double DEPTH_COST = 1.0;
+    private static final double LENGTH_COST_PER_CHAR = 0.02;
+    private static final double QUERY_COST = 1.0;
+    private static final double LOW_VALUE_PATH_COST = 3.0;
+    private static final double CASH_WEIGHT = 2.0;
+
+    // Listings, archives and utility pages that are rarely worth reaching early
+    private static final Pattern LOW_VALUE_PATH = Pattern.compile(
+            ".*/(tags?|category|categories|archives?|author|search|calendar|print|login|signin|feed|wp-json)(/.*)?"
+                    + "|.*/page/\\d+/?");
+
+    // ARGV[1] = cash share, ARGV[2] = cash weight, then (static cost, uri) pairs
+    private static final RedisScript ENQUEUE_SCRIPT = new RedisScript("""
+            local share = tonumber(ARGV[1])
+            local weight = tonumber(ARGV[2])
+            local added = 0
+            for i = 3, #ARGV, 2 do
+                local uri = ARGV[i + 1]
+                if redis.call('SISMEMBER', KEYS[3], uri) == 0 then
+                    local cash = tonumber(redis.call('HINCRBYFLOAT', KEYS[2], uri, share))
+                    added = added + redis.call('ZADD', KEYS[1], tonumber(ARGV[i]) - weight * cash, uri)
+                end
+            end
+            return added
+            """);
+
+    // Pops the ARGV[1] best URIs and drops their cash
+    private static final RedisScript DEQUEUE_SCRIPT = new RedisScript("""
+            local popped = redis.call('ZPOPMIN', KEYS[1], ARGV[1])
+            local uris = {}
+            for i = 1, #popped, 2 do
+                uris[#uris + 1] = popped[i]
+            end
+            if #uris > 0 then
+                redis.call('HDEL', KEYS[2], unpack(uris))
+            end
+            return uris
+            """);
+
+    // As DEQUEUE_SCRIPT, but keeps only the URIs this call added to the visited set
+    private static final RedisScript CLAIM_SCRIPT = new RedisScript("""
+            local popped = redis.call('ZPOPMIN', KEYS[1], ARGV[1])
+            local claimed = {}
+            for i = 1, #popped, 2 do
+                local uri = popped[i]
+                redis.call('HDEL', KEYS[2], uri)
+                if redis.call('SADD', KEYS[3], uri) == 1 then
+                    claimed[#claimed + 1] = uri
+                end
+            end
+            return claimed
+            """);
+
+    private static final String[] KEYS = {QUEUE_NAME, CASH_HASH, RedisVisitedRepository.VISITED_SET};
+
+    private final RedisCommands<String, String> redis;
+    private final RedisCommands<String, String> blockingRedis;
+
+    public RedisPriorityFrontierQueue(RedisCommands<String, String> redis) {
+        this(redis, redis);
+    }
+
+    /**
+     * @param redis         Commands used for all non-blocking operations.
+     * @param blockingRedis Commands on a dedicated connection used only for BZPOPMIN.
+     */
+    public RedisPriorityFrontierQueue(RedisCommands<String, String> redis, RedisCommands<String, String> blockingRedis) {
+        this.redis = redis;
+        this.blockingRedis = blockingRedis;
+    }
+
+    @Override
+    public void enqueue(URI uri) {
+        enqueueAll(List.of(uri));
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        String share = String.valueOf(1.0 / uris.size());
+        List<String> args = new ArrayList<>();
+        for (URI uri : uris) {
+            args.add(String.valueOf(staticCost(uri)));
+            args.add(uri.toString());
+            if (args.size() == ENQUEUE_BATCH_SIZE * 2) {
+                runEnqueue(share, args);
+                args.clear();
+            }
+        }
+        if (!args.isEmpty()) {
+            runEnqueue(share, args);
+        }
+    }
+
+    private void runEnqueue(String share, List<String> pairs) {
+        List<String> args = new ArrayList<>(pairs.size() + 2);
+        args.add(share);
+        args.add(String.valueOf(CASH_WEIGHT));
+        args.addAll(pairs);
+        ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, args.toArray(String[]::new));
+    }
+
+    @Override
+    public URI dequeue() {
+        List<String> popped = DEQUEUE_SCRIPT.execute(redis, ScriptOutputType.MULTI, KEYS, "1");
+        return popped.isEmpty() ? null : URI.create(popped.get(0));
+    }
+
+    @Override
+    public URI dequeue(Duration timeout) {
+        // BZPOPMIN treats a zero timeout as "wait forever", so never hand it one
+        if (timeout.isZero() || timeout.isNegative()) {
+            return dequeue();
+        }
+        KeyValue<String, ScoredValue<String>> entry =
+                blockingRedis.bzpopmin(RedisTimeouts.blockingSeconds(timeout), QUEUE_NAME);
+        if (entry == null || !entry.hasValue()) {
+            return null;
+        }
+        String uri = entry.getValue().getValue();
+        redis.hdel(CASH_HASH, uri);
+        return URI.create(uri);
+    }
+
+    /**
+     * Claims the best-scored batch with a single ZPOPMIN when the visited URIs live in the same Redis as plain
+     * strings; otherwise falls back to the per-URI default.
+     */
+    @Override
+    public List<URI> claim(int maxCount, VisitedRepository visitedRepository) {
+        RedisVisitedRepository redisVisited = RedisVisitedRepository.unwrap(visitedRepository);
+        if (redisVisited == null
+                || !redisVisited.storesUrisAs(UriCodec.PLAIN)
+                || maxCount <= 0) {
+            return FrontierQueue.super.claim(maxCount, visitedRepository);
+        }
+        List<String> claimed = CLAIM_SCRIPT.execute(redis, ScriptOutputType.MULTI, KEYS, String.valueOf(maxCount));
+        return claimed.stream()
+                .map(URI::create)
+                .toList();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.zcard(QUEUE_NAME) == 0;
+    }
+
+    /**
+     * Cost of a URI before any in-link cash is applied. The crawler does not track link depth, so the
+     * number of path segments stands in for it.
+     */
+    @VisibleForTesting
+    static double staticCost(URI uri) {
+        String path = uri.getPath() == null ? "" : uri.getPath().toLowerCase(Locale.ROOT);
+        long depth = path.chars().filter(c -> c == '/').count() - (path.isEmpty() || path.equals("/") ? 1 : 0);
+
+        double cost = DEPTH_COST * Math.max(0, depth)
+                + LENGTH_COST_PER_CHAR * uri.toString().length();
+        if (uri.getQuery() != null) {
+            cost += QUERY_COST;
+        }
+        if (LOW_VALUE_PATH.matcher(path).matches()) {
+            cost += LOW_VALUE_PATH_COST;
+        }
+        return cost;
+    }
+}
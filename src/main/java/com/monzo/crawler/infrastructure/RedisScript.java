@@ -0,0 +1,45 @@
+package com.monzo.crawler.infrastructure;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A Lua script executed by its SHA1 digest, so the script body is only sent to Redis
+ * the first time a server sees it (or after a SCRIPT FLUSH / restart).
+ */
+final class RedisScript {
+
+    private final String source;
+    private final String digest;
+
+    RedisScript(String source) {
+        this.source = source;
+        this.digest = sha1Hex(source);
+    }
+
+    // Safe as the arguments are only read by Lettuce, never stored or written to
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    final <K, V, T> T execute(RedisCommands<K, V> redis, ScriptOutputType outputType, K[] keys, V... args) {
+        try {
+            return redis.evalsha(digest, outputType, keys, args);
+        } catch (RedisNoScriptException e) {
+            // EVAL also caches the script, so subsequent calls go back to EVALSHA
+            return redis.eval(source, outputType, keys, args);
+        }
+    }
+
+    private static String sha1Hex(String source) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
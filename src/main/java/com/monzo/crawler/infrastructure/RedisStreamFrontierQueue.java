@@ -0,0 +1,253 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.RedisBusyException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.XClaimArgs;
+import io.lettuce.core.XGroupCreateArgs;
+import io.lettuce.core.XPendingArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.models.stream.PendingMessage;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FIFO frontier backed by a Redis stream and consumer group, giving at-least-once delivery across crawler processes.
+ * <p>
+ * Each process reads with its own consumer name, so an entry it has read stays in the group's pending entries list
+ * until the URI is {@linkplain #acknowledge(URI) acknowledged}. If a crawler dies mid-fetch, its entries go idle and
+ * any other consumer takes them over with XCLAIM on its next claim. Entries a consumer read itself are never taken
+ * back by it, however long they sit, so a URI waiting for a free request slot is not dispatched twice. Acknowledged
+ * entries are deleted from the stream.
+ * <p>
+ * As with {@link RedisFrontierQueue}, a pending set keeps each URI in the stream once until it is acknowledged.
+ * The frontier only counts as empty when nothing is pending, including entries other consumers are still working on.
+ */
+public class RedisStreamFrontierQueue implements FrontierQueue {
+
+    private static final String STREAM = "frontier-stream";
+    private static final String PENDING_SET = "frontier-stream-pending";
+    private static final String GROUP = "crawlers";
+    private static final String URI_FIELD = "uri";
+
+    private static final int ENQUEUE_BATCH_SIZE = 1000;
+
+    // Appends each URI in ARGV that is neither pending nor visited, marking it pending in the same step
+    private static final RedisScript ENQUEUE_SCRIPT = new RedisScript("""
+            local added = 0
+            for _, uri in ipairs(ARGV) do
+                if redis.call('SISMEMBER', KEYS[3], uri) == 0 and redis.call('SADD', KEYS[2], uri) == 1 then
+                    redis.call('XADD', KEYS[1], '*', 'uri', uri)
+                    added = added + 1
+                end
+            end
+            return added
+            """);
+
+    // Reads up to ARGV[3] new entries for consumer ARGV[2] of group ARGV[1] and returns (id, uri) pairs for those
+    // this call added to the visited set; entries that were already visited are acknowledged on the spot
+    private static final RedisScript CLAIM_SCRIPT = new RedisScript("""
+            local reply = redis.call('XREADGROUP', 'GROUP', ARGV[1], ARGV[2], 'COUNT', ARGV[3], 'STREAMS', KEYS[1], '>')
+            local claimed = {}
+            if not reply then
+                return claimed
+            end
+            for _, entry in ipairs(reply[1][2]) do
+                local id, uri = entry[1], entry[2][2]
+                if redis.call('SADD', KEYS[3], uri) == 1 then
+                    claimed[#claimed + 1] = id
+                    claimed[#claimed + 1] = uri
+                else
+                    redis.call('XACK', KEYS[1], ARGV[1], id)
+                    redis.call('XDEL', KEYS[1], id)
+                    redis.call('SREM', KEYS[2], uri)
+                end
+            end
+            return claimed
+            """);
+
+    // ARGV[1] = group, ARGV[2] = entry id, ARGV[3] = uri
+    private static final RedisScript ACK_SCRIPT = new RedisScript("""
+            redis.call('XACK', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('XDEL', KEYS[1], ARGV[2])
+            return redis.call('SREM', KEYS[2], ARGV[3])
+            """);
+
+    private static final String[] KEYS = {STREAM, PENDING_SET, RedisVisitedRepository.VISITED_SET};
+
+    // Built once as a typed array, as passing the offset straight to the generic varargs is an unchecked call
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final XReadArgs.StreamOffset<String>[] NEW_ENTRIES =
+            new XReadArgs.StreamOffset[] {XReadArgs.StreamOffset.lastConsumed(STREAM)};
+
+    private final RedisCommands<String, String> redis;
+    private final RedisCommands<String, String> blockingRedis;
+    private final Consumer<String> consumer;
+    private final Duration reclaimIdleTime;
+
+    // Stream entry id of every URI this consumer has read but not yet acknowledged
+    private final Map<URI, String> delivered = new ConcurrentHashMap<>();
+
+    /**
+     * @param redis           Commands used for all non-blocking operations.
+     * @param blockingRedis   Commands on a dedicated connection used only for blocking XREADGROUP.
+     * @param consumerName    Name of this process within the consumer group; must be unique among live crawlers.
+     * @param reclaimIdleTime How long another consumer's entry must sit unacknowledged before this one takes it over.
+     */
+    public RedisStreamFrontierQueue(
+            RedisCommands<String, String> redis,
+            RedisCommands<String, String> blockingRedis,
+            String consumerName,
+            Duration reclaimIdleTime
+    ) {
+        this.redis = Objects.requireNonNull(redis);
+        this.blockingRedis = Objects.requireNonNull(blockingRedis);
+        this.consumer = Consumer.from(GROUP, Objects.requireNonNull(consumerName));
+        this.reclaimIdleTime = Objects.requireNonNull(reclaimIdleTime);
+        createGroup();
+    }
+
+    @Override
+    public void enqueue(URI uri) {
+        ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, uri.toString());
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        List<String> batch = new ArrayList<>(Math.min(uris.size(), ENQUEUE_BATCH_SIZE));
+        for (URI uri : uris) {
+            batch.add(uri.toString());
+            if (batch.size() == ENQUEUE_BATCH_SIZE) {
+                ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, batch.toArray(String[]::new));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            ENQUEUE_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, batch.toArray(String[]::new));
+        }
+    }
+
+    @Override
+    public URI dequeue() {
+        return deliver(redis.xreadgroup(consumer, XReadArgs.Builder.count(1), NEW_ENTRIES));
+    }
+
+    @Override
+    public URI dequeue(Duration timeout) {
+        // BLOCK 0 waits forever, so never hand it a zero timeout
+        if (timeout.isZero() || timeout.isNegative()) {
+            return dequeue();
+        }
+        // Nor one that rounds down to zero, as BLOCK takes whole milliseconds
+        long timeoutMillis = Math.max(1, timeout.toMillis());
+        return deliver(blockingRedis.xreadgroup(
+                consumer, XReadArgs.Builder.block(timeoutMillis).count(1), NEW_ENTRIES));
+    }
+
+    /**
+     * First takes over entries left unacknowledged for longer than the reclaim idle time by other consumers, or by
+     * an earlier process with this consumer name, skipping those this queue delivered and is still working on.
+     * Those URIs were claimed once already, so they are returned even though they are marked visited. The rest of
+     * the batch is read as new entries, in a single script when the visited URIs live in the same Redis as plain
+     * strings.
+     */
+    @Override
+    public List<URI> claim(int maxCount, VisitedRepository visitedRepository) {
+        if (maxCount <= 0) {
+            return List.of();
+        }
+        List<URI> claimed = new ArrayList<>(reclaim(maxCount, visitedRepository));
+        int remaining = maxCount - claimed.size();
+        if (remaining == 0) {
+            return claimed;
+        }
+        RedisVisitedRepository redisVisited = RedisVisitedRepository.unwrap(visitedRepository);
+        if (redisVisited == null
+                || !redisVisited.storesUrisAs(UriCodec.PLAIN)) {
+            claimed.addAll(FrontierQueue.super.claim(remaining, visitedRepository));
+            return claimed;
+        }
+        List<String> pairs = CLAIM_SCRIPT.execute(redis, ScriptOutputType.MULTI, KEYS,
+                GROUP, consumer.getName(), String.valueOf(remaining));
+        for (int i = 0; i < pairs.size(); i += 2) {
+            URI uri = URI.create(pairs.get(i + 1));
+            delivered.put(uri, pairs.get(i));
+            claimed.add(uri);
+        }
+        return claimed;
+    }
+
+    @Override
+    public void acknowledge(URI uri) {
+        String id = delivered.remove(uri);
+        if (id != null) {
+            ACK_SCRIPT.execute(redis, ScriptOutputType.INTEGER, KEYS, GROUP, id, uri.toString());
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redis.scard(PENDING_SET) == 0;
+    }
+
+    private List<URI> reclaim(int maxCount, VisitedRepository visitedRepository) {
+        // Entries this consumer holds are idle only because they are still waiting for a free request slot, so
+        // asking for that many more guarantees up to maxCount abandoned ones if there are that many
+        Set<String> held = Set.copyOf(delivered.values());
+        List<String> abandoned = redis.xpending(STREAM, XPendingArgs.Builder
+                        .xpending(GROUP, Range.create("-", "+"), Limit.from(maxCount + held.size()))
+                        .idle(reclaimIdleTime))
+                .stream()
+                .map(PendingMessage::getId)
+                .filter(id -> !held.contains(id))
+                .limit(maxCount)
+                .toList();
+        if (abandoned.isEmpty()) {
+            return List.of();
+        }
+        // The minimum idle time makes this a no-op for entries another consumer took over in the meantime
+        List<StreamMessage<String, String>> messages = redis.xclaim(STREAM, consumer,
+                XClaimArgs.Builder.minIdleTime(reclaimIdleTime), abandoned.toArray(String[]::new));
+        List<URI> reclaimed = new ArrayList<>(messages.size());
+        for (StreamMessage<String, String> message : messages) {
+            URI uri = URI.create(message.getBody().get(URI_FIELD));
+            // The previous owner may have died before marking it
+            visitedRepository.markVisited(uri);
+            delivered.put(uri, message.getId());
+            reclaimed.add(uri);
+        }
+        return reclaimed;
+    }
+
+    private URI deliver(List<StreamMessage<String, String>> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
+        StreamMessage<String, String> message = messages.get(0);
+        URI uri = URI.create(message.getBody().get(URI_FIELD));
+        delivered.put(uri, message.getId());
+        return uri;
+    }
+
+    private void createGroup() {
+        try {
+            // Start from the beginning of the stream so URIs enqueued before the group existed are not skipped
+            redis.xgroupCreate(XReadArgs.StreamOffset.from(STREAM, "0"), GROUP, XGroupCreateArgs.Builder.mkstream());
+        } catch (RedisBusyException e) {
+            // Another crawler already created the group
+        }
+    }
+}
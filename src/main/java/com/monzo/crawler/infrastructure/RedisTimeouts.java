@@ -0,0 +1,24 @@
+package com.monzo.crawler.infrastructure;
+
+import java.time.Duration;
+
+/**
+ * Timeouts for blocking pops such as BLPOP, which take fractional seconds but wait in whole milliseconds, and wait
+ * forever when handed zero.
+ */
+final class RedisTimeouts {
+
+    private RedisTimeouts() {
+    }
+
+    /**
+     * The seconds to pass for a positive timeout, which is rounded up to at least a millisecond.
+     * <p>
+     * Redis truncates seconds times 1000 to whole milliseconds in floating point, which turns 0.001 into zero.
+     * Half a millisecond more keeps the truncated value on the intended millisecond.
+     */
+    static double blockingSeconds(Duration timeout) {
+        long millis = Math.max(1, timeout.toMillis());
+        return (millis + 0.5) / 1000.0;
+    }
+}
@@ -0,0 +1,159 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Visited URIs with the time each was last crawled, so that a page older than a maximum age counts as unvisited
+ * and is crawled again. Repeating a crawl then refreshes only the pages that have expired instead of starting
+ * over from an empty Redis.
+ * <p>
+ * URIs, encoded with a {@link UriCodec}, are members of one sorted set scored by the epoch milliseconds of their
+ * last crawl. Scripts read the clock from Redis rather than from each crawler, so nodes with skewed clocks still
+ * agree on what has expired. Marking a URI only succeeds when it is absent or expired, and stamps it with the current
+ * time, so across all nodes exactly one claims each expired page.
+ * <p>
+ * Expired pages are only found by following links to them, so a crawl whose start page is still fresh would stop
+ * at once. {@link #requeueExpired} puts every expired URI back in the frontier to start a refresh. Keeping whole URIs
+ * is what makes that possible, and costs more memory than the fingerprint layouts of {@link RedisVisitedRepository}.
+ */
+public class RedisTimestampedVisitedRepository implements VisitedRepository {
+
+    static final String VISITED_TIMES = "visited-times";
+    private static final byte[] VISITED_TIMES_KEY = VISITED_TIMES.getBytes(StandardCharsets.UTF_8);
+    private static final byte[][] KEYS = {VISITED_TIMES_KEY};
+
+    // Upper bound on URIs per command so huge pages don't produce a single oversized command
+    private static final int BATCH_SIZE = 1000;
+
+    // ARGV[1] is the maximum age in milliseconds, ARGV[2..n] the members; both return one 0 or 1 per member
+    private static final String CUTOFF = """
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local cutoff = now - tonumber(ARGV[1])
+            """;
+
+    private static final RedisScript CONTAINS_ALL_SCRIPT = new RedisScript(CUTOFF + """
+            local found = {}
+            for i = 2, #ARGV do
+                local crawled = redis.call('ZSCORE', KEYS[1], ARGV[i])
+                found[i - 1] = (crawled and tonumber(crawled) > cutoff) and 1 or 0
+            end
+            return found
+            """);
+
+    private static final RedisScript MARK_ALL_SCRIPT = new RedisScript(CUTOFF + """
+            local marked = {}
+            for i = 2, #ARGV do
+                local crawled = redis.call('ZSCORE', KEYS[1], ARGV[i])
+                if crawled and tonumber(crawled) > cutoff then
+                    marked[i - 1] = 0
+                else
+                    redis.call('ZADD', KEYS[1], now, ARGV[i])
+                    marked[i - 1] = 1
+                end
+            end
+            return marked
+            """);
+
+    private final RedisCommands<byte[], byte[]> redis;
+    private final UriCodec codec;
+    private final long maxAgeMillis;
+    private final byte[] maxAgeArg;
+
+    /**
+     * @param redis  Commands on a connection using {@link io.lettuce.core.codec.ByteArrayCodec}.
+     * @param codec  How URIs are stored.
+     * @param maxAge How long after its last crawl a page counts as visited.
+     */
+    public RedisTimestampedVisitedRepository(RedisCommands<byte[], byte[]> redis, UriCodec codec, Duration maxAge) {
+        this.redis = Objects.requireNonNull(redis);
+        this.codec = Objects.requireNonNull(codec);
+        if (maxAge.toMillis() <= 0) {
+            throw new IllegalArgumentException("Max age must be positive: " + maxAge);
+        }
+        this.maxAgeMillis = maxAge.toMillis();
+        this.maxAgeArg = Long.toString(maxAgeMillis).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        return !isVisitedAll(List.of(uri)).isEmpty();
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        return !markVisitedAll(List.of(uri)).isEmpty();
+    }
+
+    @Override
+    public Set<URI> isVisitedAll(Collection<URI> uris) {
+        return select(uris, CONTAINS_ALL_SCRIPT);
+    }
+
+    @Override
+    public Set<URI> markVisitedAll(Collection<URI> uris) {
+        return select(uris, MARK_ALL_SCRIPT);
+    }
+
+    /**
+     * Enqueues every URI whose last crawl is older than the maximum age, oldest first.
+     *
+     * @return The number of URIs enqueued.
+     */
+    public long requeueExpired(FrontierQueue frontierQueue) {
+        // Inclusive, as the scripts treat a page crawled exactly at the cutoff as expired
+        Range<Long> expired = Range.from(
+                Range.Boundary.unbounded(), Range.Boundary.including(redisTimeMillis() - maxAgeMillis));
+        long requeued = 0;
+        while (true) {
+            // Other nodes already crawling can re-stamp pages in between and shift the offsets. A page skipped
+            // that way is still found through links to it.
+            List<byte[]> page = redis.zrangebyscore(VISITED_TIMES_KEY, expired, Limit.create(requeued, BATCH_SIZE));
+            if (page.isEmpty()) {
+                return requeued;
+            }
+            frontierQueue.enqueueAll(page.stream().map(codec::decode).toList());
+            requeued += page.size();
+        }
+    }
+
+    // Runs the script over the URIs in batches and returns those it answered 1 for, in their original order
+    private Set<URI> select(Collection<URI> uris, RedisScript script) {
+        List<URI> candidates = List.copyOf(uris);
+        Set<URI> selected = new LinkedHashSet<>();
+        for (int from = 0; from < candidates.size(); from += BATCH_SIZE) {
+            List<URI> batch = candidates.subList(from, Math.min(from + BATCH_SIZE, candidates.size()));
+            List<byte[]> args = new ArrayList<>(batch.size() + 1);
+            args.add(maxAgeArg);
+            batch.forEach(uri -> args.add(codec.encode(uri)));
+            List<Long> flags = script.execute(redis, ScriptOutputType.MULTI, KEYS, args.toArray(byte[][]::new));
+            for (int i = 0; i < batch.size(); i++) {
+                if (flags.get(i) == 1) {
+                    selected.add(batch.get(i));
+                }
+            }
+        }
+        return selected;
+    }
+
+    private long redisTimeMillis() {
+        List<byte[]> time = redis.time();
+        long seconds = Long.parseLong(new String(time.get(0), StandardCharsets.US_ASCII));
+        long micros = Long.parseLong(new String(time.get(1), StandardCharsets.US_ASCII));
+        return seconds * 1000 + micros / 1000;
+    }
+}
@@ -0,0 +1,105 @@
+package com.monzo.crawler.infrastructure;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushListener;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.net.SocketAddress;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server-assisted invalidation for a local cache of visited URIs, using Redis client-side caching (CLIENT TRACKING
+ * over RESP3), so that several crawler nodes sharing a visited set can each cache it without going stale.
+ * <p>
+ * Visited state only grows while a crawl runs, so a URI cached as visited stays visited. Invalidating on every write
+ * to the visited keys would flush the cache after nearly every lookup and buy nothing. What can make a cached answer
+ * wrong is a reset, when visited entries are deleted, so this tracks a small generation key instead, in broadcasting
+ * mode. Redis pushes an invalidation to every tracking node when that key changes. It also pushes one for FLUSHDB and
+ * FLUSHALL. Anything else that removes visited entries must {@linkplain #resetEverywhere bump the generation}.
+ * <p>
+ * Tracking lives and dies with the connection, so after a reconnect the cache is dropped, in case a reset was missed
+ * while disconnected, and tracking is switched back on.
+ */
+public class RedisVisitedCacheInvalidator implements PushListener, RedisConnectionStateListener, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisVisitedCacheInvalidator.class);
+
+    static final String GENERATION_KEY = "visited-generation";
+
+    private final StatefulRedisConnection<String, String> connection;
+    private final Runnable invalidate;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private RedisVisitedCacheInvalidator(StatefulRedisConnection<String, String> connection, Runnable invalidate) {
+        this.connection = Objects.requireNonNull(connection);
+        this.invalidate = Objects.requireNonNull(invalidate);
+    }
+
+    /**
+     * Switches on tracking and starts listening for invalidations.
+     *
+     * @param connection A dedicated connection; tracking and its invalidation messages are bound to it, so it must
+     *                   use RESP3, which Lettuce negotiates by default with Redis 6 and later.
+     * @param invalidate Clears the local cache.
+     */
+    public static RedisVisitedCacheInvalidator start(StatefulRedisConnection<String, String> connection,
+                                                     Runnable invalidate) {
+        RedisVisitedCacheInvalidator invalidator = new RedisVisitedCacheInvalidator(connection, invalidate);
+        connection.addListener((PushListener) invalidator);
+        connection.addListener((RedisConnectionStateListener) invalidator);
+        connection.sync().clientTracking(trackingArgs());
+        return invalidator;
+    }
+
+    /**
+     * Makes every tracking node drop its cached visited URIs.
+     */
+    public static void resetEverywhere(RedisCommands<String, String> redis) {
+        redis.incr(GENERATION_KEY);
+    }
+
+    /**
+     * How many times the cache has been dropped, for logging.
+     */
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public void onPushMessage(PushMessage message) {
+        if ("invalidate".equals(message.getType())) {
+            dropCache();
+        }
+    }
+
+    @Override
+    public void onRedisConnected(RedisChannelHandler<?, ?> channel, SocketAddress socketAddress) {
+        dropCache();
+        // Async, because this runs on the connection's I/O thread
+        connection.async().clientTracking(trackingArgs()).exceptionally(e -> {
+            logger.warn("Could not re-enable client tracking after reconnecting", e);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        connection.removeListener((PushListener) this);
+        connection.removeListener((RedisConnectionStateListener) this);
+    }
+
+    private void dropCache() {
+        invalidations.incrementAndGet();
+        invalidate.run();
+    }
+
+    private static TrackingArgs trackingArgs() {
+        return TrackingArgs.Builder.enabled().bcast().prefixes(GENERATION_KEY);
+    }
+}
@@ -1,25 +1,195 @@
 package com.monzo.crawler.infrastructure;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.sync.RedisCommands;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
+/**
+ * Visited URIs kept in Redis sets.
+ * <p>
+ * By default members are the URIs themselves, encoded with a {@link UriCodec}, so frontier scripts can check
+ * and update the set directly. {@link #fingerprinted} stores an 8-byte {@link UriFingerprint} per URI instead,
+ * in a separate set: members shrink from the full URI to a fixed 8 bytes, at the cost of frontier claims falling
+ * back to per-URI checks, since Lua scripts can't compute the fingerprint.
+ * <p>
+ * {@link #bucketed} goes further and spreads fingerprints over many small sets keyed by fingerprint prefix. While
+ * a set of integers stays under {@code set-max-intset-entries} (512 by default) Redis keeps it as a sorted array
+ * of raw 64-bit values, about 8 bytes per URI, instead of a hashtable with an entry and a string per member.
+ */
 public class RedisVisitedRepository implements VisitedRepository {
 
-    private final RedisCommands<String, String> redis;
-    private static final String VISITED_SET = "visited-urls";
+    private final RedisCommands<byte[], byte[]> redis;
+    private final Function<URI, Entry> toEntry;
+    // Null when members are fingerprints rather than encoded URIs
+    private final UriCodec codec;
+    static final String VISITED_SET = "visited-urls";
+    static final String FINGERPRINT_SET = "visited-fingerprints";
+    static final String BUCKET_PREFIX = "visited-buckets:";
 
-    public RedisVisitedRepository(RedisCommands<String, String> redis) {
+    // Fingerprints per bucket the bucket count is sized for: half the default intset limit, leaving room for
+    // uneven buckets and for the crawl outgrowing its estimate before any bucket converts to a hashtable
+    @VisibleForTesting
+    static final int URIS_PER_BUCKET = 256;
+
+    // Upper bound on URIs per command so huge pages don't produce a single oversized command
+    private static final int BATCH_SIZE = 1000;
+
+    // KEYS[i] and ARGV[i] are the set and member for the i-th URI; both return one 0 or 1 per URI
+    private static final RedisScript CONTAINS_ALL_SCRIPT = new RedisScript("""
+            local found = {}
+            for i, member in ipairs(ARGV) do
+                found[i] = redis.call('SISMEMBER', KEYS[i], member)
+            end
+            return found
+            """);
+
+    private static final RedisScript MARK_ALL_SCRIPT = new RedisScript("""
+            local added = {}
+            for i, member in ipairs(ARGV) do
+                added[i] = redis.call('SADD', KEYS[i], member)
+            end
+            return added
+            """);
+
+    private record Entry(byte[] key, byte[] member) {
+    }
+
+    public RedisVisitedRepository(RedisCommands<byte[], byte[]> redis) {
+        this(redis, UriCodec.PLAIN);
+    }
+
+    /**
+     * @param redis Commands on a connection using {@link io.lettuce.core.codec.ByteArrayCodec}.
+     * @param codec How URIs are stored; a frontier that checks the visited set in Redis must use the same one.
+     */
+    public RedisVisitedRepository(RedisCommands<byte[], byte[]> redis, UriCodec codec) {
+        this(redis, singleSet(VISITED_SET, codec::encode), Objects.requireNonNull(codec));
+    }
+
+    private RedisVisitedRepository(RedisCommands<byte[], byte[]> redis, Function<URI, Entry> toEntry, UriCodec codec) {
         this.redis = redis;
+        this.toEntry = toEntry;
+        this.codec = codec;
+    }
+
+    /**
+     * A repository whose members are 64-bit URI fingerprints rather than the URIs, see {@link UriFingerprint}
+     * for the collision rate.
+     */
+    public static RedisVisitedRepository fingerprinted(RedisCommands<byte[], byte[]> redis) {
+        return new RedisVisitedRepository(redis, singleSet(FINGERPRINT_SET, UriFingerprint::bytes), null);
+    }
+
+    /**
+     * A repository that spreads URI fingerprints over small integer sets, {@value #BUCKET_PREFIX}0 onwards.
+     *
+     * @param expectedUrls Number of URIs the crawl is expected to visit, which sets the number of buckets. Every
+     *                     crawler sharing the data must use the same value, and it must not change while visited
+     *                     data exists, since it decides which bucket each URI lives in.
+     */
+    public static RedisVisitedRepository bucketed(RedisCommands<byte[], byte[]> redis, long expectedUrls) {
+        int bucketBits = bucketBits(expectedUrls);
+        byte[][] bucketKeys = new byte[1 << bucketBits][];
+        for (int i = 0; i < bucketKeys.length; i++) {
+            bucketKeys[i] = (BUCKET_PREFIX + i).getBytes(StandardCharsets.UTF_8);
+        }
+        return new RedisVisitedRepository(redis, uri -> {
+            long fingerprint = UriFingerprint.of(uri);
+            // Top bits pick the bucket; the member is the whole fingerprint as a decimal, which Redis parses
+            // into its integer encoding
+            int bucket = bucketBits == 0 ? 0 : (int) (fingerprint >>> (Long.SIZE - bucketBits));
+            return new Entry(bucketKeys[bucket], Long.toString(fingerprint).getBytes(StandardCharsets.US_ASCII));
+        }, null);
+    }
+
+    /**
+     * Bits of fingerprint prefix needed so that {@code expectedUrls} spread over the buckets average at most
+     * {@link #URIS_PER_BUCKET} each.
+     */
+    static int bucketBits(long expectedUrls) {
+        if (expectedUrls <= 0) {
+            throw new IllegalArgumentException("Expected URLs must be positive: " + expectedUrls);
+        }
+        long buckets = (expectedUrls + URIS_PER_BUCKET - 1) / URIS_PER_BUCKET;
+        return Math.min(30, Long.SIZE - Long.numberOfLeadingZeros(buckets - 1));
     }
 
     @Override
     public boolean isVisited(URI uri) {
-        return redis.sismember(VISITED_SET, uri.toString());
+        Entry entry = toEntry.apply(uri);
+        return redis.sismember(entry.key(), entry.member());
     }
 
     @Override
     public boolean markVisited(URI uri) {
-        return redis.sadd(VISITED_SET, uri.toString()) == 1;
+        Entry entry = toEntry.apply(uri);
+        return redis.sadd(entry.key(), entry.member()) == 1;
+    }
+
+    @Override
+    public Set<URI> isVisitedAll(Collection<URI> uris) {
+        return select(uris, CONTAINS_ALL_SCRIPT);
+    }
+
+    @Override
+    public Set<URI> markVisitedAll(Collection<URI> uris) {
+        return select(uris, MARK_ALL_SCRIPT);
+    }
+
+    // Runs the script over the URIs in batches and returns those it answered 1 for, in their original order
+    private Set<URI> select(Collection<URI> uris, RedisScript script) {
+        List<URI> candidates = List.copyOf(uris);
+        Set<URI> selected = new LinkedHashSet<>();
+        for (int from = 0; from < candidates.size(); from += BATCH_SIZE) {
+            List<URI> batch = candidates.subList(from, Math.min(from + BATCH_SIZE, candidates.size()));
+            byte[][] keys = new byte[batch.size()][];
+            byte[][] members = new byte[batch.size()][];
+            for (int i = 0; i < batch.size(); i++) {
+                Entry entry = toEntry.apply(batch.get(i));
+                keys[i] = entry.key();
+                members[i] = entry.member();
+            }
+            List<Long> flags = script.execute(redis, ScriptOutputType.MULTI, keys, members);
+            for (int i = 0; i < batch.size(); i++) {
+                if (flags.get(i) == 1) {
+                    selected.add(batch.get(i));
+                }
+            }
+        }
+        return selected;
+    }
+
+    private static Function<URI, Entry> singleSet(String key, Function<URI, byte[]> toMember) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        return uri -> new Entry(keyBytes, toMember.apply(uri));
+    }
+
+    /**
+     * Whether members are URIs encoded with {@code codec} in {@value #VISITED_SET}, which frontier scripts
+     * using the same codec can compare against directly.
+     */
+    boolean storesUrisAs(UriCodec codec) {
+        return this.codec == codec;
+    }
+
+    /**
+     * Finds the Redis repository behind any local decorators, so frontiers can still reach the visited set
+     * from their scripts. Returns null if the visited URIs are not kept in Redis.
+     */
+    static RedisVisitedRepository unwrap(VisitedRepository visitedRepository) {
+        VisitedRepository current = visitedRepository;
+        while (current instanceof NearCachedVisitedRepository cached) {
+            current = cached.delegate();
+        }
+        return current instanceof RedisVisitedRepository redisVisited ? redisVisited : null;
     }
 }
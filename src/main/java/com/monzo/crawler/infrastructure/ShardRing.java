@@ -0,0 +1,99 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Consistent-hash ring that assigns each URI to one of a fixed list of shards.
+ * <p>
+ * Every shard is placed on the ring at many points derived from its name, and a URI belongs to the first shard
+ * point at or after its own hash. Placing shards by name rather than by position means the order of the list does
+ * not matter, and adding a shard moves only the keys that now fall on its points, about 1/N of them.
+ * <p>
+ * URIs are hashed either by host, which keeps every URI of a host, and therefore its queue order and politeness
+ * delay, on one shard, or by {@link UriFingerprint}, which spreads the URIs of a single host over all shards.
+ */
+public final class ShardRing {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    // Enough points per shard to keep each shard's share of the ring within a few percent of 1/N
+    private static final int POINTS_PER_SHARD = 160;
+
+    private final NavigableMap<Long, Integer> points = new TreeMap<>();
+    private final int shardCount;
+    private final ToLongFunction<URI> keyHash;
+
+    private ShardRing(List<String> shardNames, ToLongFunction<URI> keyHash) {
+        if (shardNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shardCount = shardNames.size();
+        this.keyHash = keyHash;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int point = 0; point < POINTS_PER_SHARD; point++) {
+                Integer previous = points.put(hash(shardNames.get(shard) + "#" + point), shard);
+                if (previous != null && previous != shard) {
+                    throw new IllegalArgumentException("Shard names must be unique: " + shardNames);
+                }
+            }
+        }
+    }
+
+    /**
+     * All URIs of a host go to the same shard.
+     *
+     * @param shardNames Stable names of the shards, such as their Redis URLs; the index in this list is the shard.
+     */
+    public static ShardRing byHost(List<String> shardNames) {
+        return new ShardRing(shardNames, uri -> hash(String.valueOf(uri.getHost()).toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * URIs are spread over the shards individually, regardless of host.
+     *
+     * @param shardNames Stable names of the shards, such as their Redis URLs; the index in this list is the shard.
+     */
+    public static ShardRing byUri(List<String> shardNames) {
+        return new ShardRing(shardNames, UriFingerprint::of);
+    }
+
+    /**
+     * @return The index of the shard that owns the URI.
+     */
+    public int shardFor(URI uri) {
+        Map.Entry<Long, Integer> point = points.ceilingEntry(keyHash.applyAsLong(uri));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    /**
+     * Splits the URIs by owning shard, keeping their relative order; the list at index i belongs to shard i.
+     */
+    List<List<URI>> partition(Collection<URI> uris) {
+        List<List<URI>> partitions = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (URI uri : uris) {
+            partitions.get(shardFor(uri)).add(uri);
+        }
+        return partitions;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    private static long hash(String value) {
+        return HASH.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,124 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Frontier spread over several queues, typically one per Redis instance, by a {@link ShardRing}.
+ * <p>
+ * A URI is always enqueued on the shard that owns it, so with a {@link ShardRing#byHost host ring} every host keeps
+ * its queue order and politeness delay on one shard. Dequeues and claims take from the shards in turn, starting
+ * from a different shard each time, so no shard is drained before the others.
+ * <p>
+ * When the visited repository is a {@link ShardedVisitedRepository} on the same ring, each shard claims against its
+ * own visited shard, which lets Redis-backed shards keep claiming in a single script. The shards are owned by the
+ * caller, which closes them.
+ */
+public class ShardedFrontierQueue implements FrontierQueue {
+
+    // Longest a blocking dequeue waits on one shard while the others may have received URIs
+    private static final Duration MAX_SHARD_WAIT = Duration.ofMillis(100);
+
+    private final ShardRing ring;
+    private final List<FrontierQueue> shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    /**
+     * @param shards One queue per shard of the ring, in the ring's shard order.
+     */
+    public ShardedFrontierQueue(ShardRing ring, List<? extends FrontierQueue> shards) {
+        this.ring = Objects.requireNonNull(ring);
+        this.shards = List.copyOf(shards);
+        if (this.shards.size() != ring.shardCount()) {
+            throw new IllegalArgumentException(
+                    "Expected " + ring.shardCount() + " frontier queues but got " + this.shards.size());
+        }
+    }
+
+    @Override
+    public void enqueue(URI uri) {
+        shards.get(ring.shardFor(uri)).enqueue(uri);
+    }
+
+    @Override
+    public void enqueueAll(Collection<URI> uris) {
+        List<List<URI>> partitions = ring.partition(uris);
+        for (int shard = 0; shard < partitions.size(); shard++) {
+            if (!partitions.get(shard).isEmpty()) {
+                shards.get(shard).enqueueAll(partitions.get(shard));
+            }
+        }
+    }
+
+    @Override
+    public URI dequeue() {
+        int start = startShard();
+        for (int i = 0; i < shards.size(); i++) {
+            URI uri = shards.get((start + i) % shards.size()).dequeue();
+            if (uri != null) {
+                return uri;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * No single command can wait on several Redis instances at once, so this checks every shard and then waits on
+     * one of them for a short while, moving on to the next until a URI arrives or the timeout passes.
+     */
+    @Override
+    public URI dequeue(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            URI uri = dequeue();
+            if (uri != null) {
+                return uri;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            Duration wait = Duration.ofNanos(Math.min(remaining, MAX_SHARD_WAIT.toNanos()));
+            uri = shards.get(startShard()).dequeue(wait);
+            if (uri != null) {
+                return uri;
+            }
+        }
+    }
+
+    @Override
+    public List<URI> claim(int maxCount, VisitedRepository visitedRepository) {
+        ShardedVisitedRepository shardedVisited = ShardedVisitedRepository.unwrap(visitedRepository);
+        boolean colocated = shardedVisited != null && shardedVisited.ring() == ring;
+
+        List<URI> claimed = new ArrayList<>();
+        int start = startShard();
+        for (int i = 0; i < shards.size() && claimed.size() < maxCount; i++) {
+            int shard = (start + i) % shards.size();
+            VisitedRepository shardVisited = colocated ? shardedVisited.shard(shard) : visitedRepository;
+            claimed.addAll(shards.get(shard).claim(maxCount - claimed.size(), shardVisited));
+        }
+        return claimed;
+    }
+
+    @Override
+    public void acknowledge(URI uri) {
+        shards.get(ring.shardFor(uri)).acknowledge(uri);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return shards.stream().allMatch(FrontierQueue::isEmpty);
+    }
+
+    private int startShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shards.size());
+    }
+}
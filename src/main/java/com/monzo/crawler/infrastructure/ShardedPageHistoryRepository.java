@@ -0,0 +1,40 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.model.PageHistory;
+import com.monzo.crawler.domain.port.out.PageHistoryRepository;
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Page history spread over several repositories by a {@link ShardRing}, so that each page's history sits on the
+ * same Redis instance as its visited entry.
+ */
+public class ShardedPageHistoryRepository implements PageHistoryRepository {
+
+    private final ShardRing ring;
+    private final List<PageHistoryRepository> shards;
+
+    /**
+     * @param shards One repository per shard of the ring, in the ring's shard order.
+     */
+    public ShardedPageHistoryRepository(ShardRing ring, List<? extends PageHistoryRepository> shards) {
+        this.ring = Objects.requireNonNull(ring);
+        this.shards = List.copyOf(shards);
+        if (this.shards.size() != ring.shardCount()) {
+            throw new IllegalArgumentException(
+                    "Expected " + ring.shardCount() + " page history repositories but got " + this.shards.size());
+        }
+    }
+
+    @Override
+    public Optional<PageHistory> find(URI uri) {
+        return shards.get(ring.shardFor(uri)).find(uri);
+    }
+
+    @Override
+    public void save(URI uri, PageHistory history) {
+        shards.get(ring.shardFor(uri)).save(uri, history);
+    }
+}
@@ -0,0 +1,98 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Visited set spread over several repositories, typically one per Redis instance, by a {@link ShardRing}.
+ * <p>
+ * Each URI lives on exactly one shard, so single-URI calls are one round trip to that shard and batch calls are
+ * one bulk call per shard the batch touches. Built with the same ring as a {@link ShardedFrontierQueue}, a URI's
+ * visited entry sits next to its queue entry and each shard can still claim URIs in a single script.
+ */
+public class ShardedVisitedRepository implements VisitedRepository {
+
+    private final ShardRing ring;
+    private final List<VisitedRepository> shards;
+
+    /**
+     * @param shards One repository per shard of the ring, in the ring's shard order.
+     */
+    public ShardedVisitedRepository(ShardRing ring, List<? extends VisitedRepository> shards) {
+        this.ring = Objects.requireNonNull(ring);
+        this.shards = List.copyOf(shards);
+        if (this.shards.size() != ring.shardCount()) {
+            throw new IllegalArgumentException(
+                    "Expected " + ring.shardCount() + " visited repositories but got " + this.shards.size());
+        }
+    }
+
+    @Override
+    public boolean isVisited(URI uri) {
+        return shards.get(ring.shardFor(uri)).isVisited(uri);
+    }
+
+    @Override
+    public boolean markVisited(URI uri) {
+        return shards.get(ring.shardFor(uri)).markVisited(uri);
+    }
+
+    @Override
+    public Set<URI> isVisitedAll(Collection<URI> uris) {
+        Set<URI> visited = new HashSet<>();
+        List<List<URI>> partitions = ring.partition(uris);
+        for (int shard = 0; shard < partitions.size(); shard++) {
+            if (!partitions.get(shard).isEmpty()) {
+                visited.addAll(shards.get(shard).isVisitedAll(partitions.get(shard)));
+            }
+        }
+        return inInputOrder(uris, visited);
+    }
+
+    @Override
+    public Set<URI> markVisitedAll(Collection<URI> uris) {
+        Set<URI> marked = new HashSet<>();
+        List<List<URI>> partitions = ring.partition(uris);
+        for (int shard = 0; shard < partitions.size(); shard++) {
+            if (!partitions.get(shard).isEmpty()) {
+                marked.addAll(shards.get(shard).markVisitedAll(partitions.get(shard)));
+            }
+        }
+        return inInputOrder(uris, marked);
+    }
+
+    ShardRing ring() {
+        return ring;
+    }
+
+    VisitedRepository shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * Finds the sharded repository behind any near-cache decorators, or null if there is none.
+     */
+    static ShardedVisitedRepository unwrap(VisitedRepository visitedRepository) {
+        VisitedRepository current = visitedRepository;
+        while (current instanceof NearCachedVisitedRepository cached) {
+            current = cached.delegate();
+        }
+        return current instanceof ShardedVisitedRepository sharded ? sharded : null;
+    }
+
+    private static Set<URI> inInputOrder(Collection<URI> uris, Set<URI> selected) {
+        Set<URI> ordered = new LinkedHashSet<>();
+        for (URI uri : uris) {
+            if (selected.contains(uri)) {
+                ordered.add(uri);
+            }
+        }
+        return ordered;
+    }
+}
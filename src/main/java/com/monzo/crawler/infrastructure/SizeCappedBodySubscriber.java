@@ -0,0 +1,238 @@
+package com.monzo.crawler.infrastructure;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body as text, like {@link HttpResponse.BodySubscribers#ofString}, but keeps at most a fixed
+ * number of bytes. Once a body goes over the cap, the text read so far is returned marked as truncated and anything
+ * after it is dropped, so the memory held per response is bounded by the cap however much the server sends.
+ * <p>
+ * A compressed body is decoded as it streams in, with the cap applying to the decoded bytes, so that a small body
+ * inflating to gigabytes is cut off like any other.
+ * <p>
+ * The rest of the download is stopped with {@link Body#discardRest}, which resets the stream (HTTP/2) or closes the
+ * connection (HTTP/1.1). It is left to the caller because the client fails a response whose stream is cancelled
+ * before the response has been handed over.
+ */
+final class SizeCappedBodySubscriber implements HttpResponse.BodySubscriber<SizeCappedBodySubscriber.Body> {
+
+    // Starting buffer size when the response does not declare its length
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    // Largest unwanted body read to the end to keep an HTTP/1.1 connection open, rather than cancelled
+    private static final long MAX_DRAINED_BYTES = 64 * 1024;
+
+    /**
+     * @param text         The body decoded with the charset of its Content-Type, UTF-8 by default; null if skipped.
+     * @param wireBytes    Bytes received, before decoding, until the body completed or was cut off.
+     * @param decodedBytes Bytes those decoded to.
+     * @param truncated    Whether the body went over the cap and only its first part was kept.
+     * @param discardRest  Stops the download of a truncated body; does nothing once the body was read in full.
+     */
+    record Body(String text, long wireBytes, long decodedBytes, boolean truncated, Runnable discardRest) {
+    }
+
+    private final int maxBytes;
+    private final Charset charset;
+    private final ContentDecoder decoder;
+    private final CompletableFuture<Body> result = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+    private byte[] buffer;
+    private int size;
+    private long wireBytes;
+    private long decodedBytes;
+
+    SizeCappedBodySubscriber(int maxBytes, Charset charset, long expectedLength) {
+        this(maxBytes, charset, expectedLength, ContentDecoder.IDENTITY);
+    }
+
+    /**
+     * @param expectedLength Decoded length if known, to size the buffer, otherwise -1.
+     */
+    SizeCappedBodySubscriber(int maxBytes, Charset charset, long expectedLength, ContentDecoder decoder) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Max body size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.charset = charset;
+        this.decoder = decoder;
+        this.buffer = new byte[(int) Math.min(maxBytes, expectedLength > 0 ? expectedLength : INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Reads the body of the given response up to the cap.
+     */
+    static HttpResponse.BodySubscriber<Body> reading(int maxBytes, HttpResponse.ResponseInfo responseInfo) {
+        HttpHeaders headers = responseInfo.headers();
+        ContentDecoder decoder = ContentDecoder.forEncoding(headers.firstValue("Content-Encoding").orElse(""));
+        return new SizeCappedBodySubscriber(
+                maxBytes,
+                charsetOf(headers),
+                // Content-Length is the encoded length, so only a hint when the body is not encoded
+                decoder == ContentDecoder.IDENTITY ? headers.firstValueAsLong("Content-Length").orElse(-1) : -1,
+                decoder);
+    }
+
+    /**
+     * Completes at once with no text, for a response whose body is not wanted. A short body on HTTP/1.1 is read and
+     * thrown away, since stopping it would close a connection that could otherwise be reused; any other body is
+     * stopped by {@link Body#discardRest}.
+     */
+    static HttpResponse.BodySubscriber<Body> skipping(HttpResponse.ResponseInfo responseInfo) {
+        long length = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new Skipping(responseInfo.version() == HttpClient.Version.HTTP_1_1 && length >= 0
+                && length <= MAX_DRAINED_BYTES);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        // Buffers already on their way when the subscription was cancelled
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            for (ByteBuffer item : items) {
+                wireBytes += item.remaining();
+                if (!decoder.decode(item, this::keep)) {
+                    complete(true);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        // Cancelling may itself end the stream with an error after the truncated body is complete
+        if (result.isDone()) {
+            return;
+        }
+        buffer = null;
+        decoder.close();
+        result.completeExceptionally(error);
+    }
+
+    @Override
+    public void onComplete() {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            decoder.finish();
+            complete(false);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<Body> getBody() {
+        return result;
+    }
+
+    // Keeps decoded bytes up to the cap; false once the body goes over it
+    private boolean keep(ByteBuffer decoded) {
+        int remaining = decoded.remaining();
+        decodedBytes += remaining;
+        int kept = Math.min(remaining, maxBytes - size);
+        ensureCapacity(size + kept);
+        decoded.get(buffer, size, kept);
+        size += kept;
+        return kept == remaining;
+    }
+
+    private void complete(boolean truncated) {
+        // A cut-off multi-byte character at the end decodes to a replacement character
+        String text = new String(buffer, 0, size, charset);
+        buffer = null;
+        decoder.close();
+        Runnable discardRest = truncated ? subscription::cancel : () -> { };
+        result.complete(new Body(text, wireBytes, decodedBytes, truncated, discardRest));
+    }
+
+    // Completes before cancelling, so the client reports this error rather than the cancellation
+    private void fail(IOException error) {
+        buffer = null;
+        decoder.close();
+        result.completeExceptionally(error);
+        subscription.cancel();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min(maxBytes, Math.max(capacity, 2L * buffer.length)));
+        }
+    }
+
+    static Charset charsetOf(HttpHeaders headers) {
+        String contentType = headers.firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String[] nameAndValue = parameter.split("=", 2);
+            if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(nameAndValue[1].trim().replace("\"", ""));
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static final class Skipping implements HttpResponse.BodySubscriber<Body> {
+
+        private final boolean drain;
+        private final CompletableFuture<Body> result = new CompletableFuture<>();
+
+        private Skipping(boolean drain) {
+            this.drain = drain;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+            result.complete(new Body(null, 0, 0, false, drain ? () -> { } : subscription::cancel));
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            // Dropped unread
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // Also reached when the stream is cancelled; the response is already complete
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public CompletionStage<Body> getBody() {
+            return result;
+        }
+    }
+}
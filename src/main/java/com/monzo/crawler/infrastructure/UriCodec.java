@@ -0,0 +1,19 @@
+package com.monzo.crawler.infrastructure;
+
+import java.net.URI;
+
+/**
+ * Converts URIs to and from the bytes the Redis adapters store. Adapters that share keys, such as a frontier
+ * that checks the visited set inside a script, must use the same codec.
+ */
+public interface UriCodec {
+
+    /**
+     * Stores {@code uri.toString()} as UTF-8, readable with redis-cli and by adapters that work with plain strings.
+     */
+    UriCodec PLAIN = new PlainUriCodec();
+
+    byte[] encode(URI uri);
+
+    URI decode(byte[] bytes);
+}
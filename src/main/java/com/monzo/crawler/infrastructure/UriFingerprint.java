@@ -0,0 +1,33 @@
+package com.monzo.crawler.infrastructure;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 64-bit fingerprints of URIs, so that visited state can be kept as primitive longs instead of strings.
+ * <p>
+ * A collision makes the second URI look visited, so it is never crawled. Among n URIs the chance of any collision
+ * is about n^2 / 2^65: under one in a million at 5 million URIs, about one in 3,700 at 100 million and about
+ * 3% at a billion. The expected number of URIs lost that way stays below one until roughly 6 billion.
+ */
+final class UriFingerprint {
+
+    private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+
+    private UriFingerprint() {
+    }
+
+    static long of(URI uri) {
+        return FINGERPRINT.hashString(uri.toString(), StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * The fingerprint as 8 big-endian bytes, for storing as a binary Redis member.
+     */
+    static byte[] bytes(URI uri) {
+        return Longs.toByteArray(of(uri));
+    }
+}
@@ -5,7 +5,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.UUID;
 
 /**
  * Configuration loader that reads from application.properties and environment variables
@@ -80,19 +83,172 @@ public class ConfigurationLoader {
         }
     }
 
-    public String getRedisUrl() {
-        return getProperty("crawler.redis.url", "redis://localhost:6379");
+    public double getDoubleProperty(String key, double defaultValue) {
+        String value = getProperty(key, String.valueOf(defaultValue));
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid double value for property {}: {}. Using default: {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * One Redis URL, or several separated by commas to shard crawl state across that many instances
+     */
+    public List<String> getRedisUrls() {
+        return Arrays.stream(getProperty("crawler.redis.url", "redis://localhost:6379").split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+    }
+
+    /**
+     * How URIs are assigned to Redis shards: "host" (each host on one shard, keeping its queue order and politeness)
+     * or "uri" (spread individually, so a single-site crawl also uses every shard)
+     */
+    public String getRedisShardRouting() {
+        return getProperty("crawler.redis.shard.routing", "host").trim().toLowerCase();
+    }
+
+    /**
+     * Where crawl state lives: "redis" (shared, survives restarts) or "memory" (single process, no Redis needed)
+     */
+    public String getStateBackend() {
+        return getProperty("crawler.state.backend", "redis").trim().toLowerCase();
+    }
+
+    /**
+     * How URIs are stored in Redis: "plain" strings or "compact" (origin dictionary plus packed path; fifo only)
+     */
+    public String getUriCodec() {
+        return getProperty("crawler.redis.uri.codec", "plain").trim().toLowerCase();
+    }
+
+    /**
+     * Number of known-visited URIs each crawler remembers locally in front of Redis; 0 disables the near-cache
+     */
+    public long getVisitedCacheSize() {
+        return getLongProperty("crawler.visited.cache.size", 10_000);
+    }
+
+    /**
+     * Whether Redis tells each crawler to drop its visited cache when the shared visited state is reset (CLIENT TRACKING)
+     */
+    public boolean isVisitedCacheTracking() {
+        return Boolean.parseBoolean(getProperty("crawler.visited.cache.tracking", "false").trim());
+    }
+
+    /**
+     * How visited URIs are kept in Redis: "set" (exact), "fingerprint" (8-byte hashes, negligible collision rate),
+     * "buckets" (fingerprints in many small compactly encoded sets), "bloom" (fixed size, small false-positive rate)
+     * or "timestamped" (last crawl time per URI, recrawling pages older than a maximum age)
+     */
+    public String getVisitedStrategy() {
+        return getProperty("crawler.visited.strategy", "set").trim().toLowerCase();
+    }
+
+    /**
+     * Where the memory state backend keeps visited fingerprints: "heap", "offheap" (native memory, no GC cost)
+     * or "mapped" (a memory-mapped file that is kept between runs, along with the "disk" frontier it requires)
+     */
+    public String getMemoryVisitedStore() {
+        return getProperty("crawler.memory.visited.store", "heap").trim().toLowerCase();
+    }
+
+    public String getVisitedStoreFile() {
+        return getProperty("crawler.visited.store.file", "visited.db");
+    }
+
+    public long getVisitedCheckpointSeconds() {
+        return getLongProperty("crawler.visited.checkpoint.seconds", 30);
+    }
+
+    /**
+     * URLs the crawl is expected to visit, which sizes the "bloom" and "buckets" visited strategies
+     * and a new "mapped" visited store
+     */
+    public long getVisitedExpectedUrls() {
+        return getLongProperty("crawler.visited.expected.urls", 10_000_000);
+    }
+
+    /**
+     * How long after its last crawl a page is crawled again, for the "timestamped" visited strategy
+     */
+    public long getVisitedMaxAgeMinutes() {
+        return getLongProperty("crawler.visited.max.age.minutes", 1440);
+    }
+
+    public double getVisitedBloomFalsePositiveRate() {
+        return getDoubleProperty("crawler.visited.bloom.false.positive.rate", 0.001);
     }
 
     public int getMaxConcurrentRequests() {
         return getIntProperty("crawler.max.concurrent.requests", 90);
     }
 
+    /**
+     * Crawl engine: "threads" (a virtual thread per page, blocking fetches) or "async" (non-blocking fetches
+     * chained with link extraction, max concurrent requests being the in-flight window).
+     */
+    public String getCrawlEngine() {
+        return getProperty("crawler.engine", "threads").trim().toLowerCase();
+    }
+
     public long getHttpTimeoutSeconds() {
         return getLongProperty("crawler.http.timeout.seconds", 5);
     }
 
+    /**
+     * Largest response body kept per page; longer bodies are cut off and reported as truncated.
+     */
+    public int getMaxBodyBytes() {
+        return getIntProperty("crawler.http.max.body.bytes", 10 * 1024 * 1024);
+    }
+
+    /**
+     * Whether to keep each page's validators and links in Redis and fetch pages conditionally on later crawls.
+     */
+    public boolean isConditionalRequests() {
+        return Boolean.parseBoolean(getProperty("crawler.conditional.requests", "false").trim());
+    }
+
     public String getUserAgent() {
         return getProperty("crawler.user.agent", "Monzo-Java-Crawler/1.0");
     }
+
+    /**
+     * Frontier ordering: "fifo" (single Redis list, BFS), "host" (per-host queues with a politeness delay),
+     * "priority" (best-first by URI cost and in-link count), "disk" (BFS spilled to local segment files)
+     * or "stream" (Redis stream shared by several crawlers with at-least-once delivery)
+     */
+    public String getFrontierStrategy() {
+        return getProperty("crawler.frontier.strategy", "fifo").trim().toLowerCase();
+    }
+
+    /**
+     * Parent directory for the segment files of the "disk" frontier strategy, unless a "mapped" visited store
+     * keeps them next to its file
+     */
+    public String getFrontierSpillDirectory() {
+        return getProperty("crawler.frontier.spill.dir", System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Consumer name of this crawler in the "stream" frontier's consumer group; must be unique per running crawler
+     */
+    public String getFrontierConsumerName() {
+        return getProperty("crawler.frontier.consumer", "crawler-" + UUID.randomUUID());
+    }
+
+    /**
+     * How long a "stream" frontier entry may stay unacknowledged before another crawler takes it over
+     */
+    public long getFrontierReclaimIdleMillis() {
+        return getLongProperty("crawler.frontier.reclaim.idle.ms", 60_000);
+    }
+
+    public long getPolitenessDelayMillis() {
+        return getLongProperty("crawler.politeness.delay.ms", 100);
+    }
 }
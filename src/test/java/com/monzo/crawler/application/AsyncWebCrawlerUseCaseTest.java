@@ -0,0 +1,140 @@
+package com.monzo.crawler.application;
+
+import com.monzo.crawler.domain.service.CrawlStateService;
+import com.monzo.crawler.domain.service.PageProcessingService;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.testcontainers.shaded.org.awaitility.Awaitility.await;
+
+class AsyncWebCrawlerUseCaseTest {
+
+    private final PageProcessingService pageProcessingService = mock(PageProcessingService.class);
+    private final CrawlStateService crawlStateService = mock(CrawlStateService.class);
+
+    private static final URI START_URI = URI.create("https://example.com");
+
+    // Pages dispatched so far, completed by each test when it chooses
+    private final Map<URI, CompletableFuture<Void>> dispatched = new ConcurrentHashMap<>();
+
+    @Test
+    void shouldProcessClaimedUrisAndFinishWhenFrontierIsEmpty() {
+        // Given
+        List<URI> uris = pages(3);
+        when(crawlStateService.claimNextUris(anyInt())).thenReturn(uris).thenReturn(List.of());
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+        when(pageProcessingService.processPageAsync(any(), any(Executor.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        new AsyncWebCrawlerUseCase(pageProcessingService, crawlStateService, 10).crawl(START_URI);
+
+        // Then
+        verify(crawlStateService).tryAddToFrontier(START_URI);
+        uris.forEach(uri -> verify(pageProcessingService).processPageAsync(eq(uri), any(Executor.class)));
+    }
+
+    @Test
+    void shouldKeepAtMostTheWindowOfPagesInFlight() throws Exception {
+        // Given
+        List<URI> uris = pages(5);
+        when(crawlStateService.claimNextUris(anyInt())).thenReturn(uris).thenReturn(List.of());
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+        trackDispatchedPages();
+
+        // When
+        Thread crawl = Thread.ofVirtual().start(
+                () -> new AsyncWebCrawlerUseCase(pageProcessingService, crawlStateService, 2).crawl(START_URI));
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> dispatched.size() == 2);
+        Thread.sleep(100);
+        assertThat(dispatched).containsOnlyKeys(uris.get(0), uris.get(1));
+
+        dispatched.get(uris.get(0)).complete(null);
+        await().atMost(Duration.ofSeconds(5)).until(() -> dispatched.size() == 3);
+        assertThat(dispatched).containsKey(uris.get(2));
+
+        uris.forEach(uri -> await().atMost(Duration.ofSeconds(5)).until(() -> completeIfDispatched(uri)));
+        assertThat(crawl.join(Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    void shouldNotFinishWhilePageIsStillInFlight() throws Exception {
+        // Given - the frontier is empty, but the page in flight may still enqueue links
+        when(crawlStateService.claimNextUris(anyInt())).thenReturn(List.of(START_URI)).thenReturn(List.of());
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+        trackDispatchedPages();
+
+        // When
+        Thread crawl = Thread.ofVirtual().start(
+                () -> new AsyncWebCrawlerUseCase(pageProcessingService, crawlStateService, 10).crawl(START_URI));
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> dispatched.containsKey(START_URI));
+        assertThat(crawl.join(Duration.ofMillis(500))).isFalse();
+
+        dispatched.get(START_URI).complete(null);
+        assertThat(crawl.join(Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    void shouldFreeWindowSlotWhenAcknowledgingFails() {
+        // Given
+        List<URI> uris = pages(3);
+        when(crawlStateService.claimNextUris(anyInt())).thenReturn(uris).thenReturn(List.of());
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+        when(pageProcessingService.processPageAsync(any(), any(Executor.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Redis down")));
+
+        // When
+        new AsyncWebCrawlerUseCase(pageProcessingService, crawlStateService, 1).crawl(START_URI);
+
+        // Then
+        verify(pageProcessingService, times(3)).processPageAsync(any(), any(Executor.class));
+    }
+
+    @Test
+    void shouldRejectNonPositiveWindow() {
+        assertThatThrownBy(() -> new AsyncWebCrawlerUseCase(pageProcessingService, crawlStateService, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectNullDependencies() {
+        assertThatThrownBy(() -> new AsyncWebCrawlerUseCase(null, crawlStateService, 10))
+                .isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> new AsyncWebCrawlerUseCase(pageProcessingService, null, 10))
+                .isInstanceOf(NullPointerException.class);
+    }
+
+    private void trackDispatchedPages() {
+        when(pageProcessingService.processPageAsync(any(), any(Executor.class))).thenAnswer(invocation -> {
+            CompletableFuture<Void> page = new CompletableFuture<>();
+            dispatched.put(invocation.getArgument(0), page);
+            return page;
+        });
+    }
+
+    private boolean completeIfDispatched(URI uri) {
+        CompletableFuture<Void> page = dispatched.get(uri);
+        return page != null && (page.complete(null) || page.isDone());
+    }
+
+    private static List<URI> pages(int count) {
+        return IntStream.range(0, count).mapToObj(i -> URI.create("https://example.com/page" + i)).toList();
+    }
+}
@@ -5,12 +5,16 @@ import com.monzo.crawler.domain.service.PageProcessingService;
 import org.junit.jupiter.api.Test;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.intThat;
 import static org.mockito.Mockito.*;
 
 class WebCrawlerUseCaseTest {
@@ -85,7 +89,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldAddStartUriToFrontierWhenCrawlStarts() {
         // Given
-        when(crawlStateService.getNextUri()).thenReturn(null);
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
         when(crawlStateService.isFrontierEmpty()).thenReturn(true);
 
         // When
@@ -98,7 +102,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldProcessSingleUriWhenOnlyOneUriInFrontier() {
         // Given
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(START_URI)
                 .thenReturn(null);
         when(crawlStateService.markAsVisited(START_URI)).thenReturn(true);
@@ -115,7 +119,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldNotProcessUriWhenAlreadyVisited() {
         // Given
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(START_URI)
                 .thenReturn(null);
         when(crawlStateService.markAsVisited(START_URI)).thenReturn(false); // Already visited
@@ -132,7 +136,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldProcessMultipleUrisWhenMultipleUrisInFrontier() {
         // Given
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(PAGE_1_URI)
                 .thenReturn(PAGE_2_URI)
                 .thenReturn(null);
@@ -153,7 +157,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldSkipAlreadyVisitedUrisInMultipleUriScenario() {
         // Given
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(PAGE_1_URI)
                 .thenReturn(PAGE_2_URI)
                 .thenReturn(null);
@@ -171,13 +175,30 @@ class WebCrawlerUseCaseTest {
         verify(crawlStateService).markAsVisited(PAGE_2_URI);
     }
 
+    @Test
+    void shouldAcknowledgeDequeuedUriThatWasAlreadyVisited() {
+        // Given
+        when(crawlStateService.getNextUri(any(Duration.class)))
+                .thenReturn(PAGE_1_URI)
+                .thenReturn(null);
+        when(crawlStateService.markAsVisited(PAGE_1_URI)).thenReturn(false);
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+
+        // When
+        webCrawler.crawl(START_URI);
+
+        // Then
+        verify(crawlStateService).acknowledge(PAGE_1_URI);
+        verify(pageProcessingService, never()).processPage(PAGE_1_URI);
+    }
+
     @Test
     void shouldWaitForTasksToCompleteWhenFrontierBecomesEmpty() throws InterruptedException {
         // Given
         CountDownLatch processingStarted = new CountDownLatch(1);
         CountDownLatch processingCanFinish = new CountDownLatch(1);
 
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(PAGE_1_URI)
                 .thenReturn(null)  // First time frontier is empty
                 .thenReturn(null); // Second time frontier is still empty
@@ -222,7 +243,7 @@ class WebCrawlerUseCaseTest {
         URI uri2 = URI.create("https://example.com/page2");
         URI uri3 = URI.create("https://example.com/page3");
 
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(uri1)
                 .thenReturn(uri2)
                 .thenReturn(uri3)
@@ -275,7 +296,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldHandleInterruptedExceptionGracefully() {
         // Given
-        when(crawlStateService.getNextUri()).thenReturn(PAGE_1_URI).thenReturn(null);
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(PAGE_1_URI).thenReturn(null);
         when(crawlStateService.markAsVisited(PAGE_1_URI)).thenReturn(true);
         when(crawlStateService.isFrontierEmpty()).thenReturn(true);
 
@@ -299,7 +320,7 @@ class WebCrawlerUseCaseTest {
         CountDownLatch firstProcessingStarted = new CountDownLatch(1);
         CountDownLatch firstProcessingCanFinish = new CountDownLatch(1);
 
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(PAGE_1_URI)
                 .thenReturn(null)     // First check - frontier empty
                 .thenReturn(PAGE_2_URI) // After waiting, new URI appears
@@ -341,7 +362,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldCompleteSuccessfullyWhenNoUrisInFrontier() {
         // Given
-        when(crawlStateService.getNextUri()).thenReturn(null);
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
         when(crawlStateService.isFrontierEmpty()).thenReturn(true);
 
         // When
@@ -349,14 +370,14 @@ class WebCrawlerUseCaseTest {
 
         // Then
         verify(crawlStateService).tryAddToFrontier(START_URI);
-        verify(crawlStateService).getNextUri();
+        verify(crawlStateService).getNextUri(any(Duration.class));
         verify(pageProcessingService, never()).processPage(any());
     }
 
     @Test
     void shouldCallServicesInCorrectOrder() {
         // Given
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(START_URI)
                 .thenReturn(null);
         when(crawlStateService.markAsVisited(START_URI)).thenReturn(true);
@@ -368,7 +389,7 @@ class WebCrawlerUseCaseTest {
         // Then - verify the order of operations
         var inOrder = inOrder(crawlStateService, pageProcessingService);
         inOrder.verify(crawlStateService).tryAddToFrontier(START_URI);
-        inOrder.verify(crawlStateService).getNextUri();
+        inOrder.verify(crawlStateService).getNextUri(any(Duration.class));
         inOrder.verify(crawlStateService).markAsVisited(START_URI);
         inOrder.verify(pageProcessingService).processPage(START_URI);
     }
@@ -376,7 +397,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldHandleNullUriFromGetNextUri() {
         // Given
-        when(crawlStateService.getNextUri()).thenReturn(null);
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
         when(crawlStateService.isFrontierEmpty()).thenReturn(true);
 
         // When
@@ -384,7 +405,7 @@ class WebCrawlerUseCaseTest {
 
         // Then
         verify(crawlStateService).tryAddToFrontier(START_URI);
-        verify(crawlStateService).getNextUri();
+        verify(crawlStateService).getNextUri(any(Duration.class));
         verify(crawlStateService, never()).markAsVisited(any());
         verify(pageProcessingService, never()).processPage(any());
     }
@@ -392,7 +413,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldContinueProcessingEvenWhenSomeTasksFail() {
         // Given
-        when(crawlStateService.getNextUri())
+        when(crawlStateService.getNextUri(any(Duration.class)))
                 .thenReturn(PAGE_1_URI)
                 .thenReturn(PAGE_2_URI)
                 .thenReturn(null);
@@ -415,7 +436,7 @@ class WebCrawlerUseCaseTest {
     @Test
     void shouldHandleNullStartUri() {
         // Given
-        when(crawlStateService.getNextUri()).thenReturn(null);
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
         when(crawlStateService.isFrontierEmpty()).thenReturn(true);
 
         // When
@@ -424,4 +445,113 @@ class WebCrawlerUseCaseTest {
         // Then
         verify(crawlStateService).tryAddToFrontier(null);
     }
+
+    @Test
+    void shouldUseBlockingDequeueWithPositiveTimeout() {
+        // Given
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+
+        // When
+        webCrawler.crawl(START_URI);
+
+        // Then
+        verify(crawlStateService).getNextUri(argThat((Duration timeout) -> timeout.isPositive()));
+        verify(crawlStateService, never()).getNextUri();
+    }
+
+    @Test
+    void shouldNotFinishWhileTasksAreInFlightEvenIfFrontierIsEmpty() throws InterruptedException {
+        // Given - the frontier looks empty while PAGE_1 is still being processed
+        CountDownLatch processingStarted = new CountDownLatch(1);
+        CountDownLatch processingCanFinish = new CountDownLatch(1);
+
+        when(crawlStateService.getNextUri(any(Duration.class)))
+                .thenReturn(PAGE_1_URI)
+                .thenReturn(null);
+        when(crawlStateService.markAsVisited(PAGE_1_URI)).thenReturn(true);
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+
+        doAnswer(invocation -> {
+            processingStarted.countDown();
+            assertTrue(processingCanFinish.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(pageProcessingService).processPage(PAGE_1_URI);
+
+        // When
+        Thread crawlThread = new Thread(() -> webCrawler.crawl(START_URI));
+        crawlThread.start();
+        assertTrue(processingStarted.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        // Then - still running until the in-flight task completes
+        assertTrue(crawlThread.isAlive());
+
+        processingCanFinish.countDown();
+        crawlThread.join(5000);
+        assertFalse(crawlThread.isAlive());
+    }
+
+    @Test
+    void shouldDispatchClaimedBatchWithoutMarkingEachUri() {
+        // Given
+        when(crawlStateService.claimNextUris(anyInt()))
+                .thenReturn(List.of(PAGE_1_URI, PAGE_2_URI))
+                .thenReturn(List.of());
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+
+        // When
+        webCrawler.crawl(START_URI);
+
+        // Then
+        verify(pageProcessingService).processPage(PAGE_1_URI);
+        verify(pageProcessingService).processPage(PAGE_2_URI);
+        verify(crawlStateService, never()).markAsVisited(any());
+    }
+
+    @Test
+    void shouldClaimUpToMaxConcurrentRequestsAtOnce() {
+        // Given
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+
+        // When
+        webCrawler.crawl(START_URI);
+
+        // Then
+        verify(crawlStateService).claimNextUris(MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    void shouldClaimNoMoreUrisThanFreeRequestSlots() throws InterruptedException {
+        // Given - the first page holds one of the two slots
+        CountDownLatch firstPageStarted = new CountDownLatch(1);
+        CountDownLatch firstPageCanFinish = new CountDownLatch(1);
+        when(crawlStateService.claimNextUris(anyInt()))
+                .thenReturn(List.of(PAGE_1_URI))
+                .thenReturn(List.of(PAGE_2_URI))
+                .thenReturn(List.of());
+        when(crawlStateService.getNextUri(any(Duration.class))).thenReturn(null);
+        when(crawlStateService.isFrontierEmpty()).thenReturn(true);
+        doAnswer(invocation -> {
+            firstPageStarted.countDown();
+            assertTrue(firstPageCanFinish.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(pageProcessingService).processPage(PAGE_1_URI);
+
+        // When
+        Thread crawlThread = new Thread(() -> webCrawler.crawl(START_URI));
+        crawlThread.start();
+        assertTrue(firstPageStarted.await(5, TimeUnit.SECONDS));
+        verify(pageProcessingService, timeout(5000)).processPage(PAGE_2_URI);
+        firstPageCanFinish.countDown();
+        crawlThread.join(5000);
+
+        // Then
+        assertFalse(crawlThread.isAlive());
+        verify(crawlStateService, atLeastOnce()).claimNextUris(MAX_CONCURRENT_REQUESTS);
+        verify(crawlStateService, atLeastOnce()).claimNextUris(1);
+        verify(crawlStateService, never()).claimNextUris(intThat(count -> count > MAX_CONCURRENT_REQUESTS));
+    }
 }
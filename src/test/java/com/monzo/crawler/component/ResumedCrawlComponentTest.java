@@ -0,0 +1,106 @@
+package com.monzo.crawler.component;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.monzo.crawler.application.WebCrawlerUseCase;
+import com.monzo.crawler.domain.port.out.CrawlObserver;
+import com.monzo.crawler.domain.service.CrawlStateService;
+import com.monzo.crawler.domain.service.PageProcessingService;
+import com.monzo.crawler.domain.service.UriProcessingService;
+import com.monzo.crawler.infrastructure.*;
+import com.monzo.crawler.infrastructure.config.TestWireMockConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Restarts a crawl whose state is kept by the memory backend's file-backed stores, without Redis.
+ */
+class ResumedCrawlComponentTest {
+
+    private static final String ALLOWED_DOMAIN = "localhost";
+    private static final int MAX_CONCURRENT_REQUESTS = 10;
+
+    @TempDir
+    Path tempDir;
+
+    private WireMockServer wireMockServer;
+    private String mockServerUrl;
+    private Path visitedStoreFile;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = TestWireMockConfiguration.createWireMockServer();
+        mockServerUrl = TestWireMockConfiguration.getBaseUrl(wireMockServer);
+        TestWireMockConfiguration.setupWebsiteStubs(wireMockServer);
+        visitedStoreFile = tempDir.resolve("visited.db");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestWireMockConfiguration.stopServer(wireMockServer);
+    }
+
+    @Test
+    void shouldContinueCrawlAfterProcessStoppedMidway() {
+        // Given - the first run crawls the start page, claims another and dies without closing anything
+        URI startUri = URI.create(mockServerUrl + "/");
+        Set<String> crawledBeforeRestart = ConcurrentHashMap.newKeySet();
+        var firstVisited = new MappedVisitedRepository(visitedStoreFile, 1_000, Duration.ofMinutes(1));
+        var firstFrontier = DiskSpillingFrontierQueue.open(tempDir.resolve("visited.db.frontier"));
+        var firstState = new CrawlStateService(firstFrontier, firstVisited, new UriProcessingService(ALLOWED_DOMAIN));
+        firstState.tryAddToFrontier(startUri);
+        List<URI> startPage = firstState.claimNextUris(1);
+        pageProcessingService(firstState, recordingObserver(crawledBeforeRestart)).processPage(startPage.getFirst());
+        List<URI> interrupted = firstState.claimNextUris(1);
+
+        // When - the crawl is started again on the same files
+        Set<String> crawledAfterRestart = ConcurrentHashMap.newKeySet();
+        try (var visited = new MappedVisitedRepository(visitedStoreFile, 1_000, Duration.ofMinutes(1));
+             var frontier = DiskSpillingFrontierQueue.open(tempDir.resolve("visited.db.frontier"))) {
+            var state = new CrawlStateService(frontier, visited, new UriProcessingService(ALLOWED_DOMAIN));
+            var webCrawler = new WebCrawlerUseCase(
+                    pageProcessingService(state, recordingObserver(crawledAfterRestart)),
+                    state,
+                    MAX_CONCURRENT_REQUESTS
+            );
+            webCrawler.crawl(startUri);
+        }
+
+        // Then - the rest of the site is crawled, including the page that was in flight, and the start page once
+        assertThat(crawledBeforeRestart).containsExactly("/");
+        assertThat(crawledAfterRestart).contains(interrupted.getFirst().getPath());
+        assertThat(crawledAfterRestart).containsExactlyInAnyOrder("/about", "/products", "/products/widget1",
+                "/products/widget2", "/contact", "/blog", "/blog/post1", "/team");
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/")));
+    }
+
+    private static PageProcessingService pageProcessingService(CrawlStateService state, CrawlObserver observer) {
+        return new PageProcessingService(
+                new HttpClientPageFetcher(Duration.ofSeconds(5)), new JsoupLinkExtractor(), observer, state);
+    }
+
+    private static CrawlObserver recordingObserver(Set<String> crawledPaths) {
+        return new CrawlObserver() {
+            @Override
+            public void onPageCrawled(URI pageUri, Set<URI> links) {
+                crawledPaths.add(pageUri.getPath());
+            }
+
+            @Override
+            public void onCrawlFailed(URI pageUri, String reason, Throwable error) {
+            }
+        };
+    }
+}
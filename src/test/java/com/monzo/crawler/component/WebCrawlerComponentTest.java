@@ -44,6 +44,8 @@ class WebCrawlerComponentTest {
     private static WireMockServer wireMockServer;
     private static String mockServerUrl;
     private static RedisCommands<String, String> redis;
+    private static RedisCommands<byte[], byte[]> binaryRedis;
+    private static TestRedisConfiguration.TestRedisSetup blockingRedisSetup;
 
     private WebCrawlerUseCase webCrawler;
     private TestCrawlObserver crawlObserver;
@@ -56,6 +58,10 @@ class WebCrawlerComponentTest {
 
         // Create shared Redis connection ONCE for all tests
         redis = TestRedisConfiguration.getSharedCommands(redisContainer);
+        binaryRedis = TestRedisConfiguration.getSharedBinaryCommands(redisContainer);
+
+        // Dedicated connection for the frontier's blocking pops, so they never stall the shared one
+        blockingRedisSetup = TestRedisConfiguration.createDedicatedTestSetup(redisContainer);
 
         logger.info("Redis container started on port: {}", redisContainer.getMappedPort(6379));
         logger.info("WireMock server started once for all tests at: {}", mockServerUrl);
@@ -64,6 +70,7 @@ class WebCrawlerComponentTest {
     @AfterAll
     static void tearDownClass() {
         TestWireMockConfiguration.stopServer(wireMockServer);
+        blockingRedisSetup.close();
         TestRedisConfiguration.closeSharedResources(); // Close shared Redis resources ONCE
         logger.info("WireMock server stopped and Redis resources cleaned up");
     }
@@ -85,8 +92,8 @@ class WebCrawlerComponentTest {
 
     private void createWebCrawler() {
         // Infrastructure components using the SAME Redis connection
-        var visitedRepository = new RedisVisitedRepository(redis);
-        var frontierQueue = new RedisFrontierQueue(redis);
+        var visitedRepository = new RedisVisitedRepository(binaryRedis);
+        var frontierQueue = new RedisFrontierQueue(binaryRedis, blockingRedisSetup.getBinaryCommands());
         var pageFetcher = new HttpClientPageFetcher(Duration.ofSeconds(5));
         var linkExtractor = new JsoupLinkExtractor();
 
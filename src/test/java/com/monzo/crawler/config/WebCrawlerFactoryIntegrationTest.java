@@ -30,8 +30,8 @@ class WebCrawlerFactoryIntegrationTest {
     @BeforeEach
     void setUp() {
         redisSetup = TestRedisConfiguration.createTestSetup(redis);
-        frontierQueue = new RedisFrontierQueue(redisSetup.getCommands());
-        visitedRepository = new RedisVisitedRepository(redisSetup.getCommands());
+        frontierQueue = new RedisFrontierQueue(redisSetup.getBinaryCommands());
+        visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
     }
 
     @AfterEach
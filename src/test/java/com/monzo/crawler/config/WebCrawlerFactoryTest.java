@@ -1,5 +1,6 @@
 package com.monzo.crawler.config;
 
+import com.monzo.crawler.application.AsyncWebCrawlerUseCase;
 import com.monzo.crawler.application.WebCrawlerUseCase;
 import com.monzo.crawler.domain.port.out.*;
 import org.junit.jupiter.api.Test;
@@ -118,6 +119,29 @@ class WebCrawlerFactoryTest {
         assertThat(result).isInstanceOf(WebCrawlerUseCase.class);
     }
 
+    @Test
+    void shouldCreateAsyncWebCrawlerForValidUri() {
+        // Given
+        URI validUri = URI.create("https://example.com/page");
+
+        // When
+        AsyncWebCrawlerUseCase result = factory.createAsyncForUri(validUri);
+
+        // Then
+        assertThat(result).isNotNull();
+    }
+
+    @Test
+    void shouldRejectUriWithNullHostForAsyncWebCrawler() {
+        // Given
+        URI invalidUri = URI.create("file:///local/path");
+
+        // When & Then
+        assertThatThrownBy(() -> factory.createAsyncForUri(invalidUri))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid URI - no host found");
+    }
+
     @Test
     void shouldHandleDifferentDomains() {
         // Given
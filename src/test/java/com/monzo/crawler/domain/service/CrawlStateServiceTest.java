@@ -5,6 +5,8 @@ import com.monzo.crawler.domain.port.out.VisitedRepository;
 import org.junit.jupiter.api.Test;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -111,6 +113,7 @@ class CrawlStateServiceTest {
         assertTrue(result.isEmpty());
         verify(uriProcessingService, never()).normalizeUri(any());
         verify(frontierQueue, never()).enqueue(any());
+        verify(frontierQueue, never()).enqueueAll(any());
     }
 
     @Test
@@ -127,8 +130,7 @@ class CrawlStateServiceTest {
         when(uriProcessingService.normalizeUri(link2)).thenReturn(normalizedLink2);
         when(uriProcessingService.isValidForCrawling(normalizedLink1)).thenReturn(true);
         when(uriProcessingService.isValidForCrawling(normalizedLink2)).thenReturn(true);
-        when(visitedRepository.isVisited(normalizedLink1)).thenReturn(false);
-        when(visitedRepository.isVisited(normalizedLink2)).thenReturn(false);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of());
 
         // When
         Set<URI> result = crawlStateService.processDiscoveredLinks(discoveredLinks);
@@ -137,8 +139,8 @@ class CrawlStateServiceTest {
         assertEquals(2, result.size());
         assertTrue(result.contains(normalizedLink1));
         assertTrue(result.contains(normalizedLink2));
-        verify(frontierQueue).enqueue(normalizedLink1);
-        verify(frontierQueue).enqueue(normalizedLink2);
+        verify(frontierQueue).enqueueAll(Set.of(normalizedLink1, normalizedLink2));
+        verify(frontierQueue, never()).enqueue(any());
     }
 
     @Test
@@ -155,7 +157,7 @@ class CrawlStateServiceTest {
         when(uriProcessingService.normalizeUri(invalidLink)).thenReturn(normalizedInvalidLink);
         when(uriProcessingService.isValidForCrawling(normalizedValidLink)).thenReturn(true);
         when(uriProcessingService.isValidForCrawling(normalizedInvalidLink)).thenReturn(false);
-        when(visitedRepository.isVisited(normalizedValidLink)).thenReturn(false);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of());
 
         // When
         Set<URI> result = crawlStateService.processDiscoveredLinks(discoveredLinks);
@@ -164,8 +166,7 @@ class CrawlStateServiceTest {
         assertEquals(1, result.size());
         assertTrue(result.contains(normalizedValidLink));
         assertFalse(result.contains(normalizedInvalidLink));
-        verify(frontierQueue).enqueue(normalizedValidLink);
-        verify(frontierQueue, never()).enqueue(normalizedInvalidLink);
+        verify(frontierQueue).enqueueAll(Set.of(normalizedValidLink));
     }
 
     @Test
@@ -182,8 +183,7 @@ class CrawlStateServiceTest {
         when(uriProcessingService.normalizeUri(visitedLink)).thenReturn(normalizedVisitedLink);
         when(uriProcessingService.isValidForCrawling(normalizedUnvisitedLink)).thenReturn(true);
         when(uriProcessingService.isValidForCrawling(normalizedVisitedLink)).thenReturn(true);
-        when(visitedRepository.isVisited(normalizedUnvisitedLink)).thenReturn(false);
-        when(visitedRepository.isVisited(normalizedVisitedLink)).thenReturn(true);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of(normalizedVisitedLink));
 
         // When
         Set<URI> result = crawlStateService.processDiscoveredLinks(discoveredLinks);
@@ -192,8 +192,7 @@ class CrawlStateServiceTest {
         assertEquals(1, result.size());
         assertTrue(result.contains(normalizedUnvisitedLink));
         assertFalse(result.contains(normalizedVisitedLink));
-        verify(frontierQueue).enqueue(normalizedUnvisitedLink);
-        verify(frontierQueue, never()).enqueue(normalizedVisitedLink);
+        verify(frontierQueue).enqueueAll(Set.of(normalizedUnvisitedLink));
     }
 
     @Test
@@ -208,12 +207,11 @@ class CrawlStateServiceTest {
         // Setup mocks for valid unvisited link
         when(uriProcessingService.normalizeUri(validUnvisitedLink)).thenReturn(validUnvisitedLink);
         when(uriProcessingService.isValidForCrawling(validUnvisitedLink)).thenReturn(true);
-        when(visitedRepository.isVisited(validUnvisitedLink)).thenReturn(false);
 
         // Setup mocks for valid visited link
         when(uriProcessingService.normalizeUri(validVisitedLink)).thenReturn(validVisitedLink);
         when(uriProcessingService.isValidForCrawling(validVisitedLink)).thenReturn(true);
-        when(visitedRepository.isVisited(validVisitedLink)).thenReturn(true);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of(validVisitedLink));
 
         // Setup mocks for invalid link
         when(uriProcessingService.normalizeUri(invalidLink)).thenReturn(invalidLink);
@@ -225,9 +223,60 @@ class CrawlStateServiceTest {
         // Then
         assertEquals(1, result.size());
         assertTrue(result.contains(validUnvisitedLink));
-        verify(frontierQueue).enqueue(validUnvisitedLink);
-        verify(frontierQueue, never()).enqueue(validVisitedLink);
-        verify(frontierQueue, never()).enqueue(invalidLink);
+        verify(frontierQueue).enqueueAll(Set.of(validUnvisitedLink));
+    }
+
+    @Test
+    void processDiscoveredLinksShouldNotEnqueueWhenAllLinksAreFilteredOut() {
+        // Given
+        when(uriProcessingService.normalizeUri(VISITED_URI)).thenReturn(VISITED_URI);
+        when(uriProcessingService.isValidForCrawling(VISITED_URI)).thenReturn(true);
+        when(visitedRepository.isVisitedAll(Set.of(VISITED_URI))).thenReturn(Set.of(VISITED_URI));
+
+        // When
+        Set<URI> result = crawlStateService.processDiscoveredLinks(Set.of(VISITED_URI));
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(frontierQueue, never()).enqueueAll(any());
+    }
+
+    @Test
+    void processDiscoveredLinksShouldEnqueueLinksThatNormalizeToSameUriOnce() {
+        // Given
+        URI withSlash = URI.create("https://example.com/page/");
+        URI withFragment = URI.create("https://example.com/page#top");
+
+        when(uriProcessingService.normalizeUri(any())).thenReturn(NORMALIZED_URI);
+        when(uriProcessingService.isValidForCrawling(NORMALIZED_URI)).thenReturn(true);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of());
+
+        // When
+        Set<URI> result = crawlStateService.processDiscoveredLinks(Set.of(withSlash, withFragment));
+
+        // Then
+        assertEquals(Set.of(NORMALIZED_URI), result);
+        verify(frontierQueue).enqueueAll(Set.of(NORMALIZED_URI));
+    }
+
+    @Test
+    void processDiscoveredLinksShouldCheckVisitedStateOfValidLinksInOneBulkCall() {
+        // Given
+        URI link1 = URI.create("https://example.com/page1");
+        URI link2 = URI.create("https://example.com/page2");
+
+        when(uriProcessingService.normalizeUri(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(uriProcessingService.isValidForCrawling(any())).thenReturn(true);
+        when(uriProcessingService.isValidForCrawling(EXTERNAL_URI)).thenReturn(false);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of(link2));
+
+        // When
+        Set<URI> result = crawlStateService.processDiscoveredLinks(Set.of(link1, link2, EXTERNAL_URI));
+
+        // Then
+        assertEquals(Set.of(link1), result);
+        verify(visitedRepository).isVisitedAll(Set.of(link1, link2));
+        verify(visitedRepository, never()).isVisited(any());
     }
 
     @Test
@@ -282,6 +331,43 @@ class CrawlStateServiceTest {
         verify(frontierQueue).dequeue();
     }
 
+    @Test
+    void getNextUriWithTimeoutShouldDelegateToBlockingDequeue() {
+        // Given
+        Duration timeout = Duration.ofMillis(100);
+        when(frontierQueue.dequeue(timeout)).thenReturn(TEST_URI);
+
+        // When
+        URI result = crawlStateService.getNextUri(timeout);
+
+        // Then
+        assertEquals(TEST_URI, result);
+        verify(frontierQueue).dequeue(timeout);
+        verify(frontierQueue, never()).dequeue();
+    }
+
+    @Test
+    void claimNextUrisShouldClaimFromFrontierIntoVisitedRepository() {
+        // Given
+        when(frontierQueue.claim(10, visitedRepository)).thenReturn(List.of(TEST_URI, VISITED_URI));
+
+        // When
+        List<URI> result = crawlStateService.claimNextUris(10);
+
+        // Then
+        assertEquals(List.of(TEST_URI, VISITED_URI), result);
+        verify(frontierQueue).claim(10, visitedRepository);
+    }
+
+    @Test
+    void acknowledgeShouldDelegateToFrontierQueue() {
+        // When
+        crawlStateService.acknowledge(TEST_URI);
+
+        // Then
+        verify(frontierQueue).acknowledge(TEST_URI);
+    }
+
     @Test
     void isFrontierEmptyShouldDelegateToFrontierQueue() {
         // Given
@@ -319,7 +405,7 @@ class CrawlStateServiceTest {
 
         when(uriProcessingService.normalizeUri(any())).thenAnswer(invocation -> invocation.getArgument(0));
         when(uriProcessingService.isValidForCrawling(any())).thenReturn(true);
-        when(visitedRepository.isVisited(any())).thenReturn(false);
+        when(visitedRepository.isVisitedAll(any())).thenReturn(Set.of());
 
         // When
         Set<URI> result1 = crawlStateService.processDiscoveredLinks(discoveredLinks1);
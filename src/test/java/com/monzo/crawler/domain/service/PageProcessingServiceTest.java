@@ -1,14 +1,20 @@
 package com.monzo.crawler.domain.service;
 
 import com.monzo.crawler.domain.model.PageData;
+import com.monzo.crawler.domain.model.PageHistory;
+import com.monzo.crawler.domain.model.PageValidators;
 import com.monzo.crawler.domain.port.out.CrawlObserver;
 import com.monzo.crawler.domain.port.out.LinkExtractor;
 import com.monzo.crawler.domain.port.out.PageFetcher;
+import com.monzo.crawler.domain.port.out.PageHistoryRepository;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.net.URI;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,6 +35,18 @@ class PageProcessingServiceTest {
             crawlStateService
     );
 
+    private final PageHistoryRepository pageHistoryRepository = mock(PageHistoryRepository.class);
+
+    private final PageProcessingService conditionalProcessingService = new PageProcessingService(
+            pageFetcher,
+            linkExtractor,
+            crawlObserver,
+            crawlStateService,
+            pageHistoryRepository
+    );
+
+    private static final PageValidators VALIDATORS = new PageValidators("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+
     private static final URI TEST_URI = URI.create("https://example.com/test-page");
     private static final URI LINK_1_URI = URI.create("https://example.com/link1");
     private static final URI LINK_2_URI = URI.create("https://example.com/link2");
@@ -226,6 +244,53 @@ class PageProcessingServiceTest {
         verify(crawlObserver, never()).onPageCrawled(any(), any());
     }
 
+    @Test
+    void processPageShouldExtractLinksFromTruncatedPage() {
+        // Given
+        Set<URI> discoveredLinks = Set.of(LINK_1_URI);
+        String truncatedHtml = HTML_CONTENT.substring(0, 80);
+        when(pageFetcher.fetch(TEST_URI)).thenReturn(new PageData(truncatedHtml, PageData.Status.TRUNCATED));
+        when(linkExtractor.extractLinks(truncatedHtml, TEST_URI)).thenReturn(discoveredLinks);
+        when(crawlStateService.processDiscoveredLinks(discoveredLinks)).thenReturn(discoveredLinks);
+
+        // When
+        pageProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(crawlStateService).processDiscoveredLinks(discoveredLinks);
+        verify(crawlObserver).onPageCrawled(TEST_URI, discoveredLinks);
+        verify(crawlObserver, never()).onCrawlFailed(any(), any(), any());
+    }
+
+    @Test
+    void processPageShouldAcknowledgeUriAfterEnqueueingLinks() {
+        // Given
+        Set<URI> discoveredLinks = Set.of(LINK_1_URI);
+        when(pageFetcher.fetch(TEST_URI)).thenReturn(new PageData(HTML_CONTENT, PageData.Status.SUCCESS));
+        when(linkExtractor.extractLinks(HTML_CONTENT, TEST_URI)).thenReturn(discoveredLinks);
+        when(crawlStateService.processDiscoveredLinks(discoveredLinks)).thenReturn(discoveredLinks);
+
+        // When
+        pageProcessingService.processPage(TEST_URI);
+
+        // Then
+        var inOrder = inOrder(crawlStateService);
+        inOrder.verify(crawlStateService).processDiscoveredLinks(discoveredLinks);
+        inOrder.verify(crawlStateService).acknowledge(TEST_URI);
+    }
+
+    @Test
+    void processPageShouldAcknowledgeUriWhenProcessingFails() {
+        // Given
+        when(pageFetcher.fetch(TEST_URI)).thenThrow(new RuntimeException("Network connection failed"));
+
+        // When
+        pageProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(crawlStateService).acknowledge(TEST_URI);
+    }
+
     // Exception handling tests
     @Test
     void processPageShouldHandlePageFetcherException() {
@@ -323,4 +388,208 @@ class PageProcessingServiceTest {
         verify(crawlObserver).onCrawlFailed(eq(TEST_URI), eq("UNEXPECTED_ERROR"), exceptionCaptor.capture());
         assertEquals(observerException, exceptionCaptor.getValue());
     }
+
+    // Asynchronous processing tests
+    @Test
+    void processPageAsyncShouldRunLinkStagesOnExecutorAndAcknowledge() {
+        // Given
+        Set<URI> discoveredLinks = Set.of(LINK_1_URI, LINK_2_URI);
+        CompletableFuture<PageData> download = new CompletableFuture<>();
+        Executor executor = spy(new DirectExecutor());
+        when(pageFetcher.fetchAsync(TEST_URI)).thenReturn(download);
+        when(linkExtractor.extractLinks(HTML_CONTENT, TEST_URI)).thenReturn(discoveredLinks);
+        when(crawlStateService.processDiscoveredLinks(discoveredLinks)).thenReturn(discoveredLinks);
+
+        // When
+        CompletableFuture<Void> processed = pageProcessingService.processPageAsync(TEST_URI, executor);
+
+        // Then - nothing happens until the page arrives
+        assertFalse(processed.isDone());
+        verifyNoInteractions(linkExtractor);
+
+        download.complete(new PageData(HTML_CONTENT, PageData.Status.SUCCESS));
+        processed.join();
+        // Only the link stage; without a history store there is no lookup to run
+        verify(executor, times(1)).execute(any());
+        var inOrder = inOrder(crawlStateService, crawlObserver);
+        inOrder.verify(crawlStateService).processDiscoveredLinks(discoveredLinks);
+        inOrder.verify(crawlObserver).onPageCrawled(TEST_URI, discoveredLinks);
+        inOrder.verify(crawlStateService).acknowledge(TEST_URI);
+        verify(pageFetcher, never()).fetch(any());
+    }
+
+    @Test
+    void processPageAsyncShouldReportFailedStatus() {
+        // Given
+        when(pageFetcher.fetchAsync(TEST_URI))
+                .thenReturn(CompletableFuture.completedFuture(new PageData(null, PageData.Status.NOT_FOUND)));
+
+        // When
+        pageProcessingService.processPageAsync(TEST_URI, new DirectExecutor()).join();
+
+        // Then
+        verify(crawlObserver).onCrawlFailed(TEST_URI, "NOT_FOUND", null);
+        verify(crawlStateService).acknowledge(TEST_URI);
+        verifyNoInteractions(linkExtractor);
+    }
+
+    @Test
+    void processPageAsyncShouldReportFetchFailureWithItsCause() {
+        // Given
+        RuntimeException fetchException = new RuntimeException("Network connection failed");
+        when(pageFetcher.fetchAsync(TEST_URI))
+                .thenReturn(CompletableFuture.<PageData>failedFuture(fetchException).thenApply(pageData -> pageData));
+
+        // When
+        pageProcessingService.processPageAsync(TEST_URI, new DirectExecutor()).join();
+
+        // Then
+        verify(crawlObserver).onCrawlFailed(TEST_URI, "UNEXPECTED_ERROR", fetchException);
+        verify(crawlStateService).acknowledge(TEST_URI);
+    }
+
+    @Test
+    void processPageAsyncShouldAcknowledgeWhenFetcherThrows() {
+        // Given
+        RuntimeException fetchException = new IllegalStateException("Client closed");
+        when(pageFetcher.fetchAsync(TEST_URI)).thenThrow(fetchException);
+
+        // When
+        pageProcessingService.processPageAsync(TEST_URI, new DirectExecutor()).join();
+
+        // Then
+        verify(crawlObserver).onCrawlFailed(TEST_URI, "UNEXPECTED_ERROR", fetchException);
+        verify(crawlStateService).acknowledge(TEST_URI);
+    }
+
+    // Conditional fetch tests
+    @Test
+    void processPageShouldReuseLinksOfUnchangedPageWithoutParsing() {
+        // Given
+        Set<URI> previousLinks = Set.of(LINK_1_URI, LINK_2_URI);
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.of(new PageHistory(VALIDATORS, previousLinks)));
+        when(pageFetcher.fetch(TEST_URI, VALIDATORS))
+                .thenReturn(new PageData(null, PageData.Status.NOT_MODIFIED, VALIDATORS));
+        when(crawlStateService.processDiscoveredLinks(previousLinks)).thenReturn(Set.of());
+
+        // When
+        conditionalProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(pageFetcher, never()).fetch(TEST_URI);
+        verifyNoInteractions(linkExtractor);
+        verify(crawlStateService).processDiscoveredLinks(previousLinks);
+        verify(crawlObserver).onPageCrawled(TEST_URI, previousLinks);
+        verify(pageHistoryRepository, never()).save(any(), any());
+        verify(crawlStateService).acknowledge(TEST_URI);
+    }
+
+    @Test
+    void processPageShouldKeepNewValidatorsOfUnchangedPage() {
+        // Given
+        PageValidators refreshed = new PageValidators("\"v2\"", VALIDATORS.lastModified());
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.of(new PageHistory(VALIDATORS, Set.of(LINK_1_URI))));
+        when(pageFetcher.fetch(TEST_URI, VALIDATORS))
+                .thenReturn(new PageData(null, PageData.Status.NOT_MODIFIED, refreshed));
+
+        // When
+        conditionalProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(pageHistoryRepository).save(TEST_URI, new PageHistory(refreshed, Set.of(LINK_1_URI)));
+    }
+
+    @Test
+    void processPageShouldSaveLinksOfChangedPage() {
+        // Given
+        Set<URI> discoveredLinks = Set.of(LINK_1_URI);
+        PageValidators current = new PageValidators("\"v2\"", null);
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.of(new PageHistory(VALIDATORS, Set.of(LINK_2_URI))));
+        when(pageFetcher.fetch(TEST_URI, VALIDATORS))
+                .thenReturn(new PageData(HTML_CONTENT, PageData.Status.SUCCESS, current));
+        when(linkExtractor.extractLinks(HTML_CONTENT, TEST_URI)).thenReturn(discoveredLinks);
+
+        // When
+        conditionalProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(crawlStateService).processDiscoveredLinks(discoveredLinks);
+        verify(pageHistoryRepository).save(TEST_URI, new PageHistory(current, discoveredLinks));
+        verify(crawlObserver).onPageCrawled(TEST_URI, discoveredLinks);
+    }
+
+    @Test
+    void processPageShouldNotSaveHistoryOfPageWithoutValidators() {
+        // Given
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.empty());
+        when(pageFetcher.fetch(TEST_URI)).thenReturn(new PageData(HTML_CONTENT, PageData.Status.SUCCESS));
+        when(linkExtractor.extractLinks(HTML_CONTENT, TEST_URI)).thenReturn(Set.of(LINK_1_URI));
+
+        // When
+        conditionalProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(pageHistoryRepository, never()).save(any(), any());
+        verify(crawlObserver).onPageCrawled(TEST_URI, Set.of(LINK_1_URI));
+    }
+
+    @Test
+    void processPageShouldNotSaveHistoryOfTruncatedPage() {
+        // Given
+        String truncatedHtml = HTML_CONTENT.substring(0, 80);
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.empty());
+        when(pageFetcher.fetch(TEST_URI))
+                .thenReturn(new PageData(truncatedHtml, PageData.Status.TRUNCATED, VALIDATORS));
+        when(linkExtractor.extractLinks(truncatedHtml, TEST_URI)).thenReturn(Set.of(LINK_1_URI));
+
+        // When
+        conditionalProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(crawlStateService).processDiscoveredLinks(Set.of(LINK_1_URI));
+        verify(pageHistoryRepository, never()).save(any(), any());
+        verify(crawlObserver).onPageCrawled(TEST_URI, Set.of(LINK_1_URI));
+    }
+
+    @Test
+    void processPageShouldReportNotModifiedWithoutHistoryAsFailure() {
+        // Given
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.empty());
+        when(pageFetcher.fetch(TEST_URI)).thenReturn(new PageData(null, PageData.Status.NOT_MODIFIED));
+
+        // When
+        conditionalProcessingService.processPage(TEST_URI);
+
+        // Then
+        verify(crawlObserver).onCrawlFailed(TEST_URI, "NOT_MODIFIED", null);
+        verify(crawlStateService, never()).processDiscoveredLinks(any());
+    }
+
+    @Test
+    void processPageAsyncShouldFetchConditionallyAndReuseLinks() {
+        // Given
+        Set<URI> previousLinks = Set.of(LINK_1_URI);
+        when(pageHistoryRepository.find(TEST_URI)).thenReturn(Optional.of(new PageHistory(VALIDATORS, previousLinks)));
+        when(pageFetcher.fetchAsync(TEST_URI, VALIDATORS)).thenReturn(
+                CompletableFuture.completedFuture(new PageData(null, PageData.Status.NOT_MODIFIED, VALIDATORS)));
+
+        Executor executor = spy(new DirectExecutor());
+
+        // When
+        conditionalProcessingService.processPageAsync(TEST_URI, executor).join();
+
+        // Then - the history lookup and the link stage
+        verify(executor, times(2)).execute(any());
+        verifyNoInteractions(linkExtractor);
+        verify(crawlStateService).processDiscoveredLinks(previousLinks);
+        verify(crawlObserver).onPageCrawled(TEST_URI, previousLinks);
+        verify(crawlStateService).acknowledge(TEST_URI);
+    }
+
+    private static class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers
+class CompactUriCodecIntegrationTest {
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private TestRedisConfiguration.TestRedisSetup redisSetup;
+    private RedisCommands<byte[], byte[]> binaryCommands;
+    private CompactUriCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        redisSetup = TestRedisConfiguration.createDedicatedTestSetup(redis);
+        binaryCommands = redisSetup.getBinaryCommands();
+        codec = new CompactUriCodec(binaryCommands);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redisSetup != null) {
+            redisSetup.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "https://monzo.com/",
+            "https://monzo.com",
+            "https://monzo.com/blog/2019/03/12/how-we-build",
+            "http://user@example.com:8080/a/b?x=1&y=Z#frag",
+            "https://example.com/page%20with%20spaces",
+            "https://example.com/UPPER/Case/Path_with~tilde",
+            "https://example.com/café/日本",
+            "mailto:someone@example.com",
+            "relative/path"
+    })
+    void shouldRoundTripUris(String value) {
+        URI uri = URI.create(value);
+
+        assertThat(codec.decode(codec.encode(uri))).isEqualTo(uri);
+    }
+
+    @Test
+    void shouldStoreSingleHostUrisInFewerBytes() {
+        // Given
+        URI uri = URI.create("https://monzo.com/blog/2019/03/12/how-we-build-monzo");
+
+        // When
+        byte[] encoded = codec.encode(uri);
+
+        // Then - one byte for the origin, six bits per remaining character
+        int pathLength = uri.toString().length() - "https://monzo.com".length();
+        assertThat(encoded.length).isEqualTo(1 + (pathLength * 6 + 7) / 8);
+    }
+
+    @Test
+    void shouldShareOriginDictionaryBetweenInstances() {
+        // Given
+        URI first = URI.create("https://a.example.com/1");
+        URI second = URI.create("https://b.example.com/2");
+        byte[] encodedFirst = codec.encode(first);
+        byte[] encodedSecond = codec.encode(second);
+
+        // When - another process decodes with an empty local cache
+        CompactUriCodec other = new CompactUriCodec(binaryCommands);
+
+        // Then
+        assertThat(other.decode(encodedFirst)).isEqualTo(first);
+        assertThat(other.decode(encodedSecond)).isEqualTo(second);
+        assertThat(other.encode(second)).isEqualTo(encodedSecond);
+    }
+
+    @Test
+    void shouldFailToDecodeUnknownOrigin() {
+        // Given
+        byte[] encoded = codec.encode(URI.create("https://example.com/page"));
+        TestRedisConfiguration.cleanTestData(redisSetup.getCommands());
+
+        // Then
+        assertThatThrownBy(() -> new CompactUriCodec(binaryCommands).decode(encoded))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldClaimThroughFrontierAndVisitedSetSharingTheCodec() {
+        // Given
+        RedisFrontierQueue frontierQueue = new RedisFrontierQueue(binaryCommands, binaryCommands, codec);
+        RedisVisitedRepository visitedRepository = new RedisVisitedRepository(binaryCommands, codec);
+        URI visited = URI.create("https://example.com/visited");
+        URI fresh = URI.create("https://example.com/fresh?q=1");
+        visitedRepository.markVisited(visited);
+
+        // When
+        frontierQueue.enqueueAll(List.of(visited, fresh, fresh));
+        List<URI> claimed = frontierQueue.claim(10, visitedRepository);
+
+        // Then
+        assertThat(claimed).containsExactly(fresh);
+        assertThat(visitedRepository.isVisited(fresh)).isTrue();
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
+}
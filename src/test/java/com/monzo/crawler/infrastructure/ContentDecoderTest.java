@@ -0,0 +1,138 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentDecoderTest {
+
+    private static final byte[] HTML = ("<html><body>" + "<a href='/page'>link</a>".repeat(5_000) + "</body></html>")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldDecodeGzipSplitAtAnyPoint() throws IOException {
+        // Given
+        byte[] gzip = gzip(HTML);
+
+        // When & Then - every split of the header, body and trailer across two buffers
+        for (int split = 0; split <= gzip.length; split += split < 64 || split > gzip.length - 64 ? 1 : 97) {
+            assertThat(decode("gzip", gzip, split)).isEqualTo(HTML);
+        }
+    }
+
+    @Test
+    void shouldSkipOptionalGzipHeaderFields() throws IOException {
+        // Given - FEXTRA, FNAME and FCOMMENT set on a stream whose header has none
+        byte[] plain = gzip(HTML);
+        ByteArrayOutputStream withFields = new ByteArrayOutputStream();
+        withFields.write(plain, 0, 3);
+        withFields.write(4 | 8 | 16);
+        withFields.write(plain, 4, 6);
+        withFields.write(new byte[]{3, 0, 'a', 'b', 'c'});
+        withFields.write("index.html\0".getBytes(StandardCharsets.US_ASCII));
+        withFields.write("crawled\0".getBytes(StandardCharsets.US_ASCII));
+        withFields.write(plain, 10, plain.length - 10);
+
+        // When & Then
+        assertThat(decode("gzip", withFields.toByteArray(), 7)).isEqualTo(HTML);
+    }
+
+    @Test
+    void shouldDecodeZlibAndRawDeflate() throws IOException {
+        assertThat(decode("deflate", deflate(HTML, false), 100)).isEqualTo(HTML);
+        assertThat(decode("Deflate", deflate(HTML, true), 100)).isEqualTo(HTML);
+    }
+
+    @Test
+    void shouldPassIdentityBodiesThrough() throws IOException {
+        assertThat(decode("", HTML, 10)).isEqualTo(HTML);
+        assertThat(decode("identity", HTML, 10)).isEqualTo(HTML);
+    }
+
+    @Test
+    void shouldStopInflatingWhenSinkStops() throws IOException {
+        // Given - a megabyte of zeros compresses to about a kilobyte
+        byte[] bomb = gzip(new byte[1 << 20]);
+        long[] decoded = new long[1];
+
+        // When
+        boolean more;
+        try (ContentDecoder decoder = ContentDecoder.forEncoding("gzip")) {
+            more = decoder.decode(ByteBuffer.wrap(bomb), chunk -> {
+                decoded[0] += chunk.remaining();
+                chunk.position(chunk.limit());
+                return false;
+            });
+        }
+
+        // Then
+        assertThat(more).isFalse();
+        assertThat(decoded[0]).isLessThanOrEqualTo(16 * 1024);
+    }
+
+    @Test
+    void shouldRejectCorruptOrIncompleteGzip() throws IOException {
+        byte[] gzip = gzip(HTML);
+        byte[] badChecksum = gzip.clone();
+        badChecksum[gzip.length - 8] ^= 1;
+
+        assertThatThrownBy(() -> decode("gzip", badChecksum, 50)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("gzip", Arrays.copyOf(gzip, gzip.length - 4), 50))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decode("gzip", HTML, 50))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not in gzip format");
+    }
+
+    @Test
+    void shouldRejectUnsupportedEncodingOnFirstByte() {
+        assertThatThrownBy(() -> decode("br", HTML, 10))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unsupported Content-Encoding: br");
+    }
+
+    // Decodes the body delivered as two buffers split at the given offset
+    private static byte[] decode(String encoding, byte[] encoded, int split) throws IOException {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        try (ContentDecoder decoder = ContentDecoder.forEncoding(encoding)) {
+            for (ByteBuffer part : new ByteBuffer[]{
+                    ByteBuffer.wrap(encoded, 0, split), ByteBuffer.wrap(encoded, split, encoded.length - split)}) {
+                decoder.decode(part, chunk -> {
+                    byte[] bytes = new byte[chunk.remaining()];
+                    chunk.get(bytes);
+                    decoded.writeBytes(bytes);
+                    return true;
+                });
+            }
+            decoder.finish();
+        }
+        return decoded.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(data);
+        }
+        return out.toByteArray();
+    }
+}
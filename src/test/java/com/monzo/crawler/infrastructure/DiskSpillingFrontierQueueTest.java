@@ -0,0 +1,228 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskSpillingFrontierQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DiskSpillingFrontierQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        // Tiny buffers and segments so that a few dozen URIs already span several segment files
+        queue = new DiskSpillingFrontierQueue(tempDir, 4, 128);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.close();
+    }
+
+    @Test
+    void shouldReturnTrueForEmptyQueueInitially() {
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.dequeue()).isNull();
+    }
+
+    @Test
+    void shouldKeepFifoOrderAcrossSpilledSegments() throws IOException {
+        // Given
+        List<URI> uris = uris(50);
+
+        // When
+        queue.enqueueAll(uris);
+
+        // Then
+        assertThat(segmentFiles()).hasSizeGreaterThan(1);
+        assertThat(drain()).isEqualTo(uris);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldKeepFifoOrderWhenEnqueueAndDequeueInterleave() {
+        // Given
+        List<URI> uris = uris(100);
+        List<URI> dequeued = new ArrayList<>();
+
+        // When - enqueue three for every one dequeued, then drain
+        for (int i = 0; i < uris.size(); i++) {
+            queue.enqueue(uris.get(i));
+            if (i % 3 == 0) {
+                dequeued.add(queue.dequeue());
+            }
+        }
+        dequeued.addAll(drain());
+
+        // Then
+        assertThat(dequeued).isEqualTo(uris);
+    }
+
+    @Test
+    void shouldDeleteSegmentsOnceConsumed() throws IOException {
+        // Given
+        queue.enqueueAll(uris(50));
+
+        // When
+        drain();
+
+        // Then - only the segment still being appended to is left
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    @Test
+    void shouldStoreUrisLargerThanSegment() {
+        // Given
+        URI large = URI.create("https://example.com/" + "a".repeat(500));
+        List<URI> uris = new ArrayList<>(uris(4));
+        uris.add(large);
+        uris.addAll(uris(4));
+
+        // When
+        queue.enqueueAll(uris);
+
+        // Then
+        assertThat(drain()).isEqualTo(uris);
+    }
+
+    @Test
+    void shouldWakeBlockedDequeueWhenUriIsEnqueued() throws Exception {
+        // Given
+        URI uri = URI.create("https://example.com/late");
+
+        // When
+        CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofSeconds(10)));
+        Thread.sleep(100);
+        queue.enqueue(uri);
+
+        // Then
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(uri);
+    }
+
+    @Test
+    void shouldReturnNullWhenBlockingDequeueTimesOut() {
+        assertThat(queue.dequeue(Duration.ofMillis(50))).isNull();
+    }
+
+    @Test
+    void shouldDeleteSegmentDirectoryOnClose() {
+        // Given
+        queue.enqueueAll(uris(50));
+        Path directory = queue.directory();
+
+        // When
+        queue.close();
+
+        // Then
+        assertThat(directory).doesNotExist();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldKeepQueuedUrisWhenDurableQueueIsReopened() {
+        // Given
+        Path directory = tempDir.resolve("durable");
+        List<URI> uris = uris(50);
+        List<URI> dequeued = new ArrayList<>();
+        try (DiskSpillingFrontierQueue durable = DiskSpillingFrontierQueue.open(directory, 4, 128)) {
+            durable.enqueueAll(uris);
+            for (int i = 0; i < 20; i++) {
+                URI uri = durable.dequeue();
+                dequeued.add(uri);
+                durable.acknowledge(uri);
+            }
+        }
+
+        // When
+        try (DiskSpillingFrontierQueue reopened = DiskSpillingFrontierQueue.open(directory, 4, 128)) {
+            reopened.enqueue(URI.create("https://example.com/after-restart"));
+            for (URI uri = reopened.dequeue(); uri != null; uri = reopened.dequeue()) {
+                dequeued.add(uri);
+                reopened.acknowledge(uri);
+            }
+        }
+
+        // Then
+        List<URI> expected = new ArrayList<>(uris);
+        expected.add(URI.create("https://example.com/after-restart"));
+        assertThat(dequeued).isEqualTo(expected);
+        assertThat(directory).exists();
+    }
+
+    @Test
+    void shouldHandOutUnacknowledgedUrisAgainAfterReopen() {
+        // Given - two URIs are being crawled when the process dies, so the queue is never closed
+        Path directory = tempDir.resolve("durable");
+        VisitedRepository visited = new InMemoryVisitedRepository();
+        DiskSpillingFrontierQueue crashed = DiskSpillingFrontierQueue.open(directory, 4, 128);
+        crashed.enqueueAll(uris(10));
+        List<URI> inFlight = crashed.claim(3, visited);
+        crashed.acknowledge(inFlight.get(0));
+
+        // When
+        List<URI> claimed;
+        try (DiskSpillingFrontierQueue reopened = DiskSpillingFrontierQueue.open(directory, 4, 128)) {
+            claimed = reopened.claim(4, visited);
+        }
+
+        // Then - they come back although marked visited, followed by the rest of the queue
+        assertThat(visited.isVisited(inFlight.get(1))).isTrue();
+        assertThat(claimed).containsExactly(inFlight.get(1), inFlight.get(2), uris(10).get(3), uris(10).get(4));
+    }
+
+    @Test
+    void shouldNotHandOutAcknowledgedUrisAgainAfterReopen() {
+        // Given
+        Path directory = tempDir.resolve("durable");
+        VisitedRepository visited = new InMemoryVisitedRepository();
+        DiskSpillingFrontierQueue crashed = DiskSpillingFrontierQueue.open(directory, 4, 128);
+        crashed.enqueueAll(uris(10));
+        crashed.claim(10, visited).forEach(crashed::acknowledge);
+
+        // When
+        DiskSpillingFrontierQueue reopened = DiskSpillingFrontierQueue.open(directory, 4, 128);
+
+        // Then
+        assertThat(reopened.isEmpty()).isTrue();
+        reopened.close();
+    }
+
+    private List<URI> drain() {
+        List<URI> drained = new ArrayList<>();
+        for (URI uri = queue.dequeue(); uri != null; uri = queue.dequeue()) {
+            drained.add(uri);
+        }
+        return drained;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(queue.directory())) {
+            return files.toList();
+        }
+    }
+
+    private static List<URI> uris(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> URI.create("https://example.com/page-" + i))
+                .toList();
+    }
+}
@@ -2,13 +2,19 @@ package com.monzo.crawler.infrastructure;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.monzo.crawler.domain.model.PageData;
+import com.monzo.crawler.infrastructure.config.ConfigurationLoader;
 import com.monzo.crawler.infrastructure.config.TestWireMockConfiguration;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.assertThat;
 
 class HttpClientPageFetcherIntegrationTest {
@@ -132,4 +138,125 @@ class HttpClientPageFetcherIntegrationTest {
         assertThat(result.status()).isEqualTo(PageData.Status.SUCCESS);
         assertThat(result.htmlContent()).isEqualTo("<html><body>Mixed case content type</body></html>");
     }
+
+    @Test
+    void shouldFetchHtmlPageAsynchronously() {
+        URI uri = URI.create(baseUrl + "/test-page");
+
+        PageData result = pageFetcher.fetchAsync(uri).join();
+
+        assertThat(result.status()).isEqualTo(PageData.Status.SUCCESS);
+        assertThat(result.htmlContent()).isEqualTo("<html><body><h1>Test Page</h1></body></html>");
+    }
+
+    @Test
+    void shouldMapStatusesAndFailuresAsynchronously() {
+        assertThat(pageFetcher.fetchAsync(URI.create(baseUrl + "/not-found")).join().status())
+                .isEqualTo(PageData.Status.NOT_FOUND);
+        assertThat(pageFetcher.fetchAsync(URI.create("ftp://example.com/file.txt")).join().status())
+                .isEqualTo(PageData.Status.CLIENT_ERROR);
+        assertThat(pageFetcher.fetchAsync(URI.create("http://localhost:99999/page")).join().status())
+                .isEqualTo(PageData.Status.FETCH_ERROR);
+    }
+
+    @Test
+    void shouldTruncateBodyOverTheSizeLimit() {
+        ConfigurationLoader config = mock(ConfigurationLoader.class);
+        when(config.getUserAgent()).thenReturn("test-agent");
+        when(config.getMaxBodyBytes()).thenReturn(1024);
+        HttpClientPageFetcher cappedFetcher = new HttpClientPageFetcher(Duration.ofSeconds(5), config);
+        String page = "<html><body><a href='/first'>first</a>" + "x".repeat(1_000_000) + "</body></html>";
+        wireMockServer.stubFor(get(urlEqualTo("/huge"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/html")
+                        .withBody(page)));
+
+        PageData result = cappedFetcher.fetch(URI.create(baseUrl + "/huge"));
+        PageData asyncResult = cappedFetcher.fetchAsync(URI.create(baseUrl + "/huge")).join();
+
+        assertThat(result.status()).isEqualTo(PageData.Status.TRUNCATED);
+        assertThat(result.htmlContent()).isEqualTo(page.substring(0, 1024));
+        assertThat(asyncResult).isEqualTo(result);
+    }
+
+    @Test
+    void shouldNotDownloadBodiesOfNonHtmlOrErrorResponses() {
+        // Both would take 10 seconds to download in full
+        wireMockServer.stubFor(get(urlEqualTo("/video"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "video/mp4")
+                        .withBody("x".repeat(1_000_000))
+                        .withChunkedDribbleDelay(100, 10_000)));
+        wireMockServer.stubFor(get(urlEqualTo("/slow-error"))
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withHeader("Content-Type", "text/html")
+                        .withBody("<html>" + "x".repeat(1_000_000) + "</html>")
+                        .withChunkedDribbleDelay(100, 10_000)));
+
+        long start = System.nanoTime();
+        PageData video = pageFetcher.fetch(URI.create(baseUrl + "/video"));
+        PageData error = pageFetcher.fetchAsync(URI.create(baseUrl + "/slow-error")).join();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(video.status()).isEqualTo(PageData.Status.CLIENT_ERROR);
+        assertThat(error.status()).isEqualTo(PageData.Status.SERVER_ERROR);
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldRequestAndDecompressGzipBodies() throws Exception {
+        String page = "<html><body>" + "<a href='/page'>link</a>".repeat(10_000) + "</body></html>";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(page.getBytes(StandardCharsets.UTF_8));
+        }
+        wireMockServer.stubFor(get(urlEqualTo("/gzipped"))
+                .withHeader("Accept-Encoding", containing("gzip"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/html")
+                        .withHeader("Content-Encoding", "gzip")
+                        .withBody(compressed.toByteArray())));
+
+        PageData result = pageFetcher.fetch(URI.create(baseUrl + "/gzipped"));
+
+        assertThat(result.status()).isEqualTo(PageData.Status.SUCCESS);
+        assertThat(result.htmlContent()).isEqualTo(page);
+        assertThat(pageFetcher.wireBytes()).isEqualTo(compressed.size());
+        assertThat(pageFetcher.decodedBytes()).isEqualTo(page.length());
+    }
+
+    @Test
+    void shouldRevalidateWithValidatorsOfTheLastFetch() {
+        String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        wireMockServer.stubFor(get(urlEqualTo("/cached"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/html")
+                        .withHeader("ETag", "\"v1\"")
+                        .withHeader("Last-Modified", lastModified)
+                        .withBody("<html><body>cached</body></html>")));
+        wireMockServer.stubFor(get(urlEqualTo("/cached"))
+                .withHeader("If-None-Match", containing("v1"))
+                .withHeader("If-Modified-Since", equalTo(lastModified))
+                .willReturn(aResponse().withStatus(304)));
+        URI uri = URI.create(baseUrl + "/cached");
+
+        PageData first = pageFetcher.fetch(uri);
+        PageData second = pageFetcher.fetch(uri, first.validators());
+        PageData secondAsync = pageFetcher.fetchAsync(uri, first.validators()).join();
+
+        assertThat(first.status()).isEqualTo(PageData.Status.SUCCESS);
+        // Compressing servers may tag the ETag of the encoded variant, as this one does; it is echoed as received
+        assertThat(first.validators().etag()).startsWith("\"v1");
+        assertThat(first.validators().lastModified()).isEqualTo(lastModified);
+        assertThat(second.status()).isEqualTo(PageData.Status.NOT_MODIFIED);
+        assertThat(second.htmlContent()).isNull();
+        assertThat(second.validators()).isEqualTo(first.validators());
+        assertThat(secondAsync.status()).isEqualTo(PageData.Status.NOT_MODIFIED);
+        wireMockServer.verify(getRequestedFor(urlEqualTo("/cached")).withoutHeader("If-None-Match"));
+    }
 }
@@ -0,0 +1,147 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryFrontierQueueTest {
+
+    @Test
+    void shouldReturnTrueForEmptyQueueInitially() {
+        InMemoryFrontierQueue queue = new InMemoryFrontierQueue();
+
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.dequeue()).isNull();
+    }
+
+    @Test
+    void shouldDequeueInFifoOrder() {
+        // Given
+        InMemoryFrontierQueue queue = new InMemoryFrontierQueue(4);
+        List<URI> uris = uris(10);
+
+        // When - wrap around the ring several times
+        List<URI> dequeued = new ArrayList<>();
+        for (URI uri : uris) {
+            queue.enqueue(uri);
+            dequeued.add(queue.dequeue());
+        }
+
+        // Then
+        assertThat(dequeued).isEqualTo(uris);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldSpillToOverflowWhenRingIsFull() {
+        // Given
+        InMemoryFrontierQueue queue = new InMemoryFrontierQueue(4);
+        List<URI> uris = uris(10);
+
+        // When
+        queue.enqueueAll(uris);
+
+        // Then
+        List<URI> dequeued = new ArrayList<>();
+        for (URI uri = queue.dequeue(); uri != null; uri = queue.dequeue()) {
+            dequeued.add(uri);
+        }
+        assertThat(dequeued).isEqualTo(uris);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldKeepFifoOrderAcrossTheOverflowWhileTheRingIsRefilled() {
+        // Given - the ring is full and two URIs wait in the overflow
+        InMemoryFrontierQueue queue = new InMemoryFrontierQueue(4);
+        List<URI> uris = uris(10);
+        queue.enqueueAll(uris.subList(0, 6));
+        List<URI> dequeued = new ArrayList<>(List.of(queue.dequeue(), queue.dequeue()));
+
+        // When - slots free up in the ring while producers keep enqueueing
+        queue.enqueueAll(uris.subList(6, 8));
+        dequeued.add(queue.dequeue());
+        queue.enqueueAll(uris.subList(8, 10));
+
+        // Then
+        for (URI uri = queue.dequeue(); uri != null; uri = queue.dequeue()) {
+            dequeued.add(uri);
+        }
+        assertThat(dequeued).isEqualTo(uris);
+    }
+
+    @Test
+    void shouldRejectCapacityThatIsNotPowerOfTwo() {
+        assertThatThrownBy(() -> new InMemoryFrontierQueue(3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldWakeBlockedDequeueWhenUriIsEnqueued() throws Exception {
+        // Given
+        InMemoryFrontierQueue queue = new InMemoryFrontierQueue();
+        URI uri = URI.create("https://example.com/late");
+
+        // When
+        CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofSeconds(10)));
+        Thread.sleep(100);
+        queue.enqueue(uri);
+
+        // Then
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(uri);
+    }
+
+    @Test
+    void shouldReturnNullWhenBlockingDequeueTimesOut() {
+        assertThat(new InMemoryFrontierQueue().dequeue(Duration.ofMillis(50))).isNull();
+    }
+
+    @Test
+    void shouldDeliverEveryUriExactlyOnceUnderConcurrentAccess() throws Exception {
+        // Given - a small ring so producers also exercise the overflow
+        InMemoryFrontierQueue queue = new InMemoryFrontierQueue(64);
+        int producers = 4;
+        int perProducer = 5_000;
+        Set<URI> received = ConcurrentHashMap.newKeySet();
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers * 2)) {
+            for (int p = 0; p < producers; p++) {
+                int offset = p * perProducer;
+                executor.submit(() -> IntStream.range(offset, offset + perProducer)
+                        .forEach(i -> queue.enqueue(URI.create("https://example.com/" + i))));
+            }
+            for (int c = 0; c < producers; c++) {
+                executor.submit(() -> {
+                    URI uri;
+                    while ((uri = queue.dequeue(Duration.ofMillis(500))) != null) {
+                        assertThat(received.add(uri)).isTrue();
+                    }
+                });
+            }
+        }
+
+        // Then
+        assertThat(received).hasSize(producers * perProducer);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    private static List<URI> uris(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> URI.create("https://example.com/" + i))
+                .toList();
+    }
+}
@@ -0,0 +1,72 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryVisitedRepositoryTest {
+
+    @Test
+    void shouldMarkUriAsVisitedOnlyOnce() {
+        // Given
+        InMemoryVisitedRepository repository = new InMemoryVisitedRepository();
+        URI uri = URI.create("https://example.com/page");
+
+        // When
+        boolean first = repository.markVisited(uri);
+        boolean second = repository.markVisited(uri);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(repository.isVisited(uri)).isTrue();
+        assertThat(repository.isVisited(URI.create("https://example.com/other"))).isFalse();
+    }
+
+    @Test
+    void shouldKeepAllUrisWhenSegmentsGrow() {
+        // Given
+        InMemoryVisitedRepository repository = new InMemoryVisitedRepository();
+        int count = 200_000;
+
+        // When
+        IntStream.range(0, count).forEach(i -> repository.markVisited(URI.create("https://example.com/" + i)));
+
+        // Then
+        assertThat(repository.size()).isEqualTo(count);
+        assertThat(IntStream.range(0, count)
+                .allMatch(i -> repository.isVisited(URI.create("https://example.com/" + i))))
+                .isTrue();
+        assertThat(repository.isVisited(URI.create("https://example.com/" + count))).isFalse();
+    }
+
+    @Test
+    void shouldLetExactlyOneConcurrentCallerMarkEachUri() {
+        // Given
+        InMemoryVisitedRepository repository = new InMemoryVisitedRepository();
+        int threads = 8;
+        int count = 10_000;
+        AtomicInteger marked = new AtomicInteger();
+
+        // When - every thread races to mark the same URIs
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> IntStream.range(0, count).forEach(i -> {
+                    if (repository.markVisited(URI.create("https://example.com/" + i))) {
+                        marked.incrementAndGet();
+                    }
+                }));
+            }
+        }
+
+        // Then
+        assertThat(marked).hasValue(count);
+        assertThat(repository.size()).isEqualTo(count);
+    }
+}
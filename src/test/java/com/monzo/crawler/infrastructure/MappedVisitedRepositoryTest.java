@@ -0,0 +1,137 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedVisitedRepositoryTest {
+
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldKeepVisitedUrisAcrossReopen() {
+        // Given
+        Path file = directory.resolve("visited.db");
+        URI uri = URI.create("https://example.com/page");
+        try (MappedVisitedRepository repository = new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL)) {
+            assertThat(repository.markVisited(uri)).isTrue();
+        }
+
+        // When
+        try (MappedVisitedRepository reopened = new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL)) {
+            // Then
+            assertThat(reopened.isVisited(uri)).isTrue();
+            assertThat(reopened.markVisited(uri)).isFalse();
+            assertThat(reopened.isVisited(URI.create("https://example.com/other"))).isFalse();
+            assertThat(reopened.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldKeepAllUrisWhenFileGrows() throws IOException {
+        // Given
+        Path file = directory.resolve("visited.db");
+        int count = 20_000;
+        try (MappedVisitedRepository repository = new MappedVisitedRepository(file, 10, CHECKPOINT_INTERVAL)) {
+            // When
+            IntStream.range(0, count).forEach(i -> repository.markVisited(URI.create("https://example.com/" + i)));
+        }
+
+        // Then
+        assertThat(Files.size(file)).isGreaterThan(MappedVisitedRepository.HEADER_BYTES + 1024 * Long.BYTES);
+        assertThat(Files.exists(directory.resolve("visited.db.resize"))).isFalse();
+        try (MappedVisitedRepository reopened = new MappedVisitedRepository(file, 10, CHECKPOINT_INTERVAL)) {
+            assertThat(reopened.size()).isEqualTo(count);
+            assertThat(IntStream.range(0, count)
+                    .allMatch(i -> reopened.isVisited(URI.create("https://example.com/" + i))))
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void shouldRecountEntriesWhenNotClosedCleanly() {
+        // Given - checkpointed but never closed, as if the process had been killed
+        Path file = directory.resolve("visited.db");
+        MappedVisitedRepository crashed = new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL);
+        crashed.checkpoint();
+        IntStream.range(0, 50).forEach(i -> crashed.markVisited(URI.create("https://example.com/" + i)));
+
+        // When
+        try (MappedVisitedRepository reopened = new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL)) {
+            // Then
+            assertThat(reopened.size()).isEqualTo(50);
+            assertThat(reopened.isVisited(URI.create("https://example.com/49"))).isTrue();
+        } finally {
+            crashed.close();
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptHeader() throws IOException {
+        // Given
+        Path file = directory.resolve("visited.db");
+        new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL).close();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(24);
+            raw.writeLong(12345);
+        }
+
+        // When / Then
+        assertThatThrownBy(() -> new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Corrupt");
+    }
+
+    @Test
+    void shouldRejectFileThatIsNotAVisitedStore() throws IOException {
+        // Given
+        Path file = Files.writeString(directory.resolve("visited.db"), "https://example.com/page\n");
+
+        // When / Then
+        assertThatThrownBy(() -> new MappedVisitedRepository(file, 100, CHECKPOINT_INTERVAL))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Not a visited store");
+    }
+
+    @Test
+    void shouldLetExactlyOneConcurrentCallerMarkEachUriWhileGrowing() {
+        try (MappedVisitedRepository repository =
+                     new MappedVisitedRepository(directory.resolve("visited.db"), 10, CHECKPOINT_INTERVAL)) {
+            // Given
+            int threads = 8;
+            int count = 20_000;
+            AtomicInteger marked = new AtomicInteger();
+
+            // When - every thread races to mark the same URIs, forcing resizes mid-insert
+            try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+                for (int t = 0; t < threads; t++) {
+                    executor.submit(() -> IntStream.range(0, count).forEach(i -> {
+                        if (repository.markVisited(URI.create("https://example.com/" + i))) {
+                            marked.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+
+            // Then
+            assertThat(marked).hasValue(count);
+            assertThat(repository.size()).isEqualTo(count);
+        }
+    }
+}
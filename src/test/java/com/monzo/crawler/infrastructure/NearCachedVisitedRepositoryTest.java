@@ -0,0 +1,134 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class NearCachedVisitedRepositoryTest {
+
+    private static final URI URI_A = URI.create("https://example.com/a");
+    private static final URI URI_B = URI.create("https://example.com/b");
+
+    private final VisitedRepository delegate = mock(VisitedRepository.class);
+
+    @Test
+    void shouldAnswerRepeatedPositiveLookupsFromCache() {
+        // Given
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(delegate, 100);
+        when(delegate.isVisited(URI_A)).thenReturn(true);
+
+        // When
+        boolean first = repository.isVisited(URI_A);
+        boolean second = repository.isVisited(URI_A);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        verify(delegate, times(1)).isVisited(URI_A);
+        assertThat(repository.stats().hitCount()).isEqualTo(1);
+        assertThat(repository.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheNegativeLookups() {
+        // Given
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(delegate, 100);
+        when(delegate.isVisited(URI_A)).thenReturn(false, true);
+
+        // When
+        boolean first = repository.isVisited(URI_A);
+        boolean second = repository.isVisited(URI_A);
+
+        // Then
+        assertThat(first).isFalse();
+        assertThat(second).isTrue();
+        verify(delegate, times(2)).isVisited(URI_A);
+    }
+
+    @Test
+    void shouldRememberMarkedUrisWhetherOrNotThisCallMarkedThem() {
+        // Given
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(delegate, 100);
+        when(delegate.markVisited(URI_A)).thenReturn(true);
+        when(delegate.markVisited(URI_B)).thenReturn(false);
+
+        // When
+        boolean markedA = repository.markVisited(URI_A);
+        boolean markedB = repository.markVisited(URI_B);
+
+        // Then
+        assertThat(markedA).isTrue();
+        assertThat(markedB).isFalse();
+        assertThat(repository.isVisited(URI_A)).isTrue();
+        assertThat(repository.isVisited(URI_B)).isTrue();
+        verify(delegate, never()).isVisited(any());
+    }
+
+    @Test
+    void shouldEvictBeyondMaximumSize() {
+        // Given
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(delegate, 1);
+        when(delegate.isVisited(any())).thenReturn(true);
+        repository.markVisited(URI_A);
+        repository.markVisited(URI_B);
+
+        // When
+        boolean visited = repository.isVisited(URI_A);
+
+        // Then
+        assertThat(visited).isTrue();
+        verify(delegate).isVisited(URI_A);
+    }
+
+    @Test
+    void shouldExposeRedisRepositoryBehindCacheForClaimFastPath() {
+        // Given
+        @SuppressWarnings("unchecked")
+        RedisVisitedRepository redisVisited = new RedisVisitedRepository(mock(RedisCommands.class));
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(redisVisited, 100);
+
+        // When & Then
+        assertThat(RedisVisitedRepository.unwrap(repository)).isSameAs(redisVisited);
+        assertThat(RedisVisitedRepository.unwrap(new NearCachedVisitedRepository(delegate, 100))).isNull();
+    }
+
+    @Test
+    void shouldOnlyAskDelegateAboutUrisNotKnownLocallyInBatchLookups() {
+        // Given
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(delegate, 100);
+        URI uriC = URI.create("https://example.com/c");
+        when(delegate.markVisited(URI_A)).thenReturn(true);
+        repository.markVisited(URI_A);
+        when(delegate.isVisitedAll(List.of(URI_B, uriC))).thenReturn(Set.of(uriC));
+
+        // When
+        Set<URI> visited = repository.isVisitedAll(List.of(URI_B, uriC, URI_A));
+
+        // Then
+        assertThat(visited).containsExactly(uriC, URI_A);
+        assertThat(repository.isVisited(uriC)).isTrue();
+        verify(delegate, never()).isVisited(any());
+    }
+
+    @Test
+    void shouldRememberAllUrisOfBatchMark() {
+        // Given
+        NearCachedVisitedRepository repository = new NearCachedVisitedRepository(delegate, 100);
+        when(delegate.markVisitedAll(List.of(URI_A, URI_B))).thenReturn(Set.of(URI_B));
+
+        // When
+        Set<URI> marked = repository.markVisitedAll(List.of(URI_A, URI_B));
+
+        // Then
+        assertThat(marked).containsExactly(URI_B);
+        assertThat(repository.isVisitedAll(List.of(URI_A, URI_B))).containsExactly(URI_A, URI_B);
+        verify(delegate, never()).isVisitedAll(any());
+    }
+}
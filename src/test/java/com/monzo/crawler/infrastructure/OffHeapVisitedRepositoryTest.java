@@ -0,0 +1,108 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapVisitedRepositoryTest {
+
+    @Test
+    void shouldMarkUriAsVisitedOnlyOnce() {
+        try (OffHeapVisitedRepository repository = new OffHeapVisitedRepository()) {
+            // Given
+            URI uri = URI.create("https://example.com/page");
+
+            // When
+            boolean first = repository.markVisited(uri);
+            boolean second = repository.markVisited(uri);
+
+            // Then
+            assertThat(first).isTrue();
+            assertThat(second).isFalse();
+            assertThat(repository.isVisited(uri)).isTrue();
+            assertThat(repository.isVisited(URI.create("https://example.com/other"))).isFalse();
+        }
+    }
+
+    @Test
+    void shouldKeepAllUrisWhenTablesGrow() {
+        try (OffHeapVisitedRepository repository = new OffHeapVisitedRepository(2)) {
+            // Given
+            int count = 200_000;
+            long initialBytes = repository.allocatedBytes();
+
+            // When
+            IntStream.range(0, count).forEach(i -> repository.markVisited(URI.create("https://example.com/" + i)));
+
+            // Then
+            assertThat(repository.size()).isEqualTo(count);
+            assertThat(IntStream.range(0, count)
+                    .allMatch(i -> repository.isVisited(URI.create("https://example.com/" + i))))
+                    .isTrue();
+            assertThat(repository.isVisited(URI.create("https://example.com/" + count))).isFalse();
+            assertThat(repository.allocatedBytes()).isGreaterThan(initialBytes)
+                    .isLessThanOrEqualTo(count * Long.BYTES * 4L);
+        }
+    }
+
+    @Test
+    void shouldLetExactlyOneConcurrentCallerMarkEachUriWhileGrowing() {
+        try (OffHeapVisitedRepository repository = new OffHeapVisitedRepository(2)) {
+            // Given
+            int threads = 8;
+            int count = 50_000;
+            AtomicInteger marked = new AtomicInteger();
+
+            // When - every thread races to mark the same URIs, forcing resizes mid-insert
+            try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+                for (int t = 0; t < threads; t++) {
+                    executor.submit(() -> IntStream.range(0, count).forEach(i -> {
+                        if (repository.markVisited(URI.create("https://example.com/" + i))) {
+                            marked.incrementAndGet();
+                        }
+                    }));
+                }
+            }
+
+            // Then
+            assertThat(marked).hasValue(count);
+            assertThat(repository.size()).isEqualTo(count);
+        }
+    }
+
+    @Test
+    void shouldTrackZeroWhichMarksEmptySlots() {
+        try (OffHeapLongSet set = new OffHeapLongSet(16)) {
+            // When
+            boolean first = set.add(0);
+            boolean second = set.add(0);
+
+            // Then
+            assertThat(first).isTrue();
+            assertThat(second).isFalse();
+            assertThat(set.contains(0)).isTrue();
+            assertThat(set.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldRejectUseAfterClose() {
+        // Given
+        OffHeapVisitedRepository repository = new OffHeapVisitedRepository();
+        repository.markVisited(URI.create("https://example.com/page"));
+
+        // When
+        repository.close();
+
+        // Then
+        assertThatThrownBy(() -> repository.isVisited(URI.create("https://example.com/page")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,189 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers
+class RedisBloomVisitedRepositoryIntegrationTest {
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private static RedisCommands<String, String> redisCommands;
+    private static RedisCommands<byte[], byte[]> binaryCommands;
+
+    @BeforeAll
+    static void setUpClass() {
+        redisCommands = TestRedisConfiguration.getSharedCommands(redis);
+        binaryCommands = TestRedisConfiguration.getSharedBinaryCommands(redis);
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        TestRedisConfiguration.closeSharedResources();
+    }
+
+    @BeforeEach
+    void setUp() {
+        TestRedisConfiguration.cleanTestData(redisCommands);
+    }
+
+    @Test
+    void shouldReportNewUriOnlyOnFirstMark() {
+        // Given
+        RedisBloomVisitedRepository repository = new RedisBloomVisitedRepository(binaryCommands, 1_000, 0.01);
+        URI uri = URI.create("https://example.com/page");
+
+        // When
+        boolean before = repository.isVisited(uri);
+        boolean first = repository.markVisited(uri);
+        boolean second = repository.markVisited(uri);
+
+        // Then
+        assertThat(before).isFalse();
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(repository.isVisited(uri)).isTrue();
+    }
+
+    @Test
+    void shouldStayNearTargetFalsePositiveRateAtExpectedSize() {
+        // Given
+        int expected = 10_000;
+        RedisBloomVisitedRepository repository = new RedisBloomVisitedRepository(binaryCommands, expected, 0.01);
+        IntStream.range(0, expected)
+                .forEach(i -> repository.markVisited(URI.create("https://example.com/visited/" + i)));
+
+        // When
+        long falsePositives = IntStream.range(0, expected)
+                .filter(i -> repository.isVisited(URI.create("https://example.com/unvisited/" + i)))
+                .count();
+
+        // Then
+        assertThat(IntStream.range(0, expected)
+                .allMatch(i -> repository.isVisited(URI.create("https://example.com/visited/" + i)))).isTrue();
+        assertThat(falsePositives).isLessThan(expected * 2 / 100);
+    }
+
+    @Test
+    void shouldKeepFootprintFixedRegardlessOfUriLength() {
+        // Given
+        RedisBloomVisitedRepository repository = new RedisBloomVisitedRepository(binaryCommands, 1_000, 0.01);
+        String longPath = "segment/".repeat(200);
+
+        // When
+        IntStream.range(0, 1_000)
+                .forEach(i -> repository.markVisited(URI.create("https://example.com/" + longPath + i)));
+
+        // Then
+        long bytes = redisCommands.strlen(RedisBloomVisitedRepository.KEY_PREFIX + 0);
+        assertThat(bytes).isLessThanOrEqualTo((repository.totalBits() + 7) / 8);
+        assertThat(bytes).isLessThan(1_000 * 2);
+    }
+
+    @Test
+    void shouldSplitLargeFiltersAcrossBlocks() {
+        // Given
+        RedisBloomVisitedRepository repository = new RedisBloomVisitedRepository(binaryCommands, 1 << 16, 1 << 12, 5);
+        List<URI> uris = IntStream.range(0, 1_000)
+                .mapToObj(i -> URI.create("https://example.com/page" + i))
+                .toList();
+
+        // When
+        uris.forEach(repository::markVisited);
+
+        // Then
+        assertThat(repository.blocks()).isEqualTo(16);
+        assertThat(uris).allMatch(repository::isVisited);
+        assertThat(redisCommands.keys(RedisBloomVisitedRepository.KEY_PREFIX + "*")).hasSize(16);
+        assertThat(redisCommands.strlen(RedisBloomVisitedRepository.KEY_PREFIX + 0)).isLessThanOrEqualTo(512);
+    }
+
+    @Test
+    void shouldSizeBillionUrlFilterAtAboutOneByteAndAHalfPerUrl() {
+        // Given
+        long expected = 1_000_000_000L;
+
+        // When
+        long bits = RedisBloomVisitedRepository.optimalBits(expected, 0.01);
+        int hashFunctions = RedisBloomVisitedRepository.optimalHashFunctions(expected, bits);
+
+        // Then
+        assertThat(bits / 8.0 / expected).isBetween(1.1, 1.3);
+        assertThat(hashFunctions).isEqualTo(7);
+        assertThat(bits).isGreaterThan(RedisBloomVisitedRepository.MAX_BLOCK_BITS);
+    }
+
+    @Test
+    void shouldRejectInvalidSizing() {
+        assertThatThrownBy(() -> new RedisBloomVisitedRepository(binaryCommands, 0, 0.01))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RedisBloomVisitedRepository(binaryCommands, 1_000, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldLetExactlyOneConcurrentMarkClaimAUri() throws Exception {
+        // Given
+        RedisBloomVisitedRepository repository = new RedisBloomVisitedRepository(binaryCommands, 1_000, 0.01);
+        URI uri = URI.create("https://example.com/contended");
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+
+        // When
+        List<CompletableFuture<Boolean>> marks = IntStream.range(0, 10)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> repository.markVisited(uri), executor))
+                .toList();
+        long winners = marks.stream().filter(CompletableFuture::join).count();
+        executor.shutdown();
+
+        // Then
+        assertThat(winners).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAnswerBatchOperationsAcrossBlocks() {
+        // Given
+        RedisBloomVisitedRepository repository = new RedisBloomVisitedRepository(binaryCommands, 1 << 16, 1 << 12, 5);
+        List<URI> visited = IntStream.range(0, 500)
+                .mapToObj(i -> URI.create("https://example.com/visited/" + i))
+                .toList();
+        List<URI> unvisited = IntStream.range(0, 500)
+                .mapToObj(i -> URI.create("https://example.com/unvisited/" + i))
+                .toList();
+
+        // When
+        Set<URI> firstMark = repository.markVisitedAll(visited);
+        Set<URI> secondMark = repository.markVisitedAll(visited);
+        Set<URI> found = repository.isVisitedAll(interleave(visited, unvisited));
+
+        // Then
+        assertThat(firstMark).containsExactlyElementsOf(visited);
+        assertThat(secondMark).isEmpty();
+        assertThat(found).containsAll(visited);
+        assertThat(found.size() - visited.size()).isLessThan(25);
+        assertThat(visited).allMatch(repository::isVisited);
+    }
+
+    private static List<URI> interleave(List<URI> first, List<URI> second) {
+        return IntStream.range(0, first.size())
+                .boxed()
+                .flatMap(i -> Stream.of(first.get(i), second.get(i)))
+                .toList();
+    }
+}
@@ -1,5 +1,6 @@
 package com.monzo.crawler.infrastructure;
 
+import com.monzo.crawler.domain.port.out.VisitedRepository;
 import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
 import io.lettuce.core.api.sync.RedisCommands;
 import org.junit.jupiter.api.*;
@@ -9,8 +10,10 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -21,6 +24,11 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @Testcontainers
 class RedisFrontierQueueIntegrationTest {
@@ -43,7 +51,7 @@ class RedisFrontierQueueIntegrationTest {
         // Create dedicated connection for each test
         redisSetup = TestRedisConfiguration.createDedicatedTestSetup(redis);
         redisCommands = redisSetup.getCommands();
-        frontierQueue = new RedisFrontierQueue(redisCommands);
+        frontierQueue = new RedisFrontierQueue(redisSetup.getBinaryCommands());
     }
 
     @AfterEach
@@ -182,22 +190,69 @@ class RedisFrontierQueueIntegrationTest {
     }
 
     @Test
-    void shouldHandleDuplicateUris() {
+    void shouldIgnoreDuplicatesOfPendingUris() {
         // Given
         URI duplicateUri = URI.create("https://example.com/duplicate");
 
         // When
         frontierQueue.enqueue(duplicateUri);
         frontierQueue.enqueue(duplicateUri);
-        frontierQueue.enqueue(duplicateUri);
+        frontierQueue.enqueueAll(List.of(duplicateUri, duplicateUri));
 
         // Then
+        assertThat(redisCommands.llen("frontier-queue")).isEqualTo(1);
         assertThat(frontierQueue.dequeue()).isEqualTo(duplicateUri);
-        assertThat(frontierQueue.dequeue()).isEqualTo(duplicateUri);
-        assertThat(frontierQueue.dequeue()).isEqualTo(duplicateUri);
         assertThat(frontierQueue.isEmpty()).isTrue();
     }
 
+    @Test
+    void shouldAcceptUriAgainOnceItHasBeenDequeued() {
+        // Given
+        URI uri = URI.create("https://example.com/again");
+        frontierQueue.enqueue(uri);
+        frontierQueue.dequeue();
+
+        // When
+        frontierQueue.enqueue(uri);
+
+        // Then
+        assertThat(frontierQueue.dequeue()).isEqualTo(uri);
+        assertThat(redisCommands.scard("frontier-pending")).isZero();
+    }
+
+    @Test
+    void shouldNotEnqueueAlreadyVisitedUris() {
+        // Given
+        URI visited = URI.create("https://example.com/visited");
+        URI fresh = URI.create("https://example.com/fresh");
+        new RedisVisitedRepository(redisSetup.getBinaryCommands()).markVisited(visited);
+
+        // When
+        frontierQueue.enqueueAll(List.of(visited, fresh));
+
+        // Then
+        assertThat(redisCommands.lrange("frontier-queue", 0, -1)).containsExactly(fresh.toString());
+    }
+
+    @Test
+    void shouldKeepPendingSetInSyncWithQueue() {
+        // Given
+        List<URI> testUris = IntStream.range(0, 10)
+                .mapToObj(i -> URI.create("https://example.com/page/" + i))
+                .toList();
+        frontierQueue.enqueueAll(testUris);
+        assertThat(redisCommands.scard("frontier-pending")).isEqualTo(10);
+
+        // When - drain through every pop path
+        frontierQueue.dequeue();
+        frontierQueue.dequeue(Duration.ofMillis(100));
+        frontierQueue.claim(8, new RedisVisitedRepository(redisSetup.getBinaryCommands()));
+
+        // Then
+        assertThat(frontierQueue.isEmpty()).isTrue();
+        assertThat(redisCommands.scard("frontier-pending")).isZero();
+    }
+
     @Test
     void shouldHandleEncodedUris() {
         // Given
@@ -272,7 +327,7 @@ class RedisFrontierQueueIntegrationTest {
         frontierQueue.enqueue(uri);
 
         // When - create new queue with same Redis connection
-        RedisFrontierQueue newQueue = new RedisFrontierQueue(redisCommands);
+        RedisFrontierQueue newQueue = new RedisFrontierQueue(redisSetup.getBinaryCommands());
 
         // Then
         assertThat(newQueue.isEmpty()).isFalse();
@@ -530,4 +585,204 @@ class RedisFrontierQueueIntegrationTest {
 
         assertThat(redisCommands.llen("frontier-queue")).isEqualTo(0);
     }
+
+    @Test
+    void shouldEnqueueAllInIterationOrder() {
+        // Given
+        List<URI> testUris = List.of(
+                URI.create("https://example.com/1"),
+                URI.create("https://example.com/2"),
+                URI.create("https://example.com/3")
+        );
+
+        // When
+        frontierQueue.enqueueAll(testUris);
+
+        // Then
+        assertThat(redisCommands.lrange("frontier-queue", 0, -1))
+                .containsExactly(testUris.stream().map(URI::toString).toArray(String[]::new));
+    }
+
+    @Test
+    void shouldEnqueueAllAcrossMultipleChunks() {
+        // Given - more URIs than fit in a single RPUSH chunk
+        int numberOfUris = 2500;
+        List<URI> testUris = IntStream.range(0, numberOfUris)
+                .mapToObj(i -> URI.create("https://example.com/page/" + i))
+                .toList();
+
+        // When
+        frontierQueue.enqueueAll(testUris);
+
+        // Then
+        List<URI> dequeuedUris = new ArrayList<>();
+        URI uri;
+        while ((uri = frontierQueue.dequeue()) != null) {
+            dequeuedUris.add(uri);
+        }
+        assertThat(dequeuedUris).isEqualTo(testUris);
+    }
+
+    @Test
+    void shouldIgnoreEmptyEnqueueAll() {
+        // When
+        frontierQueue.enqueueAll(List.of());
+
+        // Then
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldReturnNullWhenBlockingDequeueTimesOut() {
+        // Given - empty queue
+        long start = System.nanoTime();
+
+        // When
+        URI dequeuedUri = frontierQueue.dequeue(Duration.ofMillis(200));
+
+        // Then
+        assertThat(dequeuedUri).isNull();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+    }
+
+    @Test
+    void shouldReturnNullWhenSubMillisecondBlockingDequeueTimesOut() throws Exception {
+        // Given - empty queue
+
+        // When - a timeout that truncates to zero whole milliseconds
+        CompletableFuture<URI> waiter =
+                CompletableFuture.supplyAsync(() -> frontierQueue.dequeue(Duration.ofNanos(500_000)));
+
+        // Then
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void shouldReturnImmediatelyFromBlockingDequeueWhenQueueHasElements() {
+        // Given
+        URI uri = URI.create("https://example.com/ready");
+        frontierQueue.enqueue(uri);
+
+        // When
+        URI dequeuedUri = frontierQueue.dequeue(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(dequeuedUri).isEqualTo(uri);
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldWakeBlockedDequeueWhenUriIsEnqueued() throws Exception {
+        // Given - blocking pops on their own connection, as in production
+        try (TestRedisConfiguration.TestRedisSetup blockingSetup = TestRedisConfiguration.createDedicatedTestSetup(redis)) {
+            RedisFrontierQueue queue = new RedisFrontierQueue(redisSetup.getBinaryCommands(), blockingSetup.getBinaryCommands());
+            URI uri = URI.create("https://example.com/late");
+
+            // When
+            CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofSeconds(10)));
+            Thread.sleep(100);
+            queue.enqueue(uri);
+
+            // Then
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(uri);
+        }
+    }
+
+    @Test
+    void shouldClaimBatchAndMarkClaimedUrisAsVisited() {
+        // Given
+        URI uri1 = URI.create("https://example.com/1");
+        URI uri2 = URI.create("https://example.com/2");
+        URI uri3 = URI.create("https://example.com/3");
+        frontierQueue.enqueueAll(List.of(uri1, uri2, uri3));
+        RedisVisitedRepository visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
+
+        // When
+        List<URI> claimed = frontierQueue.claim(2, visitedRepository);
+
+        // Then
+        assertThat(claimed).containsExactly(uri1, uri2);
+        assertThat(visitedRepository.isVisited(uri1)).isTrue();
+        assertThat(visitedRepository.isVisited(uri2)).isTrue();
+        assertThat(visitedRepository.isVisited(uri3)).isFalse();
+        assertThat(frontierQueue.dequeue()).isEqualTo(uri3);
+    }
+
+    @Test
+    void shouldClaimBatchLargerThanLuaCanUnpackAtOnce() {
+        // Given
+        List<URI> uris = IntStream.range(0, 10_000).mapToObj(i -> URI.create("https://example.com/" + i)).toList();
+        frontierQueue.enqueueAll(uris);
+        RedisVisitedRepository visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
+
+        // When
+        List<URI> claimed = frontierQueue.claim(uris.size(), visitedRepository);
+
+        // Then
+        assertThat(claimed).isEqualTo(uris);
+        assertThat(frontierQueue.isEmpty()).isTrue();
+        assertThat(redisCommands.scard("frontier-pending")).isZero();
+    }
+
+    @Test
+    void shouldDropUrisVisitedAfterEnqueueWhenClaiming() {
+        // Given
+        URI visited = URI.create("https://example.com/visited");
+        URI fresh = URI.create("https://example.com/fresh");
+        RedisVisitedRepository visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
+        frontierQueue.enqueueAll(List.of(visited, fresh));
+        visitedRepository.markVisited(visited);
+
+        // When
+        List<URI> claimed = frontierQueue.claim(10, visitedRepository);
+
+        // Then - the visited entry is consumed but not returned
+        assertThat(claimed).containsExactly(fresh);
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldReturnEmptyClaimFromEmptyQueue() {
+        // When
+        List<URI> claimed = frontierQueue.claim(10, new RedisVisitedRepository(redisSetup.getBinaryCommands()));
+
+        // Then
+        assertThat(claimed).isEmpty();
+    }
+
+    @Test
+    void shouldFallBackToPerUriClaimForOtherVisitedRepositories() {
+        // Given
+        URI uri1 = URI.create("https://example.com/1");
+        URI uri2 = URI.create("https://example.com/2");
+        frontierQueue.enqueueAll(List.of(uri1, uri2));
+        VisitedRepository visitedRepository = mock(VisitedRepository.class);
+        when(visitedRepository.markVisitedAll(List.of(uri1, uri2))).thenReturn(Set.of(uri2));
+
+        // When
+        List<URI> claimed = frontierQueue.claim(5, visitedRepository);
+
+        // Then
+        assertThat(claimed).containsExactly(uri2);
+        assertThat(frontierQueue.isEmpty()).isTrue();
+        verify(visitedRepository, never()).markVisited(any());
+    }
+
+    @Test
+    void shouldClaimThroughFingerprintedVisitedRepository() {
+        // Given
+        URI visited = URI.create("https://example.com/visited");
+        URI fresh = URI.create("https://example.com/fresh");
+        RedisVisitedRepository visitedRepository = RedisVisitedRepository.fingerprinted(redisSetup.getBinaryCommands());
+        frontierQueue.enqueueAll(List.of(visited, fresh));
+        visitedRepository.markVisited(visited);
+
+        // When
+        List<URI> claimed = frontierQueue.claim(10, visitedRepository);
+
+        // Then
+        assertThat(claimed).containsExactly(fresh);
+        assertThat(visitedRepository.isVisited(fresh)).isTrue();
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
 }
@@ -0,0 +1,221 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@Testcontainers
+class RedisHostFrontierQueueIntegrationTest {
+
+    private static final Duration POLITENESS_DELAY = Duration.ofSeconds(1);
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private TestRedisConfiguration.TestRedisSetup redisSetup;
+    private RedisCommands<String, String> redisCommands;
+
+    @BeforeEach
+    void setUp() {
+        redisSetup = TestRedisConfiguration.createDedicatedTestSetup(redis);
+        redisCommands = redisSetup.getCommands();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redisSetup != null) {
+            redisSetup.close();
+        }
+    }
+
+    private RedisHostFrontierQueue politeQueue() {
+        return new RedisHostFrontierQueue(redisCommands, POLITENESS_DELAY);
+    }
+
+    /**
+     * Ready times are read from the Redis clock, so moving every host's ready time back is the same as waiting.
+     */
+    private void elapse(Duration duration) {
+        redisCommands.hgetall("frontier-host-next").forEach((host, nextFetch) -> redisCommands.hset(
+                "frontier-host-next", host, String.valueOf(Long.parseLong(nextFetch) - duration.toMillis())));
+        redisCommands.zrange("frontier-hosts", 0, -1).forEach(host ->
+                redisCommands.zincrby("frontier-hosts", -duration.toMillis(), host));
+    }
+
+    private long redisNowMillis() {
+        List<String> time = redisCommands.time();
+        return Long.parseLong(time.get(0)) * 1000 + Long.parseLong(time.get(1)) / 1000;
+    }
+
+    @Test
+    void shouldReturnTrueForEmptyQueueInitially() {
+        assertThat(politeQueue().isEmpty()).isTrue();
+        assertThat(politeQueue().dequeue()).isNull();
+    }
+
+    @Test
+    void shouldAlternateBetweenReadyHosts() {
+        // Given - a burst of links to one host followed by a link to another
+        RedisHostFrontierQueue queue = politeQueue();
+        queue.enqueueAll(List.of(
+                URI.create("https://a.com/1"),
+                URI.create("https://a.com/2"),
+                URI.create("https://a.com/3"),
+                URI.create("https://b.com/1")
+        ));
+
+        // When
+        URI first = queue.dequeue();
+        URI second = queue.dequeue();
+        URI third = queue.dequeue();
+
+        // Then - each host is served once, then both are cooling down
+        assertThat(List.of(first, second)).containsExactlyInAnyOrder(
+                URI.create("https://a.com/1"), URI.create("https://b.com/1"));
+        assertThat(third).isNull();
+        assertThat(queue.isEmpty()).isFalse();
+    }
+
+    @Test
+    void shouldHonourPolitenessDelayPerHost() {
+        // Given
+        RedisHostFrontierQueue queue = politeQueue();
+        queue.enqueueAll(List.of(URI.create("https://a.com/1"), URI.create("https://a.com/2")));
+        assertThat(queue.dequeue()).isEqualTo(URI.create("https://a.com/1"));
+
+        // When / Then
+        assertThat(queue.dequeue()).isNull();
+        elapse(POLITENESS_DELAY);
+        assertThat(queue.dequeue()).isEqualTo(URI.create("https://a.com/2"));
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldScheduleHostsOnTheRedisClock() {
+        // Given
+        RedisHostFrontierQueue queue = politeQueue();
+        queue.enqueueAll(List.of(URI.create("https://a.com/1"), URI.create("https://a.com/2")));
+
+        // When
+        queue.dequeue();
+
+        // Then - every node reads the same clock, however far its own has drifted
+        long expectedReady = redisNowMillis() + POLITENESS_DELAY.toMillis();
+        assertThat(Long.parseLong(redisCommands.hget("frontier-host-next", "a.com")))
+                .isCloseTo(expectedReady, within(500L));
+        assertThat(redisCommands.zscore("frontier-hosts", "a.com")).isCloseTo(expectedReady, within(500.0));
+    }
+
+    @Test
+    void shouldRememberDelayWhenDrainedHostIsRefilled() {
+        // Given - host drains completely on its first fetch
+        RedisHostFrontierQueue queue = politeQueue();
+        queue.enqueue(URI.create("https://a.com/1"));
+        assertThat(queue.dequeue()).isNotNull();
+
+        // When - new link for the same host arrives during the cooldown
+        queue.enqueue(URI.create("https://a.com/2"));
+
+        // Then
+        assertThat(queue.dequeue()).isNull();
+        elapse(POLITENESS_DELAY);
+        assertThat(queue.dequeue()).isEqualTo(URI.create("https://a.com/2"));
+    }
+
+    @Test
+    void shouldKeepFifoOrderWithinHost() {
+        // Given
+        RedisHostFrontierQueue queue = new RedisHostFrontierQueue(redisCommands, Duration.ZERO);
+        List<URI> uris = List.of(
+                URI.create("https://a.com/1"),
+                URI.create("https://a.com/2"),
+                URI.create("https://a.com/3")
+        );
+
+        // When
+        queue.enqueueAll(uris);
+        List<URI> dequeued = new ArrayList<>();
+        URI uri;
+        while ((uri = queue.dequeue()) != null) {
+            dequeued.add(uri);
+        }
+
+        // Then
+        assertThat(dequeued).isEqualTo(uris);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldIgnoreDuplicatesAndVisitedUris() {
+        // Given
+        RedisHostFrontierQueue queue = new RedisHostFrontierQueue(redisCommands, Duration.ZERO);
+        URI visited = URI.create("https://a.com/visited");
+        URI fresh = URI.create("https://a.com/fresh");
+        new RedisVisitedRepository(redisSetup.getBinaryCommands()).markVisited(visited);
+
+        // When
+        queue.enqueueAll(List.of(fresh, visited, fresh));
+        queue.enqueue(fresh);
+
+        // Then
+        assertThat(queue.dequeue()).isEqualTo(fresh);
+        assertThat(queue.dequeue()).isNull();
+        assertThat(redisCommands.scard("frontier-host-pending")).isZero();
+    }
+
+    @Test
+    void shouldWaitForHostToBecomeReadyInBlockingDequeue() {
+        // Given
+        RedisHostFrontierQueue queue = new RedisHostFrontierQueue(redisCommands, Duration.ofMillis(300));
+        queue.enqueueAll(List.of(URI.create("https://a.com/1"), URI.create("https://a.com/2")));
+        queue.dequeue();
+        long start = System.nanoTime();
+
+        // When
+        URI uri = queue.dequeue(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(uri).isEqualTo(URI.create("https://a.com/2"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void shouldWakeBlockedDequeueWhenUriIsEnqueued() throws Exception {
+        try (TestRedisConfiguration.TestRedisSetup blockingSetup = TestRedisConfiguration.createDedicatedTestSetup(redis)) {
+            // Given
+            RedisHostFrontierQueue queue = new RedisHostFrontierQueue(
+                    redisCommands, blockingSetup.getCommands(), Duration.ZERO);
+            URI uri = URI.create("https://a.com/late");
+
+            // When
+            CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofSeconds(10)));
+            Thread.sleep(100);
+            queue.enqueue(uri);
+
+            // Then
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(uri);
+        }
+    }
+
+    @Test
+    void shouldReturnNullWhenBlockingDequeueTimesOut() {
+        RedisHostFrontierQueue queue = new RedisHostFrontierQueue(redisCommands, Duration.ZERO);
+
+        assertThat(queue.dequeue(Duration.ofMillis(100))).isNull();
+    }
+}
@@ -0,0 +1,107 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.model.PageHistory;
+import com.monzo.crawler.domain.model.PageValidators;
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class RedisPageHistoryRepositoryIntegrationTest {
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private static final URI PAGE = URI.create("https://example.com/blog/post");
+
+    private static RedisCommands<String, String> redisCommands;
+    private RedisPageHistoryRepository repository;
+
+    @BeforeAll
+    static void setUpClass() {
+        redisCommands = TestRedisConfiguration.getSharedCommands(redis);
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        TestRedisConfiguration.closeSharedResources();
+    }
+
+    @BeforeEach
+    void setUp() {
+        TestRedisConfiguration.cleanTestData(redisCommands);
+        repository = new RedisPageHistoryRepository(redisCommands);
+    }
+
+    @Test
+    void shouldFindNothingForPageNeverSaved() {
+        assertThat(repository.find(PAGE)).isEmpty();
+    }
+
+    @Test
+    void shouldRoundTripValidatorsAndLinks() {
+        // Given
+        PageHistory history = new PageHistory(
+                new PageValidators("W/\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT"),
+                Set.of(URI.create("https://example.com/about"),
+                        URI.create("https://example.com/search?q=a%20b"),
+                        URI.create("https://other.example/page"),
+                        URI.create("http://example.com/insecure"),
+                        URI.create("https://example.com.evil/page")));
+
+        // When
+        repository.save(PAGE, history);
+
+        // Then
+        assertThat(repository.find(PAGE)).contains(history);
+    }
+
+    @Test
+    void shouldStoreSameOriginLinksAsPaths() {
+        // Given
+        PageHistory history = new PageHistory(new PageValidators("\"v1\"", null),
+                Set.of(URI.create("https://example.com/about")));
+
+        // When
+        repository.save(PAGE, history);
+
+        // Then
+        assertThat(redisCommands.hget(RedisPageHistoryRepository.PAGE_HISTORY, PAGE.toString()))
+                .isEqualTo("\"v1\"\n\n/about");
+    }
+
+    @Test
+    void shouldKeepAbsentValidatorsAndEmptyLinks() {
+        // Given
+        PageHistory history = new PageHistory(new PageValidators(null, "Wed, 21 Oct 2015 07:28:00 GMT"), Set.of());
+
+        // When
+        repository.save(PAGE, history);
+
+        // Then
+        assertThat(repository.find(PAGE)).contains(history);
+    }
+
+    @Test
+    void shouldReplaceEarlierHistory() {
+        // Given
+        repository.save(PAGE, new PageHistory(new PageValidators("\"v1\"", null),
+                Set.of(URI.create("https://example.com/old"))));
+        PageHistory current = new PageHistory(new PageValidators("\"v2\"", null),
+                Set.of(URI.create("https://example.com/new")));
+
+        // When
+        repository.save(PAGE, current);
+
+        // Then
+        assertThat(repository.find(PAGE)).contains(current);
+    }
+}
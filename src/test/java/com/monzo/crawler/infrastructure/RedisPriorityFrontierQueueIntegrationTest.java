@@ -0,0 +1,182 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class RedisPriorityFrontierQueueIntegrationTest {
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private TestRedisConfiguration.TestRedisSetup redisSetup;
+    private RedisCommands<String, String> redisCommands;
+    private RedisPriorityFrontierQueue frontierQueue;
+
+    @BeforeEach
+    void setUp() {
+        redisSetup = TestRedisConfiguration.createDedicatedTestSetup(redis);
+        redisCommands = redisSetup.getCommands();
+        frontierQueue = new RedisPriorityFrontierQueue(redisCommands);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redisSetup != null) {
+            redisSetup.close();
+        }
+    }
+
+    @Test
+    void shouldReturnTrueForEmptyQueueInitially() {
+        assertThat(frontierQueue.isEmpty()).isTrue();
+        assertThat(frontierQueue.dequeue()).isNull();
+    }
+
+    @Test
+    void shouldDequeueShallowUrisBeforeDeepOnes() {
+        // Given
+        URI deep = URI.create("https://example.com/a/b/c/d");
+        URI shallow = URI.create("https://example.com/about");
+        URI lowValue = URI.create("https://example.com/tag/news");
+
+        // When
+        frontierQueue.enqueueAll(List.of(deep, lowValue, shallow));
+
+        // Then
+        assertThat(frontierQueue.dequeue()).isEqualTo(shallow);
+        assertThat(frontierQueue.dequeue()).isEqualTo(deep);
+        assertThat(frontierQueue.dequeue()).isEqualTo(lowValue);
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldCostUppercaseLowValuePathsTheSameUnderAnyLocale() {
+        // Given - a locale whose lowercase I is dotless
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            // When
+            double upper = RedisPriorityFrontierQueue.staticCost(URI.create("https://example.com/LOGIN"));
+
+            // Then
+            assertThat(upper).isEqualTo(RedisPriorityFrontierQueue.staticCost(URI.create("https://example.com/login")));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void shouldPromoteUrisLinkedFromManyPages() {
+        // Given - two equally costly URIs, one of which keeps being discovered
+        URI popular = URI.create("https://example.com/x/popular");
+        URI lonely = URI.create("https://example.com/x/lonely1");
+        frontierQueue.enqueueAll(List.of(lonely, popular));
+
+        // When
+        frontierQueue.enqueueAll(List.of(popular, URI.create("https://example.com/x/y/z/1")));
+        frontierQueue.enqueueAll(List.of(popular, URI.create("https://example.com/x/y/z/2")));
+
+        // Then
+        assertThat(frontierQueue.dequeue()).isEqualTo(popular);
+        assertThat(frontierQueue.dequeue()).isEqualTo(lonely);
+    }
+
+    @Test
+    void shouldIgnoreDuplicatesAndVisitedUris() {
+        // Given
+        URI visited = URI.create("https://example.com/visited");
+        URI fresh = URI.create("https://example.com/fresh");
+        new RedisVisitedRepository(redisSetup.getBinaryCommands()).markVisited(visited);
+
+        // When
+        frontierQueue.enqueueAll(List.of(fresh, visited, fresh));
+        frontierQueue.enqueue(fresh);
+
+        // Then
+        assertThat(frontierQueue.dequeue()).isEqualTo(fresh);
+        assertThat(frontierQueue.dequeue()).isNull();
+        assertThat(redisCommands.hlen("frontier-cash")).isZero();
+    }
+
+    @Test
+    void shouldClaimBestUrisAndMarkThemVisited() {
+        // Given
+        RedisVisitedRepository visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
+        URI best = URI.create("https://example.com/");
+        URI next = URI.create("https://example.com/a");
+        URI worst = URI.create("https://example.com/a/b/c?page=2");
+        frontierQueue.enqueueAll(List.of(worst, next, best));
+
+        // When
+        List<URI> claimed = frontierQueue.claim(2, visitedRepository);
+
+        // Then
+        assertThat(claimed).containsExactly(best, next);
+        assertThat(visitedRepository.isVisited(best)).isTrue();
+        assertThat(visitedRepository.isVisited(worst)).isFalse();
+        assertThat(frontierQueue.dequeue()).isEqualTo(worst);
+    }
+
+    @Test
+    void shouldDropUrisVisitedAfterEnqueueWhenClaiming() {
+        // Given
+        RedisVisitedRepository visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
+        URI uri = URI.create("https://example.com/raced");
+        frontierQueue.enqueue(uri);
+        visitedRepository.markVisited(uri);
+
+        // When
+        List<URI> claimed = frontierQueue.claim(4, visitedRepository);
+
+        // Then
+        assertThat(claimed).isEmpty();
+        assertThat(frontierQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldWakeBlockedDequeueWhenUriIsEnqueued() throws Exception {
+        try (TestRedisConfiguration.TestRedisSetup blockingSetup = TestRedisConfiguration.createDedicatedTestSetup(redis)) {
+            // Given
+            RedisPriorityFrontierQueue queue = new RedisPriorityFrontierQueue(redisCommands, blockingSetup.getCommands());
+            URI uri = URI.create("https://example.com/late");
+
+            // When
+            CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofSeconds(10)));
+            Thread.sleep(100);
+            queue.enqueue(uri);
+
+            // Then
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(uri);
+            assertThat(redisCommands.hlen("frontier-cash")).isZero();
+        }
+    }
+
+    @Test
+    void shouldReturnNullWhenBlockingDequeueTimesOut() {
+        assertThat(frontierQueue.dequeue(Duration.ofMillis(100))).isNull();
+    }
+
+    @Test
+    void shouldReturnNullWhenSubMillisecondBlockingDequeueTimesOut() throws Exception {
+        CompletableFuture<URI> waiter =
+                CompletableFuture.supplyAsync(() -> frontierQueue.dequeue(Duration.ofNanos(500_000)));
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNull();
+    }
+}
@@ -0,0 +1,236 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class RedisStreamFrontierQueueIntegrationTest {
+
+    private static final Duration RECLAIM_IDLE_TIME = Duration.ofMillis(100);
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private TestRedisConfiguration.TestRedisSetup redisSetup;
+    private RedisCommands<String, String> redisCommands;
+    private RedisVisitedRepository visitedRepository;
+
+    @BeforeEach
+    void setUp() {
+        redisSetup = TestRedisConfiguration.createDedicatedTestSetup(redis);
+        redisCommands = redisSetup.getCommands();
+        visitedRepository = new RedisVisitedRepository(redisSetup.getBinaryCommands());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redisSetup != null) {
+            redisSetup.close();
+        }
+    }
+
+    private RedisStreamFrontierQueue queueFor(String consumerName) {
+        return new RedisStreamFrontierQueue(redisCommands, redisCommands, consumerName, RECLAIM_IDLE_TIME);
+    }
+
+    @Test
+    void shouldReturnTrueForEmptyQueueInitially() {
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.dequeue()).isNull();
+    }
+
+    @Test
+    void shouldClaimInFifoOrderAndMarkVisited() {
+        // Given
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+        URI uri1 = URI.create("https://example.com/1");
+        URI uri2 = URI.create("https://example.com/2");
+        URI uri3 = URI.create("https://example.com/3");
+        queue.enqueueAll(List.of(uri1, uri2, uri3));
+
+        // When
+        List<URI> claimed = queue.claim(2, visitedRepository);
+
+        // Then
+        assertThat(claimed).containsExactly(uri1, uri2);
+        assertThat(visitedRepository.isVisited(uri1)).isTrue();
+        assertThat(visitedRepository.isVisited(uri3)).isFalse();
+        assertThat(queue.claim(2, visitedRepository)).containsExactly(uri3);
+    }
+
+    @Test
+    void shouldStayNonEmptyUntilClaimedUrisAreAcknowledged() {
+        // Given
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+        URI uri = URI.create("https://example.com/page");
+        queue.enqueue(uri);
+        queue.claim(1, visitedRepository);
+
+        // When
+        boolean emptyBeforeAck = queue.isEmpty();
+        queue.acknowledge(uri);
+
+        // Then
+        assertThat(emptyBeforeAck).isFalse();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(redisCommands.xlen("frontier-stream")).isZero();
+    }
+
+    @Test
+    void shouldIgnoreDuplicatesAndVisitedUris() {
+        // Given
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+        URI visited = URI.create("https://example.com/visited");
+        URI fresh = URI.create("https://example.com/fresh");
+        visitedRepository.markVisited(visited);
+
+        // When
+        queue.enqueueAll(List.of(fresh, visited, fresh));
+        queue.enqueue(fresh);
+
+        // Then
+        assertThat(redisCommands.xlen("frontier-stream")).isEqualTo(1);
+        assertThat(queue.claim(10, visitedRepository)).containsExactly(fresh);
+    }
+
+    @Test
+    void shouldAcknowledgeEntriesVisitedAfterEnqueueWhenClaiming() {
+        // Given
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+        URI uri = URI.create("https://example.com/raced");
+        queue.enqueue(uri);
+        visitedRepository.markVisited(uri);
+
+        // When
+        List<URI> claimed = queue.claim(4, visitedRepository);
+
+        // Then
+        assertThat(claimed).isEmpty();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldRedeliverUnacknowledgedUriToAnotherConsumer() throws InterruptedException {
+        // Given - the first crawler claims a URI and dies without acknowledging it
+        RedisStreamFrontierQueue crashed = queueFor("crawler-1");
+        RedisStreamFrontierQueue survivor = queueFor("crawler-2");
+        URI uri = URI.create("https://example.com/in-flight");
+        crashed.enqueue(uri);
+        assertThat(crashed.claim(1, visitedRepository)).containsExactly(uri);
+
+        // When
+        List<URI> beforeIdle = survivor.claim(1, visitedRepository);
+        Thread.sleep(RECLAIM_IDLE_TIME.toMillis() * 2);
+        List<URI> afterIdle = survivor.claim(1, visitedRepository);
+        survivor.acknowledge(uri);
+
+        // Then
+        assertThat(beforeIdle).isEmpty();
+        assertThat(afterIdle).containsExactly(uri);
+        assertThat(survivor.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldNotReclaimItsOwnUrisWaitingPastTheIdleTime() throws InterruptedException {
+        // Given - a batch claimed but not yet acknowledged, e.g. still waiting for a free request slot
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+        List<URI> firstBatch = IntStream.range(0, 5).mapToObj(i -> URI.create("https://example.com/p" + i)).toList();
+        URI fresh = URI.create("https://example.com/fresh");
+        queue.enqueueAll(firstBatch);
+        assertThat(queue.claim(5, visitedRepository)).containsExactlyElementsOf(firstBatch);
+        Thread.sleep(RECLAIM_IDLE_TIME.toMillis() * 2);
+        queue.enqueue(fresh);
+
+        // When
+        List<URI> secondBatch = queue.claim(10, visitedRepository);
+
+        // Then
+        assertThat(secondBatch).containsExactly(fresh);
+    }
+
+    @Test
+    void shouldReclaimUrisLeftByEarlierProcessWithTheSameName() throws InterruptedException {
+        // Given - a crawler claims a URI and is restarted under the same consumer name
+        URI uri = URI.create("https://example.com/in-flight");
+        RedisStreamFrontierQueue crashed = queueFor("crawler-1");
+        crashed.enqueue(uri);
+        assertThat(crashed.claim(1, visitedRepository)).containsExactly(uri);
+        Thread.sleep(RECLAIM_IDLE_TIME.toMillis() * 2);
+
+        // When
+        RedisStreamFrontierQueue restarted = queueFor("crawler-1");
+        List<URI> reclaimed = restarted.claim(1, visitedRepository);
+        restarted.acknowledge(uri);
+
+        // Then
+        assertThat(reclaimed).containsExactly(uri);
+        assertThat(restarted.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldShareOneGroupBetweenConsumers() {
+        // Given
+        RedisStreamFrontierQueue first = queueFor("crawler-1");
+        RedisStreamFrontierQueue second = queueFor("crawler-2");
+        first.enqueueAll(List.of(URI.create("https://example.com/1"), URI.create("https://example.com/2")));
+
+        // When
+        List<URI> claimedByFirst = first.claim(1, visitedRepository);
+        List<URI> claimedBySecond = second.claim(5, visitedRepository);
+
+        // Then
+        assertThat(claimedByFirst).containsExactly(URI.create("https://example.com/1"));
+        assertThat(claimedBySecond).containsExactly(URI.create("https://example.com/2"));
+    }
+
+    @Test
+    void shouldWakeBlockedDequeueWhenUriIsEnqueued() throws Exception {
+        try (TestRedisConfiguration.TestRedisSetup blockingSetup = TestRedisConfiguration.createDedicatedTestSetup(redis)) {
+            // Given
+            RedisStreamFrontierQueue queue = new RedisStreamFrontierQueue(
+                    redisCommands, blockingSetup.getCommands(), "crawler-1", RECLAIM_IDLE_TIME);
+            URI uri = URI.create("https://example.com/late");
+
+            // When
+            CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofSeconds(10)));
+            Thread.sleep(100);
+            queue.enqueue(uri);
+
+            // Then
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo(uri);
+            queue.acknowledge(uri);
+            assertThat(queue.isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void shouldReturnNullWhenBlockingDequeueTimesOut() {
+        assertThat(queueFor("crawler-1").dequeue(Duration.ofMillis(100))).isNull();
+    }
+
+    @Test
+    void shouldReturnNullWhenSubMillisecondBlockingDequeueTimesOut() throws Exception {
+        RedisStreamFrontierQueue queue = queueFor("crawler-1");
+
+        CompletableFuture<URI> waiter = CompletableFuture.supplyAsync(() -> queue.dequeue(Duration.ofNanos(500_000)));
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNull();
+    }
+}
@@ -0,0 +1,27 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisTimeoutsTest {
+
+    @Test
+    void shouldRoundSubMillisecondTimeoutUpToOneMillisecond() {
+        assertThat(wholeMillisAsRedisReadsThem(Duration.ofNanos(500_000))).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepWholeMillisecondsThroughFloatingPoint() {
+        for (long millis = 1; millis <= 10_000; millis++) {
+            assertThat(wholeMillisAsRedisReadsThem(Duration.ofMillis(millis))).isEqualTo(millis);
+        }
+    }
+
+    // Redis multiplies the seconds by 1000 and truncates
+    private static long wholeMillisAsRedisReadsThem(Duration timeout) {
+        return (long) (RedisTimeouts.blockingSeconds(timeout) * 1000.0);
+    }
+}
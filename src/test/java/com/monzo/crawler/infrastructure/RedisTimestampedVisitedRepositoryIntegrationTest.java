@@ -0,0 +1,140 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@Testcontainers
+class RedisTimestampedVisitedRepositoryIntegrationTest {
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private static RedisCommands<String, String> redisCommands;
+    private static RedisCommands<byte[], byte[]> binaryCommands;
+    private RedisTimestampedVisitedRepository repository;
+
+    @BeforeAll
+    static void setUpClass() {
+        redisCommands = TestRedisConfiguration.getSharedCommands(redis);
+        binaryCommands = TestRedisConfiguration.getSharedBinaryCommands(redis);
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        TestRedisConfiguration.closeSharedResources();
+    }
+
+    @BeforeEach
+    void setUp() {
+        TestRedisConfiguration.cleanTestData(redisCommands);
+        repository = new RedisTimestampedVisitedRepository(binaryCommands, UriCodec.PLAIN, MAX_AGE);
+    }
+
+    @Test
+    void shouldTreatRecentlyCrawledUriAsVisited() {
+        // Given
+        URI uri = URI.create("https://example.com/page");
+
+        // When
+        boolean before = repository.isVisited(uri);
+        boolean first = repository.markVisited(uri);
+        boolean second = repository.markVisited(uri);
+
+        // Then
+        assertThat(before).isFalse();
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(repository.isVisited(uri)).isTrue();
+        assertThat(redisCommands.zscore(RedisTimestampedVisitedRepository.VISITED_TIMES, uri.toString()))
+                .isCloseTo(redisNowMillis(), within(5_000.0));
+    }
+
+    @Test
+    void shouldRecrawlUriOnceItIsOlderThanMaxAge() {
+        // Given
+        URI uri = URI.create("https://example.com/stale");
+        crawledAgo(uri, Duration.ofHours(2));
+
+        // When
+        boolean visitedBefore = repository.isVisited(uri);
+        boolean first = repository.markVisited(uri);
+        boolean second = repository.markVisited(uri);
+
+        // Then
+        assertThat(visitedBefore).isFalse();
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(repository.isVisited(uri)).isTrue();
+    }
+
+    @Test
+    void shouldAnswerBatchesForFreshExpiredAndNewUris() {
+        // Given
+        URI fresh = URI.create("https://example.com/fresh");
+        URI expired = URI.create("https://example.com/expired");
+        URI unseen = URI.create("https://example.com/new");
+        crawledAgo(fresh, Duration.ofMinutes(30));
+        crawledAgo(expired, Duration.ofHours(3));
+
+        // When
+        var visited = repository.isVisitedAll(List.of(unseen, expired, fresh));
+        var marked = repository.markVisitedAll(List.of(unseen, expired, fresh, unseen));
+
+        // Then
+        assertThat(visited).containsExactly(fresh);
+        assertThat(marked).containsExactly(unseen, expired);
+        assertThat(repository.isVisitedAll(List.of(unseen, expired, fresh))).containsExactly(unseen, expired, fresh);
+    }
+
+    @Test
+    void shouldRequeueOnlyExpiredUrisOldestFirst() {
+        // Given
+        crawledAgo(URI.create("https://example.com/fresh"), Duration.ofMinutes(10));
+        crawledAgo(URI.create("https://example.com/old"), Duration.ofHours(2));
+        crawledAgo(URI.create("https://example.com/oldest"), Duration.ofDays(3));
+        InMemoryFrontierQueue frontier = new InMemoryFrontierQueue();
+
+        // When
+        long requeued = repository.requeueExpired(frontier);
+
+        // Then
+        List<URI> dequeued = new ArrayList<>();
+        for (URI uri = frontier.dequeue(); uri != null; uri = frontier.dequeue()) {
+            dequeued.add(uri);
+        }
+        assertThat(requeued).isEqualTo(2);
+        assertThat(dequeued).containsExactly(
+                URI.create("https://example.com/oldest"), URI.create("https://example.com/old"));
+    }
+
+    @Test
+    void shouldRejectNonPositiveMaxAge() {
+        assertThatThrownBy(() -> new RedisTimestampedVisitedRepository(binaryCommands, UriCodec.PLAIN, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void crawledAgo(URI uri, Duration age) {
+        redisCommands.zadd(RedisTimestampedVisitedRepository.VISITED_TIMES,
+                redisNowMillis() - age.toMillis(), uri.toString());
+    }
+
+    private static double redisNowMillis() {
+        List<String> time = redisCommands.time();
+        return Long.parseLong(time.get(0)) * 1000.0 + Long.parseLong(time.get(1)) / 1000;
+    }
+}
@@ -0,0 +1,95 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration;
+import com.monzo.crawler.infrastructure.config.TestRedisConfiguration.TestRedisSetup;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testcontainers.shaded.org.awaitility.Awaitility.await;
+
+@Testcontainers
+class RedisVisitedCacheInvalidatorIntegrationTest {
+
+    @Container
+    static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
+
+    private static final URI PAGE = URI.create("https://example.com/page");
+
+    private TestRedisSetup thisNode;
+    private TestRedisSetup otherNode;
+    private StatefulRedisConnection<String, String> trackingConnection;
+    private NearCachedVisitedRepository cachedRepository;
+    private RedisVisitedCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        // Two crawler nodes sharing one visited set; only this node caches
+        thisNode = TestRedisConfiguration.createDedicatedTestSetup(redis);
+        otherNode = TestRedisConfiguration.createDedicatedTestSetup(redis);
+        cachedRepository = new NearCachedVisitedRepository(new RedisVisitedRepository(thisNode.getBinaryCommands()), 100);
+        trackingConnection = thisNode.getClient().connect();
+        invalidator = RedisVisitedCacheInvalidator.start(trackingConnection, cachedRepository::invalidateAll);
+    }
+
+    @AfterEach
+    void tearDown() {
+        invalidator.close();
+        trackingConnection.close();
+        otherNode.close();
+        thisNode.close();
+    }
+
+    @Test
+    void shouldDropCachedUrisWhenAnotherNodeFlushesRedis() {
+        // Given
+        cachedRepository.markVisited(PAGE);
+        assertThat(cachedRepository.isVisited(PAGE)).isTrue();
+
+        // When
+        otherNode.getCommands().flushdb();
+
+        // Then - without the invalidation the cache would still answer true
+        await().atMost(Duration.ofSeconds(5)).until(() -> !cachedRepository.isVisited(PAGE));
+        assertThat(invalidator.invalidations()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropCachedUrisWhenAnotherNodeResetsTheGeneration() {
+        // Given
+        cachedRepository.markVisited(PAGE);
+        otherNode.getCommands().del(RedisVisitedRepository.VISITED_SET);
+
+        // When
+        RedisVisitedCacheInvalidator.resetEverywhere(otherNode.getCommands());
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> !cachedRepository.isVisited(PAGE));
+    }
+
+    @Test
+    void shouldKeepCacheWhileOtherNodesMarkUris() throws InterruptedException {
+        // Given
+        RedisVisitedRepository otherRepository = new RedisVisitedRepository(otherNode.getBinaryCommands());
+        cachedRepository.markVisited(PAGE);
+
+        // When
+        IntStream.range(0, 100).forEach(i -> otherRepository.markVisited(URI.create("https://example.com/" + i)));
+        Thread.sleep(200);
+
+        // Then
+        assertThat(invalidator.invalidations()).isZero();
+        long hitsBefore = cachedRepository.stats().hitCount();
+        assertThat(cachedRepository.isVisited(PAGE)).isTrue();
+        assertThat(cachedRepository.stats().hitCount()).isEqualTo(hitsBefore + 1);
+    }
+}
@@ -28,12 +28,14 @@ class RedisVisitedRepositoryIntegrationTest {
     static final GenericContainer<?> redis = TestRedisConfiguration.createRedisContainer();
 
     private static RedisCommands<String, String> redisCommands;
+    private static RedisCommands<byte[], byte[]> binaryCommands;
     private VisitedRepository visitedRepository;
 
     @BeforeAll
     static void setUpClass() {
         // Create shared Redis connection once for all tests
         redisCommands = TestRedisConfiguration.getSharedCommands(redis);
+        binaryCommands = TestRedisConfiguration.getSharedBinaryCommands(redis);
     }
 
     @AfterAll
@@ -46,7 +48,7 @@ class RedisVisitedRepositoryIntegrationTest {
     void setUp() {
         // Just flush data, reuse connection
         TestRedisConfiguration.cleanTestData(redisCommands);
-        visitedRepository = new RedisVisitedRepository(redisCommands);
+        visitedRepository = new RedisVisitedRepository(binaryCommands);
     }
 
     // No @AfterEach needed - connection is shared and data is cleaned in @BeforeEach
@@ -224,7 +226,7 @@ class RedisVisitedRepositoryIntegrationTest {
         visitedRepository.markVisited(uri);
 
         // When - create new repository with same Redis connection
-        RedisVisitedRepository newRepository = new RedisVisitedRepository(redisCommands);
+        RedisVisitedRepository newRepository = new RedisVisitedRepository(binaryCommands);
 
         // Then
         assertThat(newRepository.isVisited(uri)).isTrue();
@@ -474,4 +476,160 @@ class RedisVisitedRepositoryIntegrationTest {
         assertThat(redisCommands.sismember("visited-urls", uri2.toString())).isTrue();
         assertThat(redisCommands.sismember("visited-urls", "https://example.com/nonexistent")).isFalse();
     }
+
+    @Test
+    void shouldStoreFingerprintsInsteadOfUrisWhenFingerprinted() {
+        // Given
+        VisitedRepository fingerprinted = RedisVisitedRepository.fingerprinted(binaryCommands);
+        URI uri = URI.create("https://example.com/some/fairly/long/path?with=query&and=more");
+
+        // When
+        boolean first = fingerprinted.markVisited(uri);
+        boolean second = fingerprinted.markVisited(uri);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(fingerprinted.isVisited(uri)).isTrue();
+        assertThat(fingerprinted.isVisited(URI.create("https://example.com/other"))).isFalse();
+        assertThat(binaryCommands.smembers(RedisVisitedRepository.FINGERPRINT_SET.getBytes()))
+                .singleElement()
+                .satisfies(member -> assertThat(member).hasSize(Long.BYTES));
+        assertThat(redisCommands.exists(RedisVisitedRepository.VISITED_SET)).isZero();
+    }
+
+    @Test
+    void shouldUseLessMemoryWithFingerprints() {
+        // Given
+        VisitedRepository fingerprinted = RedisVisitedRepository.fingerprinted(binaryCommands);
+        List<URI> uris = IntStream.range(0, 2_000)
+                .mapToObj(i -> URI.create("https://example.com/articles/2024/some-article-title-" + i))
+                .toList();
+
+        // When
+        uris.forEach(visitedRepository::markVisited);
+        uris.forEach(fingerprinted::markVisited);
+
+        // Then
+        long plainBytes = redisCommands.memoryUsage(RedisVisitedRepository.VISITED_SET);
+        long fingerprintBytes = redisCommands.memoryUsage(RedisVisitedRepository.FINGERPRINT_SET);
+        assertThat(fingerprintBytes).isLessThan(plainBytes);
+        assertThat(uris).allMatch(fingerprinted::isVisited);
+    }
+
+    @Test
+    void shouldCheckManyUrisInOneCall() {
+        // Given
+        List<URI> uris = IntStream.range(0, 2_500)
+                .mapToObj(i -> URI.create("https://example.com/page" + i))
+                .toList();
+        uris.stream().filter(uri -> uri.getPath().endsWith("7")).forEach(visitedRepository::markVisited);
+
+        // When
+        Set<URI> visited = visitedRepository.isVisitedAll(uris);
+
+        // Then
+        assertThat(visited).containsExactlyElementsOf(uris.stream()
+                .filter(uri -> uri.getPath().endsWith("7"))
+                .toList());
+    }
+
+    @Test
+    void shouldReturnOnlyNewlyMarkedUrisFromBatchMark() {
+        // Given
+        URI alreadyVisited = URI.create("https://example.com/old");
+        URI fresh1 = URI.create("https://example.com/new1");
+        URI fresh2 = URI.create("https://example.com/new2");
+        visitedRepository.markVisited(alreadyVisited);
+
+        // When
+        Set<URI> marked = visitedRepository.markVisitedAll(List.of(fresh2, alreadyVisited, fresh1, fresh2));
+
+        // Then
+        assertThat(marked).containsExactly(fresh2, fresh1);
+        assertThat(visitedRepository.isVisitedAll(List.of(alreadyVisited, fresh1, fresh2)))
+                .containsExactly(alreadyVisited, fresh1, fresh2);
+    }
+
+    @Test
+    void shouldSupportBatchOperationsWhenFingerprinted() {
+        // Given
+        VisitedRepository fingerprinted = RedisVisitedRepository.fingerprinted(binaryCommands);
+        URI uri1 = URI.create("https://example.com/1");
+        URI uri2 = URI.create("https://example.com/2");
+        fingerprinted.markVisited(uri1);
+
+        // When
+        Set<URI> marked = fingerprinted.markVisitedAll(List.of(uri1, uri2));
+
+        // Then
+        assertThat(marked).containsExactly(uri2);
+        assertThat(fingerprinted.isVisitedAll(List.of(uri2, uri1))).containsExactly(uri2, uri1);
+    }
+
+    @Test
+    void shouldKeepBucketsInCompactIntegerEncoding() {
+        // Given
+        VisitedRepository bucketed = RedisVisitedRepository.bucketed(binaryCommands, 10_000);
+        List<URI> uris = IntStream.range(0, 10_000)
+                .mapToObj(i -> URI.create("https://example.com/articles/2024/some-article-title-" + i))
+                .toList();
+
+        // When
+        Set<URI> marked = bucketed.markVisitedAll(uris);
+
+        // Then
+        assertThat(marked).hasSize(uris.size());
+        assertThat(uris).allMatch(bucketed::isVisited);
+        assertThat(bucketed.isVisited(URI.create("https://example.com/never"))).isFalse();
+        List<String> buckets = redisCommands.keys(RedisVisitedRepository.BUCKET_PREFIX + "*");
+        assertThat(buckets).hasSize(64);
+        assertThat(buckets).allMatch(bucket -> "intset".equals(redisCommands.objectEncoding(bucket)));
+    }
+
+    @Test
+    void shouldUseFarLessMemoryWithBucketsThanWithOneSet() {
+        // Given
+        VisitedRepository bucketed = RedisVisitedRepository.bucketed(binaryCommands, 10_000);
+        List<URI> uris = IntStream.range(0, 10_000)
+                .mapToObj(i -> URI.create("https://example.com/articles/2024/some-article-title-" + i))
+                .toList();
+
+        // When
+        visitedRepository.markVisitedAll(uris);
+        bucketed.markVisitedAll(uris);
+
+        // Then
+        long plainBytes = redisCommands.memoryUsage(RedisVisitedRepository.VISITED_SET);
+        long bucketedBytes = redisCommands.keys(RedisVisitedRepository.BUCKET_PREFIX + "*").stream()
+                .mapToLong(redisCommands::memoryUsage)
+                .sum();
+        assertThat(bucketedBytes * 5).isLessThan(plainBytes);
+    }
+
+    @Test
+    void shouldMarkAndCheckSingleUrisInBuckets() {
+        // Given
+        VisitedRepository bucketed = RedisVisitedRepository.bucketed(binaryCommands, 1_000_000);
+        URI uri = URI.create("https://example.com/page");
+
+        // When
+        boolean first = bucketed.markVisited(uri);
+        boolean second = bucketed.markVisited(uri);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(bucketed.isVisited(uri)).isTrue();
+        assertThat(bucketed.isVisitedAll(List.of(URI.create("https://example.com/other"), uri))).containsExactly(uri);
+        assertThat(redisCommands.exists(RedisVisitedRepository.VISITED_SET)).isZero();
+    }
+
+    @Test
+    void shouldSizeBucketCountFromExpectedUrls() {
+        assertThat(RedisVisitedRepository.bucketBits(1)).isZero();
+        assertThat(RedisVisitedRepository.bucketBits(RedisVisitedRepository.URIS_PER_BUCKET)).isZero();
+        assertThat(RedisVisitedRepository.bucketBits(RedisVisitedRepository.URIS_PER_BUCKET + 1)).isEqualTo(1);
+        assertThat(RedisVisitedRepository.bucketBits(10_000_000)).isEqualTo(16);
+    }
 }
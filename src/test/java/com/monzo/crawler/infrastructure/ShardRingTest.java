@@ -0,0 +1,106 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRingTest {
+
+    private static final List<String> THREE_SHARDS =
+            List.of("redis://redis-a:6379", "redis://redis-b:6379", "redis://redis-c:6379");
+
+    @Test
+    void shouldSpreadUrisEvenlyOverShards() {
+        // Given
+        ShardRing ring = ShardRing.byUri(THREE_SHARDS);
+        int count = 30_000;
+
+        // When
+        int[] perShard = new int[ring.shardCount()];
+        IntStream.range(0, count).forEach(i -> perShard[ring.shardFor(uri("example.com", i))]++);
+
+        // Then - each shard within 20% of its fair share
+        for (int shardCount : perShard) {
+            assertThat(shardCount).isBetween(count / 3 * 8 / 10, count / 3 * 12 / 10);
+        }
+    }
+
+    @Test
+    void shouldKeepAllUrisOfAHostOnOneShard() {
+        // Given
+        ShardRing ring = ShardRing.byHost(THREE_SHARDS);
+
+        // When
+        int shard = ring.shardFor(uri("example.com", 0));
+
+        // Then
+        assertThat(IntStream.range(1, 1000).map(i -> ring.shardFor(uri("example.com", i))))
+                .containsOnly(shard);
+        assertThat(ring.shardFor(URI.create("https://EXAMPLE.com/other"))).isEqualTo(shard);
+    }
+
+    @Test
+    void shouldMoveOnlyKeysOfTheNewShardWhenAddingOne() {
+        // Given
+        ShardRing before = ShardRing.byUri(THREE_SHARDS);
+        ShardRing after = ShardRing.byUri(List.of(
+                "redis://redis-a:6379", "redis://redis-b:6379", "redis://redis-c:6379", "redis://redis-d:6379"));
+        int count = 20_000;
+
+        // When
+        long moved = IntStream.range(0, count)
+                .filter(i -> before.shardFor(uri("example.com", i)) != after.shardFor(uri("example.com", i)))
+                .peek(i -> assertThat(after.shardFor(uri("example.com", i))).isEqualTo(3))
+                .count();
+
+        // Then - about a quarter of the keys move, all of them to the new shard
+        assertThat(moved).isBetween(count / 4 * 7 / 10L, count / 4 * 13 / 10L);
+    }
+
+    @Test
+    void shouldNotDependOnShardOrder() {
+        // Given
+        ShardRing ring = ShardRing.byUri(THREE_SHARDS);
+        ShardRing reordered = ShardRing.byUri(List.of(THREE_SHARDS.get(2), THREE_SHARDS.get(0), THREE_SHARDS.get(1)));
+
+        // Then
+        IntStream.range(0, 1000).forEach(i -> assertThat(reordered.shardFor(uri("example.com", i)))
+                .isEqualTo((ring.shardFor(uri("example.com", i)) + 1) % 3));
+    }
+
+    @Test
+    void shouldPartitionUrisByShardKeepingOrder() {
+        // Given
+        ShardRing ring = ShardRing.byUri(THREE_SHARDS);
+        List<URI> uris = IntStream.range(0, 100).mapToObj(i -> uri("example.com", i)).toList();
+
+        // When
+        List<List<URI>> partitions = ring.partition(uris);
+
+        // Then
+        assertThat(partitions).hasSize(3);
+        for (int shard = 0; shard < 3; shard++) {
+            int owner = shard;
+            assertThat(partitions.get(shard))
+                    .allMatch(uri -> ring.shardFor(uri) == owner)
+                    .isEqualTo(uris.stream().filter(uri -> ring.shardFor(uri) == owner).toList());
+        }
+    }
+
+    @Test
+    void shouldRejectDuplicateOrMissingShards() {
+        assertThatThrownBy(() -> ShardRing.byHost(List.of("redis://a:6379", "redis://a:6379")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ShardRing.byHost(List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static URI uri(String host, int index) {
+        return URI.create("https://" + host + "/page/" + index);
+    }
+}
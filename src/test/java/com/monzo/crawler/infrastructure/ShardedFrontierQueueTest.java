@@ -0,0 +1,111 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.FrontierQueue;
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedFrontierQueueTest {
+
+    private static final List<String> SHARD_NAMES = List.of("redis://redis-a:6379", "redis://redis-b:6379");
+
+    @Test
+    void shouldKeepPerHostOrderOnOneShard() {
+        // Given
+        ShardRing ring = ShardRing.byHost(SHARD_NAMES);
+        List<InMemoryFrontierQueue> shards = List.of(new InMemoryFrontierQueue(), new InMemoryFrontierQueue());
+        ShardedFrontierQueue queue = new ShardedFrontierQueue(ring, shards);
+        List<URI> uris = IntStream.range(0, 20).mapToObj(i -> URI.create("https://example.com/" + i)).toList();
+
+        // When
+        queue.enqueueAll(uris);
+
+        // Then
+        int owner = ring.shardFor(uris.getFirst());
+        assertThat(shards.get(1 - owner).isEmpty()).isTrue();
+        List<URI> dequeued = new ArrayList<>();
+        for (URI uri = queue.dequeue(); uri != null; uri = queue.dequeue()) {
+            dequeued.add(uri);
+        }
+        assertThat(dequeued).isEqualTo(uris);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldClaimFromEveryShard() {
+        // Given
+        ShardRing ring = ShardRing.byUri(SHARD_NAMES);
+        ShardedFrontierQueue queue = new ShardedFrontierQueue(ring,
+                List.of(new InMemoryFrontierQueue(), new InMemoryFrontierQueue()));
+        ShardedVisitedRepository visited = new ShardedVisitedRepository(ring,
+                List.of(new InMemoryVisitedRepository(), new InMemoryVisitedRepository()));
+        List<URI> uris = IntStream.range(0, 100).mapToObj(i -> URI.create("https://example.com/" + i)).toList();
+        queue.enqueueAll(uris);
+        visited.markVisited(uris.getFirst());
+
+        // When
+        List<URI> claimed = new ArrayList<>(queue.claim(60, visited));
+        claimed.addAll(queue.claim(60, visited));
+
+        // Then
+        assertThat(claimed).hasSize(99).doesNotHaveDuplicates().containsAll(uris.subList(1, 100));
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(uris).allMatch(visited::isVisited);
+    }
+
+    @Test
+    void shouldClaimEachShardAgainstItsOwnVisitedShard() {
+        // Given
+        ShardRing ring = ShardRing.byUri(SHARD_NAMES);
+        FrontierQueue first = mock(FrontierQueue.class);
+        FrontierQueue second = mock(FrontierQueue.class);
+        VisitedRepository firstVisited = mock(VisitedRepository.class);
+        VisitedRepository secondVisited = mock(VisitedRepository.class);
+        ShardedVisitedRepository visited = new ShardedVisitedRepository(ring, List.of(firstVisited, secondVisited));
+        when(first.claim(anyInt(), any())).thenReturn(List.of());
+        when(second.claim(anyInt(), any())).thenReturn(List.of());
+        ShardedFrontierQueue queue = new ShardedFrontierQueue(ring, List.of(first, second));
+
+        // When - through a near-cache, as the application wires it
+        queue.claim(10, new NearCachedVisitedRepository(visited, 100));
+
+        // Then
+        verify(first).claim(10, firstVisited);
+        verify(second).claim(10, secondVisited);
+    }
+
+    @Test
+    void shouldWaitForUriArrivingOnAnyShard() {
+        // Given
+        ShardRing ring = ShardRing.byUri(SHARD_NAMES);
+        ShardedFrontierQueue queue = new ShardedFrontierQueue(ring,
+                List.of(new InMemoryFrontierQueue(), new InMemoryFrontierQueue()));
+        URI uri = URI.create("https://example.com/late");
+
+        // When
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(150);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queue.enqueue(uri);
+        });
+
+        // Then
+        assertThat(queue.dequeue(Duration.ofSeconds(5))).isEqualTo(uri);
+        assertThat(queue.dequeue(Duration.ofMillis(50))).isNull();
+    }
+}
@@ -0,0 +1,55 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.model.PageHistory;
+import com.monzo.crawler.domain.model.PageValidators;
+import com.monzo.crawler.domain.port.out.PageHistoryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedPageHistoryRepositoryTest {
+
+    private static final List<String> SHARD_NAMES = List.of("redis://redis-a:6379", "redis://redis-b:6379");
+    private static final URI PAGE = URI.create("https://example.com/page");
+    private static final PageHistory HISTORY = new PageHistory(new PageValidators("\"v1\"", null), Set.of());
+
+    private final ShardRing ring = ShardRing.byUri(SHARD_NAMES);
+    private final List<PageHistoryRepository> shards =
+            List.of(mock(PageHistoryRepository.class), mock(PageHistoryRepository.class));
+    private final ShardedPageHistoryRepository repository = new ShardedPageHistoryRepository(ring, shards);
+
+    @Test
+    void shouldSaveAndFindOnTheShardOwningThePage() {
+        // Given
+        PageHistoryRepository owner = shards.get(ring.shardFor(PAGE));
+        PageHistoryRepository other = shards.get(1 - ring.shardFor(PAGE));
+        when(owner.find(PAGE)).thenReturn(Optional.of(HISTORY));
+
+        // When
+        repository.save(PAGE, HISTORY);
+        Optional<PageHistory> found = repository.find(PAGE);
+
+        // Then
+        assertThat(found).contains(HISTORY);
+        verify(owner).save(PAGE, HISTORY);
+        verify(other, never()).save(any(), any());
+        verify(other, never()).find(any());
+    }
+
+    @Test
+    void shouldRejectShardCountNotMatchingTheRing() {
+        assertThatThrownBy(() -> new ShardedPageHistoryRepository(ring, List.of(PageHistoryRepository.none())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,60 @@
+package com.monzo.crawler.infrastructure;
+
+import com.monzo.crawler.domain.port.out.VisitedRepository;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedVisitedRepositoryTest {
+
+    private final ShardRing ring = ShardRing.byUri(List.of("redis://redis-a:6379", "redis://redis-b:6379"));
+    private final InMemoryVisitedRepository first = new InMemoryVisitedRepository();
+    private final InMemoryVisitedRepository second = new InMemoryVisitedRepository();
+    private final ShardedVisitedRepository repository = new ShardedVisitedRepository(ring, List.of(first, second));
+
+    @Test
+    void shouldStoreEachUriOnlyOnItsOwnShard() {
+        // Given
+        URI uri = URI.create("https://example.com/page");
+
+        // When
+        boolean marked = repository.markVisited(uri);
+
+        // Then
+        VisitedRepository owner = ring.shardFor(uri) == 0 ? first : second;
+        VisitedRepository other = owner == first ? second : first;
+        assertThat(marked).isTrue();
+        assertThat(repository.isVisited(uri)).isTrue();
+        assertThat(owner.isVisited(uri)).isTrue();
+        assertThat(other.isVisited(uri)).isFalse();
+    }
+
+    @Test
+    void shouldAnswerBatchesAcrossShardsInInputOrder() {
+        // Given
+        List<URI> uris = IntStream.range(0, 50).mapToObj(i -> URI.create("https://example.com/" + i)).toList();
+        List<URI> alreadyVisited = uris.stream().filter(uri -> uri.getPath().endsWith("0")).toList();
+        alreadyVisited.forEach(repository::markVisited);
+
+        // When
+        var visited = repository.isVisitedAll(uris);
+        var marked = repository.markVisitedAll(uris.reversed());
+
+        // Then
+        assertThat(visited).containsExactlyElementsOf(alreadyVisited);
+        assertThat(marked).containsExactlyElementsOf(
+                uris.reversed().stream().filter(uri -> !alreadyVisited.contains(uri)).toList());
+        assertThat(repository.isVisitedAll(uris)).containsExactlyElementsOf(uris);
+    }
+
+    @Test
+    void shouldRequireOneRepositoryPerShard() {
+        assertThatThrownBy(() -> new ShardedVisitedRepository(ring, List.of(first)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,227 @@
+package com.monzo.crawler.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class SizeCappedBodySubscriberTest {
+
+    private final Flow.Subscription subscription = mock(Flow.Subscription.class);
+
+    @Test
+    void shouldCollectBodyWithinLimit() {
+        // Given
+        SizeCappedBodySubscriber subscriber = subscribed(16, -1);
+
+        // When
+        subscriber.onNext(List.of(bytes("<html>"), bytes("</html>")));
+        subscriber.onComplete();
+
+        // Then
+        SizeCappedBodySubscriber.Body body = body(subscriber);
+        assertThat(body.text()).isEqualTo("<html></html>");
+        assertThat(body.wireBytes()).isEqualTo(13);
+        assertThat(body.truncated()).isFalse();
+        body.discardRest().run();
+        verify(subscription, never()).cancel();
+    }
+
+    @Test
+    void shouldKeepBodyOfExactlyTheLimit() {
+        // Given
+        SizeCappedBodySubscriber subscriber = subscribed(6, 6);
+
+        // When
+        subscriber.onNext(List.of(bytes("<html>")));
+        subscriber.onComplete();
+
+        // Then
+        assertThat(body(subscriber).truncated()).isFalse();
+        assertThat(body(subscriber).text()).isEqualTo("<html>");
+    }
+
+    @Test
+    void shouldTruncateOnceLimitIsExceededAndDiscardTheRest() {
+        // Given
+        SizeCappedBodySubscriber subscriber = subscribed(8, 1_000_000_000);
+
+        // When
+        subscriber.onNext(List.of(bytes("<html>"), bytes("<body>"), bytes("never kept")));
+        subscriber.onNext(List.of(bytes("already in flight")));
+        subscriber.onComplete();
+
+        // Then
+        SizeCappedBodySubscriber.Body body = body(subscriber);
+        assertThat(body.text()).isEqualTo("<html><b");
+        assertThat(body.wireBytes()).isEqualTo(12);
+        assertThat(body.truncated()).isTrue();
+        verify(subscription, never()).cancel();
+        body.discardRest().run();
+        verify(subscription).cancel();
+    }
+
+    @Test
+    void shouldApplyLimitToDecompressedBytes() throws Exception {
+        // Given - 10 MB of markup that compresses to a few kilobytes
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(new byte[10_000_000]);
+        }
+        SizeCappedBodySubscriber subscriber = new SizeCappedBodySubscriber(
+                100_000, StandardCharsets.UTF_8, -1, ContentDecoder.forEncoding("gzip"));
+        subscriber.onSubscribe(subscription);
+
+        // When
+        subscriber.onNext(List.of(ByteBuffer.wrap(compressed.toByteArray())));
+
+        // Then
+        SizeCappedBodySubscriber.Body body = body(subscriber);
+        assertThat(body.truncated()).isTrue();
+        assertThat(body.text()).hasSize(100_000);
+        assertThat(body.wireBytes()).isEqualTo(compressed.size());
+        assertThat(body.decodedBytes()).isLessThan(200_000);
+    }
+
+    @Test
+    void shouldFailOnCorruptCompressedBody() {
+        // Given
+        SizeCappedBodySubscriber subscriber = new SizeCappedBodySubscriber(
+                100, StandardCharsets.UTF_8, -1, ContentDecoder.forEncoding("gzip"));
+        subscriber.onSubscribe(subscription);
+
+        // When
+        subscriber.onNext(List.of(bytes("<html>not gzip</html>")));
+
+        // Then
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+        verify(subscription).cancel();
+    }
+
+    @Test
+    void shouldFailWithTheStreamError() {
+        // Given
+        SizeCappedBodySubscriber subscriber = subscribed(8, -1);
+        IllegalStateException error = new IllegalStateException("Connection reset");
+
+        // When
+        subscriber.onError(error);
+
+        // Then
+        assertThat(subscriber.getBody().toCompletableFuture()).isCompletedExceptionally();
+    }
+
+    @Test
+    void shouldDecodeWithCharsetFromContentType() {
+        // Given
+        HttpHeaders headers = HttpHeaders.of(
+                Map.of("Content-Type", List.of("text/html; charset=\"ISO-8859-1\"")), (name, value) -> true);
+        SizeCappedBodySubscriber subscriber = new SizeCappedBodySubscriber(
+                16, SizeCappedBodySubscriber.charsetOf(headers), -1);
+        subscriber.onSubscribe(subscription);
+
+        // When
+        subscriber.onNext(List.of(ByteBuffer.wrap("café".getBytes(StandardCharsets.ISO_8859_1))));
+        subscriber.onComplete();
+
+        // Then
+        assertThat(body(subscriber).text()).isEqualTo("café");
+    }
+
+    @Test
+    void shouldFallBackToUtf8ForMissingOrUnknownCharset() {
+        HttpHeaders unknown = HttpHeaders.of(
+                Map.of("Content-Type", List.of("text/html; charset=no-such-charset")), (name, value) -> true);
+        HttpHeaders missing = HttpHeaders.of(Map.of(), (name, value) -> true);
+
+        assertThat(SizeCappedBodySubscriber.charsetOf(unknown)).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(SizeCappedBodySubscriber.charsetOf(missing)).isEqualTo(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldSkipUnwantedBodyAndStopItOnDiscard() {
+        // Given
+        HttpResponse.BodySubscriber<SizeCappedBodySubscriber.Body> subscriber = SizeCappedBodySubscriber.skipping(
+                responseInfo(HttpClient.Version.HTTP_2, 50_000_000));
+
+        // When
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(bytes("%PDF-1.7")));
+
+        // Then - complete before any of the body is read
+        SizeCappedBodySubscriber.Body body = subscriber.getBody().toCompletableFuture().join();
+        assertThat(body.text()).isNull();
+        assertThat(body.wireBytes()).isZero();
+        body.discardRest().run();
+        verify(subscription).cancel();
+    }
+
+    @Test
+    void shouldDrainShortUnwantedBodyToKeepHttp11ConnectionOpen() {
+        // Given
+        HttpResponse.BodySubscriber<SizeCappedBodySubscriber.Body> subscriber = SizeCappedBodySubscriber.skipping(
+                responseInfo(HttpClient.Version.HTTP_1_1, 512));
+
+        // When
+        subscriber.onSubscribe(subscription);
+        subscriber.getBody().toCompletableFuture().join().discardRest().run();
+
+        // Then
+        verify(subscription, never()).cancel();
+    }
+
+    @Test
+    void shouldRejectNonPositiveLimit() {
+        assertThatThrownBy(() -> new SizeCappedBodySubscriber(0, StandardCharsets.UTF_8, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private SizeCappedBodySubscriber subscribed(int maxBytes, long expectedLength) {
+        SizeCappedBodySubscriber subscriber = new SizeCappedBodySubscriber(maxBytes, StandardCharsets.UTF_8, expectedLength);
+        subscriber.onSubscribe(subscription);
+        return subscriber;
+    }
+
+    private static HttpResponse.ResponseInfo responseInfo(HttpClient.Version version, long contentLength) {
+        HttpHeaders headers = HttpHeaders.of(
+                Map.of("Content-Length", List.of(Long.toString(contentLength))), (name, value) -> true);
+        return new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return version;
+            }
+        };
+    }
+
+    private static SizeCappedBodySubscriber.Body body(SizeCappedBodySubscriber subscriber) {
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
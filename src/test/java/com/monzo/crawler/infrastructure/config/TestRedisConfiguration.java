@@ -3,6 +3,7 @@ package com.monzo.crawler.infrastructure.config;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.GenericContainer;
@@ -24,6 +25,7 @@ public class TestRedisConfiguration {
     private static volatile RedisClient sharedClient;
     private static volatile StatefulRedisConnection<String, String> sharedConnection;
     private static volatile RedisCommands<String, String> sharedCommands;
+    private static volatile StatefulRedisConnection<byte[], byte[]> sharedBinaryConnection;
     private static volatile GenericContainer<?> lastContainer;
 
     /**
@@ -49,6 +51,17 @@ public class TestRedisConfiguration {
         return sharedCommands;
     }
 
+    /**
+     * Get or create shared commands using {@link ByteArrayCodec} on the shared client, for adapters that store bytes
+     */
+    public static synchronized RedisCommands<byte[], byte[]> getSharedBinaryCommands(GenericContainer<?> redisContainer) {
+        getSharedCommands(redisContainer);
+        if (sharedBinaryConnection == null || !sharedBinaryConnection.isOpen()) {
+            sharedBinaryConnection = sharedClient.connect(ByteArrayCodec.INSTANCE);
+        }
+        return sharedBinaryConnection.sync();
+    }
+
     /**
      * Create a complete test setup with shared connection
      */
@@ -146,6 +159,9 @@ public class TestRedisConfiguration {
      */
     public static synchronized void closeSharedResources() {
         try {
+            if (sharedBinaryConnection != null && sharedBinaryConnection.isOpen()) {
+                sharedBinaryConnection.close();
+            }
             if (sharedConnection != null && sharedConnection.isOpen()) {
                 sharedConnection.close();
                 logger.debug("Shared Redis connection closed");
@@ -164,6 +180,7 @@ public class TestRedisConfiguration {
                 sharedClient = null;
                 sharedConnection = null;
                 sharedCommands = null;
+                sharedBinaryConnection = null;
                 lastContainer = null;
             }
         }
@@ -177,6 +194,7 @@ public class TestRedisConfiguration {
         private final StatefulRedisConnection<String, String> connection;
         private final RedisCommands<String, String> commands;
         private final boolean shouldCloseOnCleanup;
+        private StatefulRedisConnection<byte[], byte[]> binaryConnection;
 
         public TestRedisSetup(RedisClient client,
                               StatefulRedisConnection<String, String> connection,
@@ -200,6 +218,16 @@ public class TestRedisConfiguration {
             return commands;
         }
 
+        /**
+         * Commands on a connection using {@link ByteArrayCodec}, opened on first use and closed with this setup
+         */
+        public synchronized RedisCommands<byte[], byte[]> getBinaryCommands() {
+            if (binaryConnection == null) {
+                binaryConnection = client.connect(ByteArrayCodec.INSTANCE);
+            }
+            return binaryConnection.sync();
+        }
+
         /**
          * Clean up test data efficiently without closing connections
          */
@@ -228,6 +256,9 @@ public class TestRedisConfiguration {
 
         @Override
         public void close() {
+            if (binaryConnection != null) {
+                binaryConnection.close();
+            }
             if (shouldCloseOnCleanup) {
                 // Close dedicated connection
                 try {